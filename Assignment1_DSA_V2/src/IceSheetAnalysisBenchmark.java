@@ -0,0 +1,145 @@
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * IceSheetAnalysisBenchmark class times the analysis of one large random ice sheet with each
+ * IceSheetAnalyzer.Engine, checks that they all count the same weak spots and cracks, and
+ * prints the best time of each. Parsing is left out; the sheet is generated in memory, and the
+ * grid engine runs on an IceSheetGrid copied from it beforehand. The memory of the int[][] and
+ * of the grid is printed below the times. Start the JVM with --add-modules jdk.incubator.vector to
+ * time the bitset engine with its Vector API masks; the heading says which masks are used.
+ *
+ * With --mode=scaling it instead times IceSheetForkJoin on fork-join pools of each number of
+ * threads in --threads (default 1,2,4,8,16), checking its counts against analyzeIceSheet, and
+ * prints the speedup over one thread. Use a large sheet, for example --rows=20000 --cols=20000.
+ *
+ * Options are given as --name=value:
+ * --rows    rows of the sheet (default 4000)
+ * --cols    columns of the sheet (default 4000)
+ * --values  cells are random values from 0 to values - 1 (default 1000); smaller ranges give more
+ *           weak spots, for example 250 makes one cell in 50 a weak spot instead of one in 200
+ * --runs    times each engine analyzes the sheet, the best run being reported (default 5)
+ */
+public class IceSheetAnalysisBenchmark {
+
+    // Seed for the generated cell values, so every run analyzes the same sheet
+    private static final long RANDOM_SEED = 898120;
+
+    /**
+     * The main method that generates the sheet and runs every engine over it.
+     *
+     * @param args Command-line options in the form --name=value.
+     */
+    public static void main(String[] args) {
+        Map<String, String> options = IceSheetAnalyzer.parseOptions(args);
+        int rows = Integer.parseInt(options.getOrDefault("rows", "4000"));
+        int cols = Integer.parseInt(options.getOrDefault("cols", "4000"));
+        int values = Integer.parseInt(options.getOrDefault("values", "1000"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+
+        int[][] iceMatrix = generateSheet(rows, cols, values);
+        if (options.getOrDefault("mode", "engines").equals("scaling")) {
+            runScaling(iceMatrix, options.getOrDefault("threads", "1,2,4,8,16"), runs, values);
+            return;
+        }
+        IceSheetGrid grid = IceSheetGrid.copyOf(iceMatrix, true);
+        System.out.printf("Sheet of %d x %d cells with values below %d, best of %d runs\n", rows, cols, values, runs);
+        System.out.println("Bitset masks: " + (IceSheetBitset.isVectorized()
+                ? "Vector API" : "scalar (run with --add-modules jdk.incubator.vector for the Vector API)"));
+        System.out.println("==================================================================");
+        System.out.printf("%-10s %12s %12s %10s %10s %8s\n", "Engine", "Weak spots", "Cracks", "Time (ms)", "Mcells/s", "Speedup");
+        System.out.println("------------------------------------------------------------------");
+
+        int[] expected = null;
+        long baselineNanos = 0;
+        for (IceSheetAnalyzer.Engine engine : IceSheetAnalyzer.Engine.values()) {
+            int[] analysisResults = null;
+            long bestNanos = Long.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                long started = System.nanoTime();
+                analysisResults = engine == IceSheetAnalyzer.Engine.GRID
+                        ? IceSheetAnalyzer.analyzeIceSheet(grid, 0, null)
+                        : engine.analyze(iceMatrix, 0, null);
+                bestNanos = Math.min(bestNanos, System.nanoTime() - started);
+            }
+            if (expected == null) {
+                expected = analysisResults;
+                baselineNanos = bestNanos;
+            } else if (expected[0] != analysisResults[0] || expected[1] != analysisResults[1]) {
+                throw new IllegalStateException(engine + " counted " + analysisResults[0] + " weak spots and "
+                        + analysisResults[1] + " cracks instead of " + expected[0] + " and " + expected[1]);
+            }
+            System.out.printf("%-10s %12d %12d %10.2f %10.1f %8.2f\n", engine, analysisResults[0], analysisResults[1],
+                    bestNanos / 1e6, (double) rows * cols / bestNanos * 1e3, (double) baselineNanos / bestNanos);
+        }
+        System.out.println("==================================================================");
+        System.out.printf("Memory: int[][] %.1f MB, IceSheetGrid %.1f MB\n",
+                IceSheetGrid.matrixBytes(rows, cols) / 1e6, grid.memoryBytes() / 1e6);
+    }
+
+    /**
+     * Times IceSheetForkJoin on pools of each thread count and prints the speedup over the first.
+     *
+     * @param iceMatrix    The sheet to analyze.
+     * @param threadCounts The comma-separated thread counts.
+     * @param runs         The number of runs per thread count, the best being reported.
+     * @param values       The value range of the sheet, for the heading.
+     */
+    private static void runScaling(int[][] iceMatrix, String threadCounts, int runs, int values) {
+        int rows = iceMatrix.length;
+        int cols = iceMatrix[0].length;
+        int[] expected = IceSheetAnalyzer.analyzeIceSheet(iceMatrix, 0, null);
+        System.out.printf("Fork-join scaling on a sheet of %d x %d cells with values below %d, best of %d runs, %d processors\n",
+                rows, cols, values, runs, Runtime.getRuntime().availableProcessors());
+        System.out.println("======================================================");
+        System.out.printf("%-8s %12s %12s %10s %8s\n", "Threads", "Time (ms)", "Mcells/s", "Speedup", "Eff.");
+        System.out.println("------------------------------------------------------");
+
+        long firstNanos = 0;
+        for (String count : threadCounts.split(",")) {
+            int threads = Integer.parseInt(count.trim());
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long bestNanos = Long.MAX_VALUE;
+            try {
+                for (int run = 0; run < runs; run++) {
+                    long started = System.nanoTime();
+                    long[] counts = IceSheetForkJoin.analyzeIceSheet(iceMatrix, pool, 0, null);
+                    bestNanos = Math.min(bestNanos, System.nanoTime() - started);
+                    if (counts[0] != expected[0] || counts[1] != expected[1]) {
+                        throw new IllegalStateException("Fork-join on " + threads + " threads counted " + counts[0]
+                                + " weak spots and " + counts[1] + " cracks instead of " + expected[0] + " and " + expected[1]);
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+            if (firstNanos == 0) {
+                firstNanos = bestNanos;
+            }
+            double speedup = (double) firstNanos / bestNanos;
+            System.out.printf("%-8d %12.2f %12.1f %10.2f %8.2f\n", threads, bestNanos / 1e6,
+                    (double) rows * cols / bestNanos * 1e3, speedup, speedup / threads);
+        }
+        System.out.println("======================================================");
+    }
+
+    /**
+     * Fills a sheet with random values from 0 to values - 1.
+     *
+     * @param rows   The number of rows.
+     * @param cols   The number of columns.
+     * @param values The number of distinct values.
+     * @return The generated matrix.
+     */
+    static int[][] generateSheet(int rows, int cols, int values) {
+        Random random = new Random(RANDOM_SEED);
+        int[][] iceMatrix = new int[rows][cols];
+        for (int[] row : iceMatrix) {
+            for (int q = 0; q < cols; q++) {
+                row[q] = random.nextInt(values);
+            }
+        }
+        return iceMatrix;
+    }
+}
@@ -1,6 +1,10 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 /** I Gaurav Patel, 000898120 certify that this material is my original work. No other person's work has been used without due acknowledgement. I have not made my work available to anyone else */
 /**
  * IceSheetAnalyzer class is to analyzes ice sheets for weak spots and cracks.
@@ -11,52 +15,58 @@ public class IceSheetAnalyzer {
     /**
      * The main method that run the ice sheet analysis through various methods.
      *
-     * @param args  Command-line arguments for main method.
+     * @param args  Command-line arguments for main method: the data file to read, if not the sample file, or "-" for
+     *              standard input, and options of the form --name=value. --mode=stream analyzes each sheet row by row
+     *              in memory proportional to its width, with IceSheetStream. --mode=binary reads a file written by
+     *              IceSheetBinary, only sheet --sheet=N if that is given. --mode=pipeline analyzes the sheets on --threads workers (default one per
+     *              processor), which are virtual threads unless --workers=fixed, fed through a queue of --queue sheets.
+     *              --engine=bitset finds the cracks with IceSheetBitset instead of cell by cell, and --engine=grid
+     *              checks cell by cell on an IceSheetGrid. --engine=forkjoin splits each sheet into row bands
+     *              analyzed on the common fork-join pool.
      */
     public static void main(String[] args) {
-        File dataFile = new File("src/ICESHEETS_F24.TXT");
-
-        try (Scanner fileScanner = new Scanner(dataFile)) {
-            int totalIceSheets = fileScanner.nextInt(); // Total number of ice sheets
-            int totalWeakSpots = 0; // total numbers of weak spots
-            int totalCracksFound = 0; // total number of cracks
-            int sheetWithMostWeakSpots = -1; // Number of sheet with most week spots
-            int highestWeakSpots = 0; // highest number of weak spot
-
-            //
-            for (int currentSheetIndex = 0; currentSheetIndex < totalIceSheets; currentSheetIndex++) {
-                int noCols = fileScanner.nextInt();
-                int noRows = fileScanner.nextInt();
-                int[][] iceMatrix = new int[noRows][noCols];
-                fillIceData(fileScanner, iceMatrix);
-
-                int[] analysisResults = analyzeIceSheet(iceMatrix);
-                int weakSpots = analysisResults[0];
-                int cracks = analysisResults[1];
-
-                System.out.printf("Sheet %d has %d weak spots\n", currentSheetIndex, weakSpots);
+        Map<String, String> options = parseOptions(args);
+        String dataFile = options.getOrDefault("file", "src/ICESHEETS_F24.TXT");
+        String mode = options.getOrDefault("mode", "sequential");
+        Engine engine = Engine.valueOf(options.getOrDefault("engine", "cells").toUpperCase());
 
-                totalWeakSpots += weakSpots;
-                totalCracksFound += cracks;
-
-                if (weakSpots > highestWeakSpots) {
-                    highestWeakSpots = weakSpots;
-                    sheetWithMostWeakSpots = currentSheetIndex;
+        try {
+            Summary summary = switch (mode) {
+                case "sequential" -> {
+                    try (IceSheetReader reader = openReader(dataFile)) {
+                        yield analyzeSequentially(reader, engine);
+                    }
                 }
-            }
+                case "stream" -> {
+                    try (IceSheetReader reader = openReader(dataFile)) {
+                        yield IceSheetStream.analyze(reader);
+                    }
+                }
+                case "binary" -> {
+                    try (IceSheetBinary binary = IceSheetBinary.open(Path.of(dataFile))) {
+                        yield analyzeBinary(binary, options.containsKey("sheet")
+                                ? Integer.parseInt(options.get("sheet")) : -1);
+                    }
+                }
+                case "pipeline" -> IceSheetPipeline.analyze(Path.of(dataFile), engine,
+                        Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                        !options.getOrDefault("workers", "virtual").equals("fixed"),
+                        Integer.parseInt(options.getOrDefault("queue", "16")));
+                default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+            };
 
             // Prints all the results derived from ice sheet
-            System.out.println("Total weak spots detected across all ice sheets: " + totalWeakSpots);
-            System.out.println("The sheet number with the highest weak spots is " + sheetWithMostWeakSpots +
-                    " with a total of " + highestWeakSpots + " weak spots.");
-            if (totalWeakSpots > 0) {
+            System.out.println("Total weak spots detected across all ice sheets: " + summary.totalWeakSpots);
+            System.out.println("The sheet number with the highest weak spots is " + summary.sheetWithMostWeakSpots +
+                    " with a total of " + summary.highestWeakSpots + " weak spots.");
+            if (summary.totalWeakSpots > 0) {
                 System.out.printf("Out of all weak spots, the fraction that have cracks is: %.3f\n",
-                        (double) totalCracksFound / totalWeakSpots);
+                        (double) summary.totalCracksFound / summary.totalWeakSpots);
             } else {
                 System.out.println("No weak spots detected.");
             }
 
-        } catch (FileNotFoundException e) {
+        } catch (NoSuchFileException e) {
             System.err.println("Error: The file was not found. Please check the file path.");
         } catch (Exception e) {
             System.err.println("An error occurred while processing the file: " + e.getMessage());
@@ -64,16 +74,86 @@ public class IceSheetAnalyzer {
     }
 
     /**
-     * Fills the iceMatrix with data from the scanner.
+     * Opens a reader over the data file, or over standard input for "-", so that the data can be piped in.
+     *
+     * @param dataFile The path of the data file, or "-".
+     * @return The reader positioned at the start of the data.
+     * @throws IOException If the file cannot be opened.
+     */
+    static IceSheetReader openReader(String dataFile) throws IOException {
+        if (dataFile.equals("-")) {
+            return new IceSheetReader(Channels.newChannel(System.in));
+        }
+        return IceSheetReader.open(Path.of(dataFile));
+    }
+
+    /**
+     * Reads and analyzes the sheets one after another, printing the cracks and weak spots of each sheet.
+     *
+     * @param reader The IceSheetReader positioned at the start of the data.
+     * @param engine The way each sheet is analyzed.
+     * @return The totals over all sheets.
+     * @throws IOException If the data cannot be read or is not in the ice sheet format.
+     */
+    static Summary analyzeSequentially(IceSheetReader reader, Engine engine) throws IOException {
+        int totalIceSheets = reader.nextCount("the number of ice sheets"); // Total number of ice sheets
+        Summary summary = new Summary();
+        StringBuilder crackReport = new StringBuilder();
+        IceSheetGrid grid = new IceSheetGrid(true); // Reused by every sheet with the grid engine
+
+        for (int currentSheetIndex = 0; currentSheetIndex < totalIceSheets; currentSheetIndex++) {
+            int noCols = reader.nextCount("the number of columns of a sheet");
+            int noRows = reader.nextCount("the number of rows of a sheet");
+            crackReport.setLength(0);
+            int[] analysisResults;
+            if (engine == Engine.GRID) {
+                grid.fill(reader, noCols, noRows);
+                analysisResults = analyzeIceSheet(grid, currentSheetIndex, crackReport);
+            } else {
+                int[][] iceMatrix = new int[noRows][noCols];
+                fillIceData(reader, iceMatrix);
+                analysisResults = engine.analyze(iceMatrix, currentSheetIndex, crackReport);
+            }
+            summary.report(currentSheetIndex, analysisResults[0], analysisResults[1], crackReport);
+        }
+        return summary;
+    }
+
+    /**
+     * Analyzes the sheets of a binary file, reading the cells from the mapped file, and prints the cracks and weak
+     * spots of each sheet.
+     *
+     * @param binary     The open binary ice sheet file.
+     * @param onlySheet  The number of the one sheet to analyze, found through the index, or -1 for all sheets.
+     * @return The totals over the sheets analyzed.
+     * @throws IOException If a sheet cannot be mapped.
+     */
+    static Summary analyzeBinary(IceSheetBinary binary, int onlySheet) throws IOException {
+        Summary summary = new Summary();
+        StringBuilder crackReport = new StringBuilder();
+        int firstSheet = onlySheet < 0 ? 0 : onlySheet;
+        int lastSheet = onlySheet < 0 ? binary.sheetCount() - 1 : onlySheet;
+
+        for (int currentSheetIndex = firstSheet; currentSheetIndex <= lastSheet; currentSheetIndex++) {
+            crackReport.setLength(0);
+            int[] analysisResults = IceSheetBinary.analyzeIceSheet(binary.sheet(currentSheetIndex), currentSheetIndex, crackReport);
+            summary.report(currentSheetIndex, analysisResults[0], analysisResults[1], crackReport);
+        }
+        return summary;
+    }
+
+    /**
+     * Fills the iceMatrix with data from the reader.
      *
-     * @param scanner   The Scanner used to read the data.
+     * @param reader    The IceSheetReader used to read the data.
      * @param iceMatrix The matrix representing the ice sheet.
+     * @throws IOException If the data runs out or holds something other than integers.
      */
-    private static void fillIceData(Scanner scanner, int[][] iceMatrix) {
+    static void fillIceData(IceSheetReader reader, int[][] iceMatrix) throws IOException {
         for (int p = 0; p < iceMatrix.length; p++) {
             int q = 0;
             while (q < iceMatrix[p].length) {
-                iceMatrix[p][q] = scanner.nextInt();
+                iceMatrix[p][q] = reader.nextInt();
                 q++;
             }
         }
@@ -92,10 +172,13 @@ public class IceSheetAnalyzer {
     /**
      * Analyzes an ice sheet matrix for weak spots and cracks.
      *
-     * @param iceMatrix The matrix representing the ice sheet.
+     * @param iceMatrix   The matrix representing the ice sheet.
+     * @param sheetIndex  The number of the sheet in the file, used in the crack lines.
+     * @param crackReport The builder a "CRACK DETECTED" line is appended to for every cracked weak spot,
+     *                    or null to only count them.
      * @return An array where the first element is the number of weak spots and the second element is the number of cracks.
      */
-    private static int[] analyzeIceSheet(int[][] iceMatrix) {
+    static int[] analyzeIceSheet(int[][] iceMatrix, int sheetIndex, StringBuilder crackReport) {
         int weakSpotCount = 0;
         int crackCount = 0;
 
@@ -106,8 +189,10 @@ public class IceSheetAnalyzer {
                     weakSpotCount++;
                     if (checkAdjacentForCrack(iceMatrix, p, q)) {
                         crackCount++;
-                        System.out.printf("CRACK DETECTED @ [Sheet[%d](%d,%d)]\n",
-                                0, p, q); // Change the first parameter to the current sheet index if needed
+                        if (crackReport != null) {
+                            crackReport.append("CRACK DETECTED @ [Sheet[").append(sheetIndex)
+                                    .append("](").append(p).append(',').append(q).append(")]\n");
+                        }
                     }
                 }
                 q++; // Increment q
@@ -143,4 +228,151 @@ public class IceSheetAnalyzer {
         }
         return false;
     }
+
+    /**
+     * Analyzes an ice sheet grid for weak spots and cracks, the same way as the matrix version.
+     *
+     * @param grid        The grid holding the ice sheet.
+     * @param sheetIndex  The number of the sheet in the file, used in the crack lines.
+     * @param crackReport The builder a "CRACK DETECTED" line is appended to for every cracked weak spot,
+     *                    or null to only count them.
+     * @return An array where the first element is the number of weak spots and the second element is the number of cracks.
+     */
+    static int[] analyzeIceSheet(IceSheetGrid grid, int sheetIndex, StringBuilder crackReport) {
+        int weakSpotCount = 0;
+        int crackCount = 0;
+
+        for (int p = 0; p < grid.rows(); p++) {
+            int rowStart = grid.index(p, 0);
+            for (int q = 0; q < grid.cols(); q++) {
+                if (isWeakSpot(grid.valueAt(rowStart + q))) {
+                    weakSpotCount++;
+                    if (checkAdjacentForCrack(grid, p, q)) {
+                        crackCount++;
+                        if (crackReport != null) {
+                            crackReport.append("CRACK DETECTED @ [Sheet[").append(sheetIndex)
+                                    .append("](").append(p).append(',').append(q).append(")]\n");
+                        }
+                    }
+                }
+            }
+        }
+        return new int[]{weakSpotCount, crackCount};
+    }
+
+    /**
+     * Checks if there is a crack adjacent to a given weak spot of a grid. On a grid with a halo the
+     * 8 neighbours are read without bounds tests.
+     *
+     * @param grid   The grid holding the ice sheet.
+     * @param pCoord The p-coordinate of the weak spot.
+     * @param qCoord The q-coordinate of the weak spot.
+     * @return True if a crack is found adjacent to the weak spot, otherwise false.
+     */
+    public static boolean checkAdjacentForCrack(IceSheetGrid grid, int pCoord, int qCoord) {
+        int index = grid.index(pCoord, qCoord);
+        int stride = grid.stride();
+        if (grid.hasHalo()) {
+            return grid.valueAt(index - stride - 1) % 10 == 0 || grid.valueAt(index - stride) % 10 == 0
+                    || grid.valueAt(index - stride + 1) % 10 == 0 || grid.valueAt(index - 1) % 10 == 0
+                    || grid.valueAt(index + 1) % 10 == 0 || grid.valueAt(index + stride - 1) % 10 == 0
+                    || grid.valueAt(index + stride) % 10 == 0 || grid.valueAt(index + stride + 1) % 10 == 0;
+        }
+
+        for (int p = Math.max(pCoord - 1, 0); p <= Math.min(pCoord + 1, grid.rows() - 1); p++) {
+            for (int q = Math.max(qCoord - 1, 0); q <= Math.min(qCoord + 1, grid.cols() - 1); q++) {
+                if ((p != pCoord || q != qCoord) && grid.get(p, q) % 10 == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the command-line arguments into a map: options of the form --name=value by name, an option without a
+     * value as "true", and any other argument as the data file under "file".
+     *
+     * @param args The command-line arguments.
+     * @return The options by name.
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                options.put("file", arg);
+                continue;
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * The ways a sheet can be analyzed, all giving the same counts and crack lines.
+     */
+    enum Engine {
+        CELLS, // analyzeIceSheet, checking the neighbours of each weak spot
+        BITSET, // IceSheetBitset, checking 64 cells at a time
+        GRID, // analyzeIceSheet on an IceSheetGrid, which the sequential run reads the sheets into directly
+        FORKJOIN; // IceSheetForkJoin, analyzing row bands of the sheet on the common fork-join pool
+
+        /**
+         * Analyzes an ice sheet matrix for weak spots and cracks.
+         *
+         * @param iceMatrix   The matrix representing the ice sheet.
+         * @param sheetIndex  The number of the sheet in the file, used in the crack lines.
+         * @param crackReport The builder the crack lines are appended to, or null to only count them.
+         * @return An array where the first element is the number of weak spots and the second element is the number of cracks.
+         */
+        int[] analyze(int[][] iceMatrix, int sheetIndex, StringBuilder crackReport) {
+            return switch (this) {
+                case CELLS -> analyzeIceSheet(iceMatrix, sheetIndex, crackReport);
+                case BITSET -> IceSheetBitset.analyzeIceSheet(iceMatrix, sheetIndex, crackReport);
+                case GRID -> analyzeIceSheet(IceSheetGrid.copyOf(iceMatrix, true), sheetIndex, crackReport);
+                case FORKJOIN -> {
+                    long[] counts = IceSheetForkJoin.analyzeIceSheet(iceMatrix, ForkJoinPool.commonPool(),
+                            sheetIndex, crackReport);
+                    yield new int[]{Math.toIntExact(counts[0]), Math.toIntExact(counts[1])};
+                }
+            };
+        }
+    }
+
+    /**
+     * Summary class keeps the totals over the sheets of a file. Sheets must be reported in file order, so that the
+     * first of several sheets with the same number of weak spots is the one kept as having the most.
+     */
+    static final class Summary {
+        int totalWeakSpots; // total numbers of weak spots
+        int totalCracksFound; // total number of cracks
+        int sheetWithMostWeakSpots = -1; // Number of sheet with most week spots
+        int highestWeakSpots; // highest number of weak spot
+
+        /**
+         * Prints the crack lines and weak spot count of the next sheet and adds them to the totals.
+         *
+         * @param sheetIndex  The number of the sheet in the file.
+         * @param weakSpots   The number of weak spots on the sheet.
+         * @param cracks      The number of weak spots with a crack next to them.
+         * @param crackReport The "CRACK DETECTED" lines of the sheet.
+         */
+        void report(int sheetIndex, int weakSpots, int cracks, CharSequence crackReport) {
+            System.out.print(crackReport);
+            System.out.printf("Sheet %d has %d weak spots\n", sheetIndex, weakSpots);
+
+            totalWeakSpots += weakSpots;
+            totalCracksFound += cracks;
+
+            if (weakSpots > highestWeakSpots) {
+                highestWeakSpots = weakSpots;
+                sheetWithMostWeakSpots = sheetIndex;
+            }
+        }
+    }
 }
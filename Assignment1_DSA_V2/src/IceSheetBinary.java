@@ -0,0 +1,315 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * IceSheetBinary class reads and writes ice sheets in a binary format, so that a file analyzed
+ * again and again is parsed from decimal text only once. All numbers are little-endian:
+ * - a 16-byte header: the magic number "ICEB", the format VERSION, the number of sheets and 0,
+ * - an index of INDEX_ENTRY_BYTES per sheet: the offset of its cells (long), its columns, its
+ *   rows, the bytes per cell (2 if every value fits in a short, else 4) and 0,
+ * - the cells of each sheet, row after row, starting at a multiple of 8 bytes.
+ *
+ * convert writes a binary file from a text file. open maps a binary file into memory, and
+ * sheet(n) finds sheet n through the index without reading the sheets before it. A Sheet reads
+ * its cells straight from the mapped buffer, so nothing is copied onto the heap.
+ *
+ * Run the main method with a text file and a binary file to convert one into the other.
+ */
+public final class IceSheetBinary implements Closeable {
+
+    // "ICEB" read as a little-endian int
+    private static final int MAGIC = 0x42454349;
+
+    // Format version written to and expected in the header
+    private static final int VERSION = 1;
+
+    // Sizes of the header and of one sheet's entry in the index
+    private static final int HEADER_BYTES = 16;
+    private static final int INDEX_ENTRY_BYTES = 24;
+
+    // Size of the buffer cells are written through
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer index; // header and index
+    private final MappedByteBuffer wholeFile; // the mapped file, or null if it is too large to map at once
+    private final int sheetCount;
+
+    private IceSheetBinary(FileChannel channel, ByteBuffer index, MappedByteBuffer wholeFile, int sheetCount) {
+        this.channel = channel;
+        this.index = index;
+        this.wholeFile = wholeFile;
+        this.sheetCount = sheetCount;
+    }
+
+    /**
+     * The main method that converts a text ice sheet file to the binary format.
+     *
+     * @param args The text file to read and the binary file to write.
+     * @throws IOException If a file cannot be read or written, or the text is not in the ice sheet format.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java IceSheetBinary <text file> <binary file>");
+            return;
+        }
+        Path textFile = Path.of(args[0]);
+        Path binaryFile = Path.of(args[1]);
+        long started = System.nanoTime();
+        int sheets = convert(textFile, binaryFile);
+        System.out.printf("Converted %d sheets from %d text bytes to %d binary bytes in %.2f s\n",
+                sheets, Files.size(textFile), Files.size(binaryFile), (System.nanoTime() - started) / 1e9);
+    }
+
+    /**
+     * Converts a text ice sheet file to the binary format.
+     *
+     * @param textFile   The file in the ICESHEETS text format.
+     * @param binaryFile The file to write, replaced if it exists.
+     * @return The number of sheets written.
+     * @throws IOException If a file cannot be read or written, or the text is not in the ice sheet format.
+     */
+    public static int convert(Path textFile, Path binaryFile) throws IOException {
+        try (IceSheetReader reader = IceSheetReader.open(textFile);
+             FileChannel output = FileChannel.open(binaryFile, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            int totalIceSheets = reader.nextCount("the number of ice sheets");
+            int headerBytes = Math.addExact(HEADER_BYTES, Math.multiplyExact(INDEX_ENTRY_BYTES, totalIceSheets));
+            ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(totalIceSheets).putInt(0);
+
+            ByteBuffer cells = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            IceSheetGrid grid = new IceSheetGrid(false);
+            long offset = alignUp(header.capacity());
+            for (int sheetIndex = 0; sheetIndex < totalIceSheets; sheetIndex++) {
+                int noCols = reader.nextCount("the number of columns of a sheet");
+                int noRows = reader.nextCount("the number of rows of a sheet");
+                grid.fill(reader, noCols, noRows);
+                int cellBytes = grid.isWide() ? 4 : 2;
+                header.putLong(offset).putInt(noCols).putInt(noRows).putInt(cellBytes).putInt(0);
+
+                output.position(offset);
+                int cellCount = noRows * noCols; // The grid holds them all, so this does not overflow
+                for (int cell = 0; cell < cellCount; cell++) {
+                    if (cells.remaining() < 4) {
+                        writeFully(output, cells);
+                    }
+                    if (cellBytes == 2) {
+                        cells.putShort((short) grid.valueAt(cell));
+                    } else {
+                        cells.putInt(grid.valueAt(cell));
+                    }
+                }
+                writeFully(output, cells);
+                offset = alignUp(offset + (long) cellCount * cellBytes);
+            }
+
+            header.flip();
+            output.position(0);
+            while (header.hasRemaining()) {
+                output.write(header);
+            }
+
+            // Pads the file to the aligned end, so that an empty last sheet's offset is inside it
+            output.position(output.size());
+            cells.put(new byte[(int) (offset - output.size())]);
+            writeFully(output, cells);
+            return totalIceSheets;
+        }
+    }
+
+    /**
+     * Opens a binary ice sheet file and checks its header and index.
+     *
+     * @param binaryFile The file written by convert.
+     * @return The open file, to be closed when its sheets are no longer used.
+     * @throws IOException If the file cannot be read or is not a valid binary ice sheet file.
+     */
+    public static IceSheetBinary open(Path binaryFile) throws IOException {
+        FileChannel channel = FileChannel.open(binaryFile, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) {
+                throw new IOException("Not a binary ice sheet file: only " + fileSize + " bytes");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary ice sheet file: wrong magic number at byte offset 0");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported binary ice sheet version " + header.getInt(4) + " at byte offset 4");
+            }
+            int sheetCount = header.getInt(8);
+            long indexEnd = HEADER_BYTES + (long) INDEX_ENTRY_BYTES * sheetCount;
+            if (sheetCount < 0 || indexEnd > fileSize) {
+                throw new IOException("Sheet count " + sheetCount + " at byte offset 8 does not fit in the file");
+            }
+
+            MappedByteBuffer wholeFile = fileSize <= Integer.MAX_VALUE
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize) : null;
+            ByteBuffer index = wholeFile != null ? wholeFile : channel.map(FileChannel.MapMode.READ_ONLY, 0, indexEnd);
+            index = index.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+            for (int sheet = 0; sheet < sheetCount; sheet++) {
+                int entry = HEADER_BYTES + INDEX_ENTRY_BYTES * sheet;
+                long offset = index.getLong(entry);
+                long cols = index.getInt(entry + 8);
+                long rows = index.getInt(entry + 12);
+                int cellBytes = index.getInt(entry + 16);
+                long size = cols * rows * cellBytes;
+                if (cols < 0 || rows < 0 || (cellBytes != 2 && cellBytes != 4) || offset < indexEnd
+                        || size > Integer.MAX_VALUE || offset + size > fileSize) {
+                    throw new IOException("Invalid index entry for sheet " + sheet + " at byte offset " + entry);
+                }
+            }
+            return new IceSheetBinary(channel, index, wholeFile, sheetCount);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of sheets in the file.
+     *
+     * @return The sheet count from the header.
+     */
+    public int sheetCount() {
+        return sheetCount;
+    }
+
+    /**
+     * Returns a sheet, found through the index, whose cells are read from the mapped file.
+     *
+     * @param sheetIndex The number of the sheet, from 0.
+     * @return A view of the sheet.
+     * @throws IOException If the sheet cannot be mapped.
+     */
+    public Sheet sheet(int sheetIndex) throws IOException {
+        if (sheetIndex < 0 || sheetIndex >= sheetCount) {
+            throw new IndexOutOfBoundsException("Sheet " + sheetIndex + " of " + sheetCount);
+        }
+        int entry = HEADER_BYTES + INDEX_ENTRY_BYTES * sheetIndex;
+        long offset = index.getLong(entry);
+        int cols = index.getInt(entry + 8);
+        int rows = index.getInt(entry + 12);
+        int cellBytes = index.getInt(entry + 16);
+        int size = cols * rows * cellBytes;
+
+        ByteBuffer cells = wholeFile != null
+                ? wholeFile.slice((int) offset, size)
+                : channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        return new Sheet(cells.order(ByteOrder.LITTLE_ENDIAN), cols, rows, cellBytes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static long alignUp(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static void writeFully(FileChannel output, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * One sheet of a binary file, reading its cells from the mapped buffer on every access.
+     */
+    public static final class Sheet {
+        private final ByteBuffer cells;
+        private final int cols;
+        private final int rows;
+        private final int cellBytes;
+
+        private Sheet(ByteBuffer cells, int cols, int rows, int cellBytes) {
+            this.cells = cells;
+            this.cols = cols;
+            this.rows = rows;
+            this.cellBytes = cellBytes;
+        }
+
+        public int rows() {
+            return rows;
+        }
+
+        public int cols() {
+            return cols;
+        }
+
+        /**
+         * Returns the value of a cell.
+         *
+         * @param p The row of the cell.
+         * @param q The column of the cell.
+         * @return The value of the cell.
+         */
+        public int get(int p, int q) {
+            int cell = p * cols + q;
+            return cellBytes == 2 ? cells.getShort(cell * 2) : cells.getInt(cell * 4);
+        }
+    }
+
+    /**
+     * This function analyzes a sheet of a binary file the same way as IceSheetAnalyzer.analyzeIceSheet,
+     * reading the cells from the mapped file.
+     *
+     * @param sheet       The sheet to analyze.
+     * @param sheetIndex  The number of the sheet in the file, used in the crack lines.
+     * @param crackReport The builder a "CRACK DETECTED" line is appended to for every cracked weak spot,
+     *                    or null to only count them.
+     * @return An array where the first element is the number of weak spots and the second element is the number of cracks.
+     */
+    public static int[] analyzeIceSheet(Sheet sheet, int sheetIndex, StringBuilder crackReport) {
+        int weakSpotCount = 0;
+        int crackCount = 0;
+
+        for (int p = 0; p < sheet.rows(); p++) {
+            for (int q = 0; q < sheet.cols(); q++) {
+                if (IceSheetAnalyzer.isWeakSpot(sheet.get(p, q))) {
+                    weakSpotCount++;
+                    if (checkAdjacentForCrack(sheet, p, q)) {
+                        crackCount++;
+                        if (crackReport != null) {
+                            crackReport.append("CRACK DETECTED @ [Sheet[").append(sheetIndex)
+                                    .append("](").append(p).append(',').append(q).append(")]\n");
+                        }
+                    }
+                }
+            }
+        }
+        return new int[]{weakSpotCount, crackCount};
+    }
+
+    /**
+     * Checks if there is a crack adjacent to a given weak spot of a binary sheet.
+     *
+     * @param sheet  The sheet holding the weak spot.
+     * @param pCoord The p-coordinate of the weak spot.
+     * @param qCoord The q-coordinate of the weak spot.
+     * @return True if a crack is found adjacent to the weak spot, otherwise false.
+     */
+    public static boolean checkAdjacentForCrack(Sheet sheet, int pCoord, int qCoord) {
+        for (int p = Math.max(pCoord - 1, 0); p <= Math.min(pCoord + 1, sheet.rows() - 1); p++) {
+            for (int q = Math.max(qCoord - 1, 0); q <= Math.min(qCoord + 1, sheet.cols() - 1); q++) {
+                if ((p != pCoord || q != qCoord) && sheet.get(p, q) % 10 == 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
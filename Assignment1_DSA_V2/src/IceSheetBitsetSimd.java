@@ -0,0 +1,60 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * IceSheetBitsetSimd class is the Vector API kernel behind IceSheetBitset. It loads as many
+ * cells per step as the preferred vector shape of the processor holds (8 with AVX2, 16 with
+ * AVX-512), tests all of them at once and turns the lanes that pass into mask bits with
+ * VectorMask.toLong, instead of shifting in one bit per cell.
+ *
+ * Without a vector division, divisibility is tested by multiplying with a modular inverse: a
+ * value h is divisible by 5 exactly when h * INVERSE_OF_FIVE, plus half the number of
+ * multiples of 5 in the int range, is below that number as an unsigned int, and the same for
+ * 25. A value is divisible by 10 when it is even and half of it is divisible by 5, and by 50
+ * when it is even and half of it is divisible by 25.
+ *
+ * The last vector of a row is loaded with a lane mask, so no lane reads past the row. This
+ * class is only loaded by IceSheetBitset after it has checked that the jdk.incubator.vector
+ * module is present; compiling it needs --add-modules jdk.incubator.vector.
+ */
+final class IceSheetBitsetSimd implements IceSheetBitset.MaskKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    // Number of int lanes in one vector; a power of two no larger than 16, so it divides 64
+    private static final int LANES = SPECIES.length();
+
+    private static final int INVERSE_OF_FIVE = 0xCCCCCCCD;
+    private static final int HALF_MULTIPLES_OF_FIVE = (int) (IceSheetBitset.MULTIPLES_OF_FIVE / 2);
+    private static final int HALF_MULTIPLES_OF_TWENTY_FIVE = (int) (IceSheetBitset.MULTIPLES_OF_TWENTY_FIVE / 2);
+
+    @Override
+    public void buildMasks(int[] row, long[] crackMasks, long[] weakMasks) {
+        int cols = row.length;
+        for (int word = 0, start = 0; word < crackMasks.length; word++, start += 64) {
+            int end = Math.min(start + 64, cols);
+            long crackMask = 0;
+            long weakMask = 0;
+            for (int q = start; q < end; q += LANES) {
+                VectorMask<Integer> inRow = SPECIES.indexInRange(q, cols);
+                IntVector values = IntVector.fromArray(SPECIES, row, q, inRow);
+                IntVector halves = values.lanewise(VectorOperators.ASHR, 1);
+
+                VectorMask<Integer> even = values.and(1).eq(0).and(inRow);
+                VectorMask<Integer> cracks = halves.mul(INVERSE_OF_FIVE).add(HALF_MULTIPLES_OF_FIVE)
+                        .compare(VectorOperators.UNSIGNED_LT, (int) IceSheetBitset.MULTIPLES_OF_FIVE).and(even);
+                VectorMask<Integer> weakSpots = halves.mul(IceSheetBitset.INVERSE_OF_TWENTY_FIVE)
+                        .add(HALF_MULTIPLES_OF_TWENTY_FIVE)
+                        .compare(VectorOperators.UNSIGNED_LT, (int) IceSheetBitset.MULTIPLES_OF_TWENTY_FIVE)
+                        .and(values.compare(VectorOperators.LE, IceSheetBitset.MAX_WEAK_SPOT)).and(even);
+
+                crackMask |= cracks.toLong() << (q - start);
+                weakMask |= weakSpots.toLong() << (q - start);
+            }
+            crackMasks[word] = crackMask;
+            weakMasks[word] = weakMask;
+        }
+    }
+}
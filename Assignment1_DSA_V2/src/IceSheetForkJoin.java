@@ -0,0 +1,116 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * IceSheetForkJoin class analyzes one large ice sheet on several threads. The rows are split
+ * in half again and again into bands of at most BAND_CELLS cells, each analyzed by a
+ * RecursiveTask on a ForkJoinPool. A band counts the weak spots in its own rows only, but
+ * checkAdjacentForCrack may read one halo row above and one below it, so a weak spot on the
+ * edge of a band sees the same neighbours as in the sequential run. Adding the partial counts
+ * of the two halves therefore gives exactly the counts of analyzeIceSheet, and the crack lines
+ * of the halves joined in row order give the same report.
+ *
+ * The counts are longs, since a 50,000 x 50,000 sheet has more cells than an int can count.
+ */
+public final class IceSheetForkJoin {
+
+    // Largest band, in cells, that a task analyzes itself instead of splitting
+    private static final long BAND_CELLS = 1 << 16;
+
+    private IceSheetForkJoin() {
+    }
+
+    /**
+     * What a band found: its weak spots, its cracks and, if asked for, their crack lines.
+     */
+    private record BandResult(long weakSpots, long cracks, StringBuilder crackReport) {
+    }
+
+    /**
+     * This function analyzes an ice sheet in row bands on a fork-join pool.
+     *
+     * @param iceMatrix   The matrix representing the ice sheet.
+     * @param pool        The pool the bands run on; its parallelism is the number of threads used.
+     * @param sheetIndex  The number of the sheet in the file, used in the crack lines.
+     * @param crackReport The builder the crack lines are appended to, in row order, or null to only count them.
+     * @return An array where the first element is the number of weak spots and the second element is the number of cracks.
+     */
+    public static long[] analyzeIceSheet(int[][] iceMatrix, ForkJoinPool pool, int sheetIndex, StringBuilder crackReport) {
+        BandResult result = pool.invoke(new BandTask(iceMatrix, 0, iceMatrix.length, sheetIndex, crackReport != null));
+        if (crackReport != null) {
+            crackReport.append(result.crackReport());
+        }
+        return new long[]{result.weakSpots(), result.cracks()};
+    }
+
+    /**
+     * Analyzes the rows from firstRow up to lastRow, exclusive, splitting them in half while the band is
+     * larger than BAND_CELLS.
+     */
+    private static final class BandTask extends RecursiveTask<BandResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] iceMatrix;
+        private final int firstRow;
+        private final int lastRow;
+        private final int sheetIndex;
+        private final boolean reportCracks;
+
+        BandTask(int[][] iceMatrix, int firstRow, int lastRow, int sheetIndex, boolean reportCracks) {
+            this.iceMatrix = iceMatrix;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.sheetIndex = sheetIndex;
+            this.reportCracks = reportCracks;
+        }
+
+        @Override
+        protected BandResult compute() {
+            int bandRows = lastRow - firstRow;
+            if (bandRows < 2 || (long) bandRows * iceMatrix[firstRow].length <= BAND_CELLS) {
+                return analyzeBand();
+            }
+
+            int middleRow = firstRow + bandRows / 2;
+            BandTask upper = new BandTask(iceMatrix, firstRow, middleRow, sheetIndex, reportCracks);
+            BandTask lower = new BandTask(iceMatrix, middleRow, lastRow, sheetIndex, reportCracks);
+            upper.fork();
+            BandResult lowerResult = lower.compute();
+            BandResult upperResult = upper.join();
+
+            StringBuilder crackReport = null;
+            if (reportCracks) {
+                crackReport = upperResult.crackReport().append(lowerResult.crackReport());
+            }
+            return new BandResult(upperResult.weakSpots() + lowerResult.weakSpots(),
+                    upperResult.cracks() + lowerResult.cracks(), crackReport);
+        }
+
+        /**
+         * Counts the weak spots and cracks of the band's own rows; the neighbour check may read the
+         * halo rows firstRow - 1 and lastRow.
+         */
+        private BandResult analyzeBand() {
+            long weakSpotCount = 0;
+            long crackCount = 0;
+            StringBuilder crackReport = reportCracks ? new StringBuilder() : null;
+
+            for (int p = firstRow; p < lastRow; p++) {
+                int[] row = iceMatrix[p];
+                for (int q = 0; q < row.length; q++) {
+                    if (IceSheetAnalyzer.isWeakSpot(row[q])) {
+                        weakSpotCount++;
+                        if (IceSheetAnalyzer.checkAdjacentForCrack(iceMatrix, p, q)) {
+                            crackCount++;
+                            if (crackReport != null) {
+                                crackReport.append("CRACK DETECTED @ [Sheet[").append(sheetIndex)
+                                        .append("](").append(p).append(',').append(q).append(")]\n");
+                            }
+                        }
+                    }
+                }
+            }
+            return new BandResult(weakSpotCount, crackCount, crackReport);
+        }
+    }
+}
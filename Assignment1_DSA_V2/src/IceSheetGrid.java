@@ -0,0 +1,226 @@
+import java.io.IOException;
+
+/**
+ * IceSheetGrid class holds the cells of an ice sheet in one flat array, row after row, instead
+ * of an int[][] with a separate array object per row. Cell (p, q) is at index
+ * (p + halo) * stride + q + halo, and its neighbours are a fixed distance away in the array:
+ * one to the left and right, stride up and down.
+ *
+ * Values that fit in a short are stored as shorts, which halves the memory of the sample data,
+ * whose values are all below 1000. The first value that does not fit switches the grid to an
+ * int array for the rest of the sheet.
+ *
+ * A grid created with a halo has a border of one cell around the sheet holding HALO_VALUE,
+ * which is neither a weak spot nor a crack, so the neighbour check can look at all 8 neighbours
+ * of any cell without testing whether they are inside the sheet.
+ *
+ * One grid can be filled with sheet after sheet; the array is only replaced when a sheet does
+ * not fit in it.
+ */
+public final class IceSheetGrid {
+
+    // Value of the halo cells: not a weak spot and not divisible by 10
+    static final int HALO_VALUE = 1;
+
+    private final int halo; // width of the border around the sheet, 0 or 1
+    private short[] compactCells = new short[0];
+    private int[] wideCells = new int[0];
+    private boolean wide; // whether this sheet is stored in wideCells
+    private int rows;
+    private int cols;
+    private int stride; // distance between vertically adjacent cells
+
+    /**
+     * Creates an empty grid.
+     *
+     * @param withHalo True to keep a border of HALO_VALUE cells around the sheet.
+     */
+    public IceSheetGrid(boolean withHalo) {
+        this.halo = withHalo ? 1 : 0;
+    }
+
+    /**
+     * Creates a grid holding a copy of a matrix.
+     *
+     * @param iceMatrix The matrix representing the ice sheet.
+     * @param withHalo  True to keep a border of HALO_VALUE cells around the sheet.
+     * @return The filled grid.
+     */
+    public static IceSheetGrid copyOf(int[][] iceMatrix, boolean withHalo) {
+        IceSheetGrid grid = new IceSheetGrid(withHalo);
+        grid.fill(iceMatrix);
+        return grid;
+    }
+
+    /**
+     * Reads the cells of the next sheet into the grid, replacing the sheet it held.
+     *
+     * @param reader The IceSheetReader positioned at the first cell of the sheet.
+     * @param noCols The number of columns of the sheet.
+     * @param noRows The number of rows of the sheet.
+     * @throws IOException If the data runs out or holds something other than integers.
+     */
+    public void fill(IceSheetReader reader, int noCols, int noRows) throws IOException {
+        resize(noRows, noCols);
+        for (int p = 0; p < noRows; p++) {
+            int index = index(p, 0);
+            for (int q = 0; q < noCols; q++) {
+                set(index + q, reader.nextInt());
+            }
+        }
+    }
+
+    /**
+     * Copies a matrix into the grid, replacing the sheet it held.
+     *
+     * @param iceMatrix The matrix representing the ice sheet.
+     */
+    public void fill(int[][] iceMatrix) {
+        int noRows = iceMatrix.length;
+        int noCols = noRows == 0 ? 0 : iceMatrix[0].length;
+        resize(noRows, noCols);
+        for (int p = 0; p < noRows; p++) {
+            int index = index(p, 0);
+            for (int q = 0; q < noCols; q++) {
+                set(index + q, iceMatrix[p][q]);
+            }
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Returns the distance in the array between a cell and the cell below it.
+     *
+     * @return The row length including the halo.
+     */
+    public int stride() {
+        return stride;
+    }
+
+    public boolean hasHalo() {
+        return halo > 0;
+    }
+
+    /**
+     * Reports whether the sheet has a value that does not fit in a short, and so is stored as ints.
+     *
+     * @return True if the cells are stored as ints, false if as shorts.
+     */
+    public boolean isWide() {
+        return wide;
+    }
+
+    /**
+     * Returns the array index of a cell; the cells of a row have consecutive indexes.
+     *
+     * @param p The row of the cell.
+     * @param q The column of the cell.
+     * @return The index to pass to valueAt.
+     */
+    public int index(int p, int q) {
+        return (p + halo) * stride + q + halo;
+    }
+
+    /**
+     * Returns the value of a cell, or HALO_VALUE for a halo cell.
+     *
+     * @param index The index of the cell.
+     * @return The value of the cell.
+     */
+    public int valueAt(int index) {
+        return wide ? wideCells[index] : compactCells[index];
+    }
+
+    /**
+     * Returns the value of a cell.
+     *
+     * @param p The row of the cell.
+     * @param q The column of the cell.
+     * @return The value of the cell.
+     */
+    public int get(int p, int q) {
+        return valueAt(index(p, q));
+    }
+
+    /**
+     * Returns the memory taken by the arrays of the grid, which stay allocated between sheets.
+     *
+     * @return The size of the cell arrays in bytes, including their object headers.
+     */
+    public long memoryBytes() {
+        return arrayBytes(2L * compactCells.length) + arrayBytes(4L * wideCells.length);
+    }
+
+    /**
+     * Estimates the memory of an int[][] of the given size on a 64-bit JVM with compressed
+     * references: a 16-byte header per array, 4 bytes per element, rounded up to 8 bytes.
+     *
+     * @param noRows The number of rows.
+     * @param noCols The number of columns.
+     * @return The estimated size in bytes.
+     */
+    public static long matrixBytes(int noRows, int noCols) {
+        return arrayBytes(4L * noRows) + noRows * arrayBytes(4L * noCols);
+    }
+
+    private static long arrayBytes(long dataBytes) {
+        return (16 + dataBytes + 7) & ~7L;
+    }
+
+    /**
+     * Makes room for a sheet, starting it in compact storage, and sets the halo cells.
+     */
+    private void resize(int noRows, int noCols) {
+        rows = noRows;
+        cols = noCols;
+        stride = noCols + 2 * halo;
+        int size = Math.multiplyExact(noRows + 2 * halo, stride);
+        wide = false;
+        if (compactCells.length < size) {
+            compactCells = new short[size];
+        }
+        if (halo > 0) {
+            int last = (noRows + 1) * stride;
+            for (int q = 0; q < stride; q++) {
+                compactCells[q] = HALO_VALUE;
+                compactCells[last + q] = HALO_VALUE;
+            }
+            for (int p = 1; p <= noRows; p++) {
+                compactCells[p * stride] = HALO_VALUE;
+                compactCells[p * stride + stride - 1] = HALO_VALUE;
+            }
+        }
+    }
+
+    private void set(int index, int value) {
+        if (!wide && value != (short) value) {
+            widen();
+        }
+        if (wide) {
+            wideCells[index] = value;
+        } else {
+            compactCells[index] = (short) value;
+        }
+    }
+
+    /**
+     * Moves the sheet from compact to int storage, halo and cells read so far included.
+     */
+    private void widen() {
+        int size = (rows + 2 * halo) * stride;
+        if (wideCells.length < size) {
+            wideCells = new int[size];
+        }
+        for (int index = 0; index < size; index++) {
+            wideCells[index] = compactCells[index];
+        }
+        wide = true;
+    }
+}
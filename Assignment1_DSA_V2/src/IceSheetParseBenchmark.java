@@ -0,0 +1,178 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * IceSheetParseBenchmark class measures how fast ice sheet files are parsed, comparing the
+ * Scanner.nextInt() loop IceSheetAnalyzer used to read cells with IceSheetReader. It writes
+ * a file of random sheets in the ICESHEETS format, parses it with both, checks that they
+ * read the same cells and prints the throughput of each.
+ *
+ * Options are given as --name=value:
+ * --size-mb  approximate size of the generated file in megabytes (default 1024)
+ * --cols     columns of each generated sheet (default 1000)
+ * --rows     rows of each generated sheet (default 1000)
+ * --file     file to write and parse; without it a temporary file is used and deleted afterwards
+ * --runs     times each parser reads the file, the best run being reported (default 1)
+ */
+public class IceSheetParseBenchmark {
+
+    // Seed for the generated cell values, so every run parses the same file
+    private static final long RANDOM_SEED = 898120;
+
+    // Width the sheet count is padded to, so it can be written once the sheets are
+    private static final int HEADER_WIDTH = 10;
+
+    /**
+     * The main method that generates the file and runs both parsers over it.
+     *
+     * @param args Command-line options in the form --name=value.
+     * @throws IOException If the file cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = IceSheetAnalyzer.parseOptions(args);
+        long targetBytes = Long.parseLong(options.getOrDefault("size-mb", "1024")) << 20;
+        int cols = Integer.parseInt(options.getOrDefault("cols", "1000"));
+        int rows = Integer.parseInt(options.getOrDefault("rows", "1000"));
+        int runs = Integer.parseInt(options.getOrDefault("runs", "1"));
+        boolean temporary = !options.containsKey("file");
+        Path file = temporary ? Files.createTempFile("icesheets", ".txt") : Path.of(options.get("file"));
+
+        try {
+            long started = System.nanoTime();
+            int sheets = generateFile(file, targetBytes, cols, rows);
+            long bytes = Files.size(file);
+            System.out.printf("Generated %d sheets of %d x %d cells (%.1f MB) in %.1f s\n",
+                    sheets, cols, rows, bytes / 1e6, (System.nanoTime() - started) / 1e9);
+
+            long scannerNanos = Long.MAX_VALUE;
+            long readerNanos = Long.MAX_VALUE;
+            long scannerSum = 0;
+            long readerSum = 0;
+            for (int run = 0; run < runs; run++) {
+                started = System.nanoTime();
+                scannerSum = parseWithScanner(file);
+                scannerNanos = Math.min(scannerNanos, System.nanoTime() - started);
+
+                started = System.nanoTime();
+                readerSum = parseWithReader(file);
+                readerNanos = Math.min(readerNanos, System.nanoTime() - started);
+            }
+            if (scannerSum != readerSum) {
+                throw new IllegalStateException("Parsers disagree: Scanner read a cell sum of " + scannerSum
+                        + ", IceSheetReader " + readerSum);
+            }
+
+            System.out.println("==============================================");
+            System.out.printf("%-16s %10s %10s %8s\n", "Parser", "Time (s)", "MB/s", "Speedup");
+            System.out.println("----------------------------------------------");
+            System.out.printf("%-16s %10.2f %10.1f %8.2f\n", "Scanner", scannerNanos / 1e9,
+                    bytes / 1e6 / (scannerNanos / 1e9), 1.0);
+            System.out.printf("%-16s %10.2f %10.1f %8.2f\n", "IceSheetReader", readerNanos / 1e9,
+                    bytes / 1e6 / (readerNanos / 1e9), (double) scannerNanos / readerNanos);
+            System.out.println("==============================================");
+        } finally {
+            if (temporary) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Writes random sheets until the file reaches about targetBytes, then fills in the sheet
+     * count, which was written as padding at the start of the file.
+     *
+     * @return The number of sheets written.
+     */
+    private static int generateFile(Path file, long targetBytes, int cols, int rows) throws IOException {
+        Random random = new Random(RANDOM_SEED);
+        int sheets = 0;
+        long written;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            writer.write(" ".repeat(HEADER_WIDTH));
+            writer.newLine();
+            written = HEADER_WIDTH + 1;
+            StringBuilder line = new StringBuilder();
+            do {
+                String dimensions = cols + " " + rows + "\n";
+                writer.write(dimensions);
+                written += dimensions.length();
+                for (int p = 0; p < rows; p++) {
+                    line.setLength(0);
+                    for (int q = 0; q < cols; q++) {
+                        line.append(random.nextInt(1000)).append(' ');
+                    }
+                    line.append('\n');
+                    writer.append(line);
+                    written += line.length();
+                }
+                sheets++;
+            } while (written < targetBytes);
+        }
+        try (RandomAccessFile header = new RandomAccessFile(file.toFile(), "rw")) {
+            header.write(String.format("%" + HEADER_WIDTH + "d", sheets).getBytes(StandardCharsets.US_ASCII));
+        }
+        return sheets;
+    }
+
+    /**
+     * Parses the file the way IceSheetAnalyzer did before IceSheetReader, with Scanner.nextInt().
+     *
+     * @return The sum of all cells, to compare the parsers.
+     */
+    private static long parseWithScanner(Path file) throws IOException {
+        long sum = 0;
+        try (Scanner scanner = new Scanner(new File(file.toString()))) {
+            int totalIceSheets = scanner.nextInt();
+            for (int sheet = 0; sheet < totalIceSheets; sheet++) {
+                int noCols = scanner.nextInt();
+                int noRows = scanner.nextInt();
+                int[][] iceMatrix = new int[noRows][noCols];
+                for (int p = 0; p < noRows; p++) {
+                    for (int q = 0; q < noCols; q++) {
+                        iceMatrix[p][q] = scanner.nextInt();
+                    }
+                }
+                sum += sumCells(iceMatrix);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Parses the file the way IceSheetAnalyzer does now, with IceSheetReader.
+     *
+     * @return The sum of all cells, to compare the parsers.
+     */
+    private static long parseWithReader(Path file) throws IOException {
+        long sum = 0;
+        try (IceSheetReader reader = IceSheetReader.open(file)) {
+            int totalIceSheets = reader.nextCount("the number of ice sheets");
+            for (int sheet = 0; sheet < totalIceSheets; sheet++) {
+                int noCols = reader.nextCount("the number of columns of a sheet");
+                int noRows = reader.nextCount("the number of rows of a sheet");
+                int[][] iceMatrix = new int[noRows][noCols];
+                IceSheetAnalyzer.fillIceData(reader, iceMatrix);
+                sum += sumCells(iceMatrix);
+            }
+        }
+        return sum;
+    }
+
+    private static long sumCells(int[][] iceMatrix) {
+        long sum = 0;
+        for (int[] row : iceMatrix) {
+            for (int value : row) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+}
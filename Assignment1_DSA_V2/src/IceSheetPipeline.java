@@ -0,0 +1,152 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * IceSheetPipeline class analyzes the sheets of a file concurrently. A reader thread parses
+ * the file sheet by sheet and puts each sheet on a bounded queue, so it waits rather than
+ * filling the heap when the workers fall behind. The workers take sheets from the queue and
+ * analyze them with the chosen IceSheetAnalyzer.Engine, and the calling thread reduces the results
+ * in sheet order: it prints every sheet's cracks and weak spots and builds the totals just
+ * like the sequential run, so the output is identical whichever worker finishes first.
+ *
+ * Each sheet gets a CompletableFuture for its result, which the reader also puts on a second
+ * queue in file order. The reducer waits for these futures one after another, so a sheet's
+ * result is only used once all earlier sheets are reported.
+ */
+public final class IceSheetPipeline {
+
+    /**
+     * A parsed sheet waiting for a worker, with the future its result completes.
+     */
+    private record SheetTask(int sheetIndex, int[][] iceMatrix, CompletableFuture<SheetResult> result) {
+    }
+
+    /**
+     * What a worker found on a sheet.
+     */
+    private record SheetResult(int sheetIndex, int weakSpots, int cracks, String crackReport) {
+    }
+
+    // Put on the sheet queue once per worker after the last sheet, telling the worker to stop
+    private static final SheetTask END_OF_SHEETS = new SheetTask(-1, null, null);
+
+    private IceSheetPipeline() {
+    }
+
+    /**
+     * Analyzes every sheet of a file on a pool of workers, printing the same lines as the sequential run.
+     *
+     * @param dataFile       The ice sheet file.
+     * @param engine         The way each sheet is analyzed.
+     * @param workerCount    The number of workers analyzing sheets.
+     * @param virtualThreads True to run the reader and the workers on virtual threads, false for a fixed pool.
+     * @param queueCapacity  The number of parsed sheets that may wait for a worker.
+     * @return The totals over all sheets.
+     * @throws IOException          If the file cannot be read or is not in the ice sheet format.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for results.
+     */
+    public static IceSheetAnalyzer.Summary analyze(Path dataFile, IceSheetAnalyzer.Engine engine, int workerCount,
+                                                   boolean virtualThreads, int queueCapacity) throws IOException, InterruptedException {
+        if (workerCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("The pipeline needs at least one worker and a queue of at least one sheet");
+        }
+        BlockingQueue<SheetTask> sheets = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<CompletableFuture<SheetResult>> resultsInOrder = new LinkedBlockingQueue<>();
+
+        ExecutorService threads = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(workerCount + 1); // The reader and the workers
+        try {
+            threads.execute(() -> readSheets(dataFile, sheets, resultsInOrder, workerCount));
+            for (int worker = 0; worker < workerCount; worker++) {
+                threads.execute(() -> analyzeSheets(sheets, engine));
+            }
+
+            IceSheetAnalyzer.Summary summary = new IceSheetAnalyzer.Summary();
+            while (true) {
+                SheetResult result = resultsInOrder.take().get();
+                if (result == null) {
+                    return summary;
+                }
+                summary.report(result.sheetIndex(), result.weakSpots(), result.cracks(), result.crackReport());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Analyzing a sheet failed", e.getCause());
+        } finally {
+            // Stops a reader or workers still blocked on a queue when the reduction ended early
+            threads.shutdownNow();
+            threads.close();
+        }
+    }
+
+    /**
+     * Runs on the reader thread: parses the sheets and queues them, then queues a null result to
+     * mark the end of the file, or a failed one if reading fails in any way, including an Error
+     * such as running out of memory for a sheet, so the reducer never waits for a result that
+     * cannot come.
+     */
+    private static void readSheets(Path dataFile, BlockingQueue<SheetTask> sheets,
+                                   BlockingQueue<CompletableFuture<SheetResult>> resultsInOrder, int workerCount) {
+        try (IceSheetReader reader = IceSheetReader.open(dataFile)) {
+            int totalIceSheets = reader.nextCount("the number of ice sheets");
+            for (int sheetIndex = 0; sheetIndex < totalIceSheets; sheetIndex++) {
+                int noCols = reader.nextCount("the number of columns of a sheet");
+                int noRows = reader.nextCount("the number of rows of a sheet");
+                int[][] iceMatrix = new int[noRows][noCols];
+                IceSheetAnalyzer.fillIceData(reader, iceMatrix);
+
+                CompletableFuture<SheetResult> result = new CompletableFuture<>();
+                resultsInOrder.put(result);
+                sheets.put(new SheetTask(sheetIndex, iceMatrix, result));
+            }
+            resultsInOrder.put(CompletableFuture.completedFuture(null));
+        } catch (InterruptedException e) {
+            return; // The reduction has ended
+        } catch (Throwable e) {
+            resultsInOrder.add(CompletableFuture.failedFuture(e));
+        }
+
+        try {
+            for (int worker = 0; worker < workerCount; worker++) {
+                sheets.put(END_OF_SHEETS);
+            }
+        } catch (InterruptedException e) {
+            // The reduction has ended and the workers are interrupted as well
+        }
+    }
+
+    /**
+     * Runs on each worker: analyzes sheets from the queue until it takes END_OF_SHEETS. Whatever
+     * a sheet throws, Errors included, completes its future exceptionally.
+     */
+    private static void analyzeSheets(BlockingQueue<SheetTask> sheets, IceSheetAnalyzer.Engine engine) {
+        StringBuilder crackReport = new StringBuilder();
+        try {
+            for (SheetTask task = sheets.take(); task != END_OF_SHEETS; task = sheets.take()) {
+                try {
+                    crackReport.setLength(0);
+                    int[] analysisResults = engine.analyze(task.iceMatrix(), task.sheetIndex(), crackReport);
+                    task.result().complete(new SheetResult(task.sheetIndex(), analysisResults[0], analysisResults[1],
+                            crackReport.toString()));
+                } catch (Throwable e) {
+                    task.result().completeExceptionally(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            // The reduction has ended
+        }
+    }
+}
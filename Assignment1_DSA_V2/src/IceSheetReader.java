@@ -0,0 +1,191 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * IceSheetReader class reads the whitespace-separated integers of an ice sheet file straight
+ * from the bytes of a channel. It replaces Scanner.nextInt(), which matches every token
+ * against a regular expression and builds a String for it: here the digits are turned into
+ * an int as they are read, and nothing is allocated per token.
+ *
+ * The bytes are read in BUFFER_SIZE blocks into one direct ByteBuffer, so files of any size
+ * and pipes such as standard input can be read the same way. When a file does not hold what
+ * the format expects, the IOException names what was expected and the byte offset where the
+ * problem is, for example "Expected the number of rows of a sheet at byte offset 1234, found 'x'".
+ */
+public final class IceSheetReader implements Closeable {
+
+    // Size of the block read from the channel at a time
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long bufferOffset; // byte offset in the input of buffer index 0
+    private int position; // next unread index in the buffer
+    private int limit; // number of valid bytes in the buffer
+
+    /**
+     * Creates a reader over a channel. The reader closes the channel when it is closed.
+     *
+     * @param channel The channel the ice sheet data is read from.
+     */
+    public IceSheetReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a reader over a file.
+     *
+     * @param path The file to read.
+     * @return A reader positioned at the start of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static IceSheetReader open(Path path) throws IOException {
+        return new IceSheetReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads the next integer.
+     *
+     * @return The value of the next token.
+     * @throws IOException If the input ends or the next token is not an integer.
+     */
+    public int nextInt() throws IOException {
+        return nextInt("an integer");
+    }
+
+    /**
+     * Reads the next integer, naming what it is in the error if there is none.
+     *
+     * @param expected What the integer stands for, for example "the number of columns of a sheet".
+     * @return The value of the next token.
+     * @throws IOException If the input ends or the next token is not an integer.
+     */
+    public int nextInt(String expected) throws IOException {
+        int next = skipWhitespace();
+        long tokenOffset = offset();
+        boolean negative = next == '-';
+        if (negative) {
+            position++;
+            next = peek();
+        }
+        if (next < '0' || next > '9') {
+            throw error(expected, offset(), next);
+        }
+
+        long value = 0;
+        while (next >= '0' && next <= '9') {
+            value = value * 10 + (next - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw new IOException("Integer out of range at byte offset " + tokenOffset);
+            }
+            position++;
+            next = peek();
+        }
+        if (next >= 0 && !isWhitespace(next)) {
+            throw error(expected, offset(), next);
+        }
+        if (!negative && value > Integer.MAX_VALUE) {
+            throw new IOException("Integer out of range at byte offset " + tokenOffset);
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Reads the next integer and checks that it is not negative, as counts and sizes must be.
+     *
+     * @param expected What the count stands for, for example "the number of ice sheets".
+     * @return The count.
+     * @throws IOException If the input ends, the next token is not an integer or it is negative.
+     */
+    public int nextCount(String expected) throws IOException {
+        skipWhitespace();
+        long tokenOffset = offset();
+        int count = nextInt(expected);
+        if (count < 0) {
+            throw new IOException("Expected " + expected + " at byte offset " + tokenOffset + ", found " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether another token follows, skipping the whitespace before it.
+     *
+     * @return True if the input does not end in whitespace from here.
+     * @throws IOException If the channel cannot be read.
+     */
+    public boolean hasNext() throws IOException {
+        return skipWhitespace() >= 0;
+    }
+
+    /**
+     * Returns the byte offset of the next unread byte.
+     *
+     * @return The number of bytes consumed so far.
+     */
+    public long offset() {
+        return bufferOffset + position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Skips spaces, tabs and line breaks and returns the byte after them without consuming it,
+     * or -1 at the end of the input.
+     */
+    private int skipWhitespace() throws IOException {
+        int next = peek();
+        while (next >= 0 && isWhitespace(next)) {
+            position++;
+            next = peek();
+        }
+        return next;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer.get(position) & 0xff;
+    }
+
+    /**
+     * Replaces the consumed buffer with the next block of the channel.
+     *
+     * @return False at the end of the input.
+     */
+    private boolean fill() throws IOException {
+        bufferOffset += limit;
+        position = 0;
+        limit = 0;
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private static boolean isWhitespace(int value) {
+        return value == ' ' || value == '\n' || value == '\r' || value == '\t';
+    }
+
+    private static IOException error(String expected, long offset, int found) {
+        String description = found < 0 ? "the end of the input"
+                : found >= 0x20 && found < 0x7f ? "'" + (char) found + "'"
+                : String.format("byte 0x%02x", found);
+        return new IOException("Expected " + expected + " at byte offset " + offset + ", found " + description);
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.IOException;
+
+/**
+ * IceSheetStream class analyzes ice sheets as their rows are read, without ever holding a whole
+ * sheet. Whether a weak spot has a crack next to it depends only on its own row and the rows
+ * above and below, so three rows are kept in a ring buffer: once row p + 1 has been read, row p
+ * is analyzed and its crack lines are printed, and the buffer slot of row p - 1 is reused for
+ * row p + 2. The memory used is proportional to the number of columns, however many rows a
+ * sheet has, so sheets larger than the heap can be analyzed from a file, a pipe or standard input.
+ *
+ * The lines printed are the same as the sequential run's, in the same order.
+ */
+public final class IceSheetStream {
+
+    private IceSheetStream() {
+    }
+
+    /**
+     * Reads and analyzes the sheets one row at a time, printing the cracks and weak spots of each sheet.
+     *
+     * @param reader The IceSheetReader positioned at the start of the data.
+     * @return The totals over all sheets.
+     * @throws IOException If the data cannot be read or is not in the ice sheet format.
+     */
+    static IceSheetAnalyzer.Summary analyze(IceSheetReader reader) throws IOException {
+        int totalIceSheets = reader.nextCount("the number of ice sheets");
+        IceSheetAnalyzer.Summary summary = new IceSheetAnalyzer.Summary();
+        int[][] ring = new int[3][0]; // rows p - 1, p and p + 1, at p - 1, p and p + 1 modulo 3
+        StringBuilder crackLine = new StringBuilder();
+
+        for (int sheetIndex = 0; sheetIndex < totalIceSheets; sheetIndex++) {
+            int noCols = reader.nextCount("the number of columns of a sheet");
+            int noRows = reader.nextCount("the number of rows of a sheet");
+            if (ring[0].length < noCols) {
+                ring = new int[3][noCols];
+            }
+
+            int weakSpotCount = 0;
+            int crackCount = 0;
+            for (int nextRow = 0; nextRow <= noRows; nextRow++) {
+                if (nextRow < noRows) {
+                    int[] row = ring[nextRow % 3];
+                    for (int q = 0; q < noCols; q++) {
+                        row[q] = reader.nextInt();
+                    }
+                }
+                if (nextRow == 0) {
+                    continue;
+                }
+
+                // Row p is complete now that the row below it has been read, or there is none
+                int p = nextRow - 1;
+                int[] above = p > 0 ? ring[(p - 1) % 3] : null;
+                int[] current = ring[p % 3];
+                int[] below = nextRow < noRows ? ring[nextRow % 3] : null;
+                for (int q = 0; q < noCols; q++) {
+                    if (IceSheetAnalyzer.isWeakSpot(current[q])) {
+                        weakSpotCount++;
+                        if (checkAdjacentForCrack(above, current, below, q, noCols)) {
+                            crackCount++;
+                            crackLine.setLength(0);
+                            crackLine.append("CRACK DETECTED @ [Sheet[").append(sheetIndex)
+                                    .append("](").append(p).append(',').append(q).append(")]\n");
+                            System.out.append(crackLine);
+                        }
+                    }
+                }
+            }
+            summary.report(sheetIndex, weakSpotCount, crackCount, "");
+        }
+        return summary;
+    }
+
+    /**
+     * Checks if there is a crack next to column q of a row, given the rows around it.
+     *
+     * @param above   The row above, or null for the first row.
+     * @param current The row of the weak spot.
+     * @param below   The row below, or null for the last row.
+     * @param q       The column of the weak spot.
+     * @param noCols  The number of columns in use; the ring buffer rows may be longer.
+     * @return True if a crack is found adjacent to the weak spot, otherwise false.
+     */
+    private static boolean checkAdjacentForCrack(int[] above, int[] current, int[] below, int q, int noCols) {
+        int first = Math.max(q - 1, 0);
+        int last = Math.min(q + 1, noCols - 1);
+        for (int column = first; column <= last; column++) {
+            if (above != null && above[column] % 10 == 0 || below != null && below[column] % 10 == 0) {
+                return true;
+            }
+            if (column != q && current[column] % 10 == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
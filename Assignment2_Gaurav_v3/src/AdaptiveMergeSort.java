@@ -0,0 +1,538 @@
+/**
+ * The AdaptiveMergeSort class is a natural merge sort in the style of TimSort for int
+ * arrays. Instead of always splitting the array down to single elements as
+ * executeMergeSort does, it finds the runs that are already in order:
+ * <ul>
+ *   <li>ascending runs are kept as they are and strictly descending runs are reversed
+ *       in place;</li>
+ *   <li>runs shorter than a minimum length (between 16 and 32, chosen so the number of
+ *       runs is close to a power of two) are extended with binary insertion sort;</li>
+ *   <li>runs are kept on a stack whose lengths grow at least like the Fibonacci numbers
+ *       and merged only when that shape would break, which keeps merges balanced;</li>
+ *   <li>before a merge, galloping search drops the prefix of the left run and the suffix
+ *       of the right run that are already in place, only the smaller of the remaining
+ *       runs is copied to scratch space, and the merge itself switches to galloping mode
+ *       whenever one run keeps winning.</li>
+ * </ul>
+ * On input that is already nearly sorted this does O(n) work and O(n) comparisons; on
+ * random input it stays O(n log n). Every key comparison is counted, so the result can
+ * be reported in the results table next to the other sorts.
+ *
+ * The overload taking a ScratchArena borrows a scratch buffer of half the input, so it
+ * never has to grow, and reuses one sorter per thread, so repeated sorts allocate nothing.
+ */
+public final class AdaptiveMergeSort {
+
+    // Arrays shorter than this are sorted with binary insertion sort alone
+    private static final int MIN_MERGE = 32;
+
+    // Number of consecutive wins by one run after which merging switches to galloping
+    private static final int MIN_GALLOP = 7;
+
+    // Enough stack entries for any int-indexed array, given the run-length invariant
+    private static final int MAX_PENDING_RUNS = 49;
+
+    // The sorter each thread reuses in the arena overload
+    private static final ThreadLocal<AdaptiveMergeSort> REUSABLE_SORTER =
+            ThreadLocal.withInitial(() -> new AdaptiveMergeSort(null, null));
+
+    private int[] array;
+    private int[] scratch;
+    private int minGallop = MIN_GALLOP;
+
+    // Pending runs, each described by its start index and length
+    private final int[] runBase = new int[MAX_PENDING_RUNS];
+    private final int[] runLength = new int[MAX_PENDING_RUNS];
+    private int stackSize;
+
+    private long comparisonCount;
+    private long moveCount;
+
+    private AdaptiveMergeSort(int[] array, int[] scratch) {
+        this.array = array;
+        this.scratch = scratch;
+    }
+
+    /**
+     * This function sorts an array with the adaptive merge sort described above.
+     *
+     * @param inputArr The array to be sorted.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long performAdaptiveMergeSort(int[] inputArr) {
+        if (inputArr.length < 2) return 0;
+        AdaptiveMergeSort sorter = new AdaptiveMergeSort(inputArr, new int[Math.min(256, inputArr.length >>> 1)]);
+        sorter.sort();
+        return sorter.report();
+    }
+
+    /**
+     * This function sorts an array with the same adaptive merge sort, borrowing its scratch
+     * space from the arena and reusing the calling thread's sorter.
+     *
+     * @param inputArr The array to be sorted.
+     * @param arena    The arena that lends the scratch buffer.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long performAdaptiveMergeSort(int[] inputArr, ScratchArena arena) {
+        if (inputArr.length < 2) return 0;
+        AdaptiveMergeSort sorter = REUSABLE_SORTER.get();
+        int[] scratch = arena.acquire(Math.max(1, inputArr.length >>> 1));
+        sorter.array = inputArr;
+        sorter.scratch = scratch;
+        sorter.minGallop = MIN_GALLOP;
+        sorter.stackSize = 0;
+        sorter.comparisonCount = 0;
+        sorter.moveCount = 0;
+        try {
+            sorter.sort();
+        } finally {
+            sorter.array = null;
+            sorter.scratch = null;
+            arena.release(scratch);
+        }
+        return sorter.report(inputArr.length >>> 1);
+    }
+
+    private long report() {
+        return report(scratch.length);
+    }
+
+    /**
+     * Adds this sort's work to SortMetrics and returns its comparison count.
+     */
+    private long report(int scratchLength) {
+        SortMetrics.countWork(comparisonCount, moveCount);
+        SortMetrics.countAuxiliaryBytes((long) (scratchLength + 2 * MAX_PENDING_RUNS) * Integer.BYTES);
+        return comparisonCount;
+    }
+
+    private void sort() {
+        int length = array.length;
+        if (length < MIN_MERGE) {
+            int initialRun = countRunAndMakeAscending(0, length);
+            binaryInsertionSort(0, length, initialRun);
+            return;
+        }
+
+        int minRun = minimumRunLength(length);
+        int low = 0;
+        int remaining = length;
+        do {
+            int currentRun = countRunAndMakeAscending(low, low + remaining);
+            if (currentRun < minRun) {
+                int forced = Math.min(remaining, minRun);
+                binaryInsertionSort(low, low + forced, low + currentRun);
+                currentRun = forced;
+            }
+            runBase[stackSize] = low;
+            runLength[stackSize] = currentRun;
+            stackSize++;
+            mergeCollapse();
+
+            low += currentRun;
+            remaining -= currentRun;
+        } while (remaining != 0);
+        mergeForceCollapse();
+    }
+
+    private boolean less(int first, int second) {
+        comparisonCount++;
+        return first < second;
+    }
+
+    /**
+     * Returns the length of the run starting at low, reversing it first if it is strictly
+     * descending. Only strict descent is reversed so that equal keys never swap places.
+     */
+    private int countRunAndMakeAscending(int low, int high) {
+        int runHigh = low + 1;
+        if (runHigh == high) return 1;
+
+        if (less(array[runHigh++], array[low])) {
+            while (runHigh < high && less(array[runHigh], array[runHigh - 1])) {
+                runHigh++;
+            }
+            for (int left = low, right = runHigh - 1; left < right; left++, right--) {
+                int temp = array[left];
+                array[left] = array[right];
+                array[right] = temp;
+            }
+            moveCount += (runHigh - low) & ~1;
+        } else {
+            while (runHigh < high && !less(array[runHigh], array[runHigh - 1])) {
+                runHigh++;
+            }
+        }
+        return runHigh - low;
+    }
+
+    /**
+     * Sorts [low, high) given that [low, start) is already sorted, finding every insertion
+     * point with a binary search and shifting with System.arraycopy.
+     */
+    private void binaryInsertionSort(int low, int high, int start) {
+        if (start == low) start++;
+        for (; start < high; start++) {
+            int pivot = array[start];
+            int left = low;
+            int right = start;
+            while (left < right) {
+                int mid = (left + right) >>> 1;
+                if (less(pivot, array[mid])) {
+                    right = mid;
+                } else {
+                    left = mid + 1;
+                }
+            }
+            System.arraycopy(array, left, array, left + 1, start - left);
+            array[left] = pivot;
+            moveCount += start - left + 1;
+        }
+    }
+
+    private static int minimumRunLength(int length) {
+        int lowBits = 0;
+        while (length >= MIN_MERGE) {
+            lowBits |= (length & 1);
+            length >>= 1;
+        }
+        return length + lowBits;
+    }
+
+    /**
+     * Merges pending runs until, for the top runs A, B, C, D (D on top), both
+     * len(B) > len(C) + len(D) and len(C) > len(D) hold, also checking one entry deeper
+     * than the original TimSort did so the invariant really holds for the whole stack.
+     */
+    private void mergeCollapse() {
+        while (stackSize > 1) {
+            int index = stackSize - 2;
+            if (index > 0 && runLength[index - 1] <= runLength[index] + runLength[index + 1]
+                    || index > 1 && runLength[index - 2] <= runLength[index] + runLength[index - 1]) {
+                if (runLength[index - 1] < runLength[index + 1]) {
+                    index--;
+                }
+            } else if (runLength[index] > runLength[index + 1]) {
+                break;
+            }
+            mergeAt(index);
+        }
+    }
+
+    private void mergeForceCollapse() {
+        while (stackSize > 1) {
+            int index = stackSize - 2;
+            if (index > 0 && runLength[index - 1] < runLength[index + 1]) {
+                index--;
+            }
+            mergeAt(index);
+        }
+    }
+
+    /**
+     * Merges the runs at stack positions index and index + 1.
+     */
+    private void mergeAt(int index) {
+        int base1 = runBase[index];
+        int length1 = runLength[index];
+        int base2 = runBase[index + 1];
+        int length2 = runLength[index + 1];
+
+        runLength[index] = length1 + length2;
+        if (index == stackSize - 3) {
+            runBase[index + 1] = runBase[index + 2];
+            runLength[index + 1] = runLength[index + 2];
+        }
+        stackSize--;
+
+        // Elements of run 1 that are not larger than the first of run 2 are already in place
+        int skipped = gallopRight(array[base2], array, base1, length1, 0);
+        base1 += skipped;
+        length1 -= skipped;
+        if (length1 == 0) return;
+
+        // Elements of run 2 that are not smaller than the last of run 1 are already in place
+        length2 = gallopLeft(array[base1 + length1 - 1], array, base2, length2, length2 - 1);
+        if (length2 == 0) return;
+
+        if (length1 <= length2) {
+            mergeLow(base1, length1, base2, length2);
+        } else {
+            mergeHigh(base1, length1, base2, length2);
+        }
+    }
+
+    /**
+     * Finds the position at which key would be inserted into the sorted range
+     * [base, base + length), before any equal elements. The search starts at base + hint
+     * and gallops outwards in steps of 1, 3, 7, 15, ... before finishing with a binary search.
+     *
+     * @return k such that range[k - 1] < key <= range[k].
+     */
+    private int gallopLeft(int key, int[] range, int base, int length, int hint) {
+        int lastOffset = 0;
+        int offset = 1;
+        if (less(range[base + hint], key)) {
+            int maxOffset = length - hint;
+            while (offset < maxOffset && less(range[base + hint + offset], key)) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) offset = maxOffset;
+            }
+            if (offset > maxOffset) offset = maxOffset;
+            lastOffset += hint;
+            offset += hint;
+        } else {
+            int maxOffset = hint + 1;
+            while (offset < maxOffset && !less(range[base + hint - offset], key)) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) offset = maxOffset;
+            }
+            if (offset > maxOffset) offset = maxOffset;
+            int previous = lastOffset;
+            lastOffset = hint - offset;
+            offset = hint - previous;
+        }
+
+        lastOffset++;
+        while (lastOffset < offset) {
+            int mid = lastOffset + ((offset - lastOffset) >>> 1);
+            if (less(range[base + mid], key)) {
+                lastOffset = mid + 1;
+            } else {
+                offset = mid;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Like gallopLeft, but finds the position after any elements equal to key.
+     *
+     * @return k such that range[k - 1] <= key < range[k].
+     */
+    private int gallopRight(int key, int[] range, int base, int length, int hint) {
+        int offset = 1;
+        int lastOffset = 0;
+        if (less(key, range[base + hint])) {
+            int maxOffset = hint + 1;
+            while (offset < maxOffset && less(key, range[base + hint - offset])) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) offset = maxOffset;
+            }
+            if (offset > maxOffset) offset = maxOffset;
+            int previous = lastOffset;
+            lastOffset = hint - offset;
+            offset = hint - previous;
+        } else {
+            int maxOffset = length - hint;
+            while (offset < maxOffset && !less(key, range[base + hint + offset])) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) offset = maxOffset;
+            }
+            if (offset > maxOffset) offset = maxOffset;
+            lastOffset += hint;
+            offset += hint;
+        }
+
+        lastOffset++;
+        while (lastOffset < offset) {
+            int mid = lastOffset + ((offset - lastOffset) >>> 1);
+            if (less(key, range[base + mid])) {
+                offset = mid;
+            } else {
+                lastOffset = mid + 1;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Merges two adjacent runs where the first is the shorter one: the first run is copied
+     * to scratch and the merge fills the array from the left.
+     */
+    private void mergeLow(int base1, int length1, int base2, int length2) {
+        int[] a = array;
+        int[] temp = ensureScratch(length1);
+        System.arraycopy(a, base1, temp, 0, length1);
+
+        // Run 1 goes out to scratch and back; run 2 moves at most once
+        moveCount += 2L * length1 + length2;
+        int cursor1 = 0;
+        int cursor2 = base2;
+        int destination = base1;
+
+        // The first element of run 2 is known to be the smallest
+        a[destination++] = a[cursor2++];
+        if (--length2 == 0) {
+            System.arraycopy(temp, cursor1, a, destination, length1);
+            return;
+        }
+        if (length1 == 1) {
+            System.arraycopy(a, cursor2, a, destination, length2);
+            a[destination + length2] = temp[cursor1];
+            return;
+        }
+
+        int gallopThreshold = minGallop;
+        outer:
+        while (true) {
+            int wins1 = 0;
+            int wins2 = 0;
+
+            // One element at a time, until one run wins gallopThreshold times in a row
+            do {
+                if (less(a[cursor2], temp[cursor1])) {
+                    a[destination++] = a[cursor2++];
+                    wins2++;
+                    wins1 = 0;
+                    if (--length2 == 0) break outer;
+                } else {
+                    a[destination++] = temp[cursor1++];
+                    wins1++;
+                    wins2 = 0;
+                    if (--length1 == 1) break outer;
+                }
+            } while ((wins1 | wins2) < gallopThreshold);
+
+            // Galloping: copy whole blocks while one run keeps winning
+            do {
+                wins1 = gallopRight(a[cursor2], temp, cursor1, length1, 0);
+                if (wins1 != 0) {
+                    System.arraycopy(temp, cursor1, a, destination, wins1);
+                    destination += wins1;
+                    cursor1 += wins1;
+                    length1 -= wins1;
+                    if (length1 <= 1) break outer;
+                }
+                a[destination++] = a[cursor2++];
+                if (--length2 == 0) break outer;
+
+                wins2 = gallopLeft(temp[cursor1], a, cursor2, length2, 0);
+                if (wins2 != 0) {
+                    System.arraycopy(a, cursor2, a, destination, wins2);
+                    destination += wins2;
+                    cursor2 += wins2;
+                    length2 -= wins2;
+                    if (length2 == 0) break outer;
+                }
+                a[destination++] = temp[cursor1++];
+                if (--length1 == 1) break outer;
+                gallopThreshold--;
+            } while (wins1 >= MIN_GALLOP | wins2 >= MIN_GALLOP);
+            if (gallopThreshold < 0) gallopThreshold = 0;
+            gallopThreshold += 2;
+        }
+        minGallop = Math.max(1, gallopThreshold);
+
+        if (length1 == 1) {
+            System.arraycopy(a, cursor2, a, destination, length2);
+            a[destination + length2] = temp[cursor1];
+        } else {
+            System.arraycopy(temp, cursor1, a, destination, length1);
+        }
+    }
+
+    /**
+     * Merges two adjacent runs where the second is the shorter one: the second run is
+     * copied to scratch and the merge fills the array from the right.
+     */
+    private void mergeHigh(int base1, int length1, int base2, int length2) {
+        int[] a = array;
+        int[] temp = ensureScratch(length2);
+        System.arraycopy(a, base2, temp, 0, length2);
+
+        // Run 2 goes out to scratch and back; run 1 moves at most once
+        moveCount += 2L * length2 + length1;
+        int cursor1 = base1 + length1 - 1;
+        int cursor2 = length2 - 1;
+        int destination = base2 + length2 - 1;
+
+        // The last element of run 1 is known to be the largest
+        a[destination--] = a[cursor1--];
+        if (--length1 == 0) {
+            System.arraycopy(temp, 0, a, destination - (length2 - 1), length2);
+            return;
+        }
+        if (length2 == 1) {
+            destination -= length1;
+            cursor1 -= length1;
+            System.arraycopy(a, cursor1 + 1, a, destination + 1, length1);
+            a[destination] = temp[cursor2];
+            return;
+        }
+
+        int gallopThreshold = minGallop;
+        outer:
+        while (true) {
+            int wins1 = 0;
+            int wins2 = 0;
+
+            do {
+                if (less(temp[cursor2], a[cursor1])) {
+                    a[destination--] = a[cursor1--];
+                    wins1++;
+                    wins2 = 0;
+                    if (--length1 == 0) break outer;
+                } else {
+                    a[destination--] = temp[cursor2--];
+                    wins2++;
+                    wins1 = 0;
+                    if (--length2 == 1) break outer;
+                }
+            } while ((wins1 | wins2) < gallopThreshold);
+
+            do {
+                wins1 = length1 - gallopRight(temp[cursor2], a, base1, length1, length1 - 1);
+                if (wins1 != 0) {
+                    destination -= wins1;
+                    cursor1 -= wins1;
+                    length1 -= wins1;
+                    System.arraycopy(a, cursor1 + 1, a, destination + 1, wins1);
+                    if (length1 == 0) break outer;
+                }
+                a[destination--] = temp[cursor2--];
+                if (--length2 == 1) break outer;
+
+                wins2 = length2 - gallopLeft(a[cursor1], temp, 0, length2, length2 - 1);
+                if (wins2 != 0) {
+                    destination -= wins2;
+                    cursor2 -= wins2;
+                    length2 -= wins2;
+                    System.arraycopy(temp, cursor2 + 1, a, destination + 1, wins2);
+                    if (length2 <= 1) break outer;
+                }
+                a[destination--] = a[cursor1--];
+                if (--length1 == 0) break outer;
+                gallopThreshold--;
+            } while (wins1 >= MIN_GALLOP | wins2 >= MIN_GALLOP);
+            if (gallopThreshold < 0) gallopThreshold = 0;
+            gallopThreshold += 2;
+        }
+        minGallop = Math.max(1, gallopThreshold);
+
+        if (length2 == 1) {
+            destination -= length1;
+            cursor1 -= length1;
+            System.arraycopy(a, cursor1 + 1, a, destination + 1, length1);
+            a[destination] = temp[cursor2];
+        } else {
+            System.arraycopy(temp, 0, a, destination - (length2 - 1), length2);
+        }
+    }
+
+    private int[] ensureScratch(int minimumLength) {
+        if (scratch.length < minimumLength) {
+            int newLength = Integer.highestOneBit(minimumLength) << 1;
+            if (newLength < 0 || newLength > array.length >>> 1) {
+                newLength = Math.max(minimumLength, array.length >>> 1);
+            }
+            scratch = new int[newLength];
+        }
+        return scratch;
+    }
+}
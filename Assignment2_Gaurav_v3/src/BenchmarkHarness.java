@@ -0,0 +1,253 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * The BenchmarkHarness class is a small JMH-style measurement loop. It runs a workload
+ * for a number of warmup iterations so the JIT compiler settles, then for a number of
+ * measurement iterations, and reports the average time per operation with a 99.9%
+ * confidence interval, the allocation rate of the timed region and the GC activity
+ * seen while measuring.
+ *
+ * Timing uses System.nanoTime around whole batches of operations, so even operations
+ * far shorter than a millisecond are measured with useful resolution. Every batch
+ * result is folded into a volatile sink so the JIT cannot remove the measured work.
+ */
+public final class BenchmarkHarness {
+
+    /**
+     * A unit of benchmarked work. The harness calls prepareBatch outside the timed region
+     * and runBatch inside it.
+     */
+    public interface Workload {
+        /**
+         * Restores the input for the next batch, for example by copying an unsorted
+         * source array over the working arrays.
+         *
+         * @return The number of operations the next call to runBatch will perform.
+         */
+        int prepareBatch();
+
+        /**
+         * Performs the prepared batch of operations.
+         *
+         * @return A value derived from the work, consumed so the work is not eliminated.
+         */
+        long runBatch();
+    }
+
+    /**
+     * The measured outcome of one benchmark.
+     */
+    public static final class Result {
+        private final String label;
+        private final double[] samples;
+        private final double score;
+        private final double error;
+        private final double allocatedBytesPerOp;
+        private final double allocationRateMbPerSec;
+        private final long gcCount;
+        private final long gcTimeMs;
+
+        Result(String label, double[] samples, double allocatedBytesPerOp, double allocationRateMbPerSec,
+               long gcCount, long gcTimeMs) {
+            this.label = label;
+            this.samples = samples;
+            this.score = BenchmarkStatistics.mean(samples);
+            this.error = BenchmarkStatistics.confidenceHalfWidth(samples, 0.999);
+            this.allocatedBytesPerOp = allocatedBytesPerOp;
+            this.allocationRateMbPerSec = allocationRateMbPerSec;
+            this.gcCount = gcCount;
+            this.gcTimeMs = gcTimeMs;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /** @return The per-iteration samples, in nanoseconds per operation. */
+        public double[] getSamples() {
+            return samples.clone();
+        }
+
+        /** @return The mean time per operation in nanoseconds. */
+        public double getScore() {
+            return score;
+        }
+
+        /** @return The half-width of the 99.9% confidence interval, in nanoseconds. */
+        public double getError() {
+            return error;
+        }
+
+        /** @return The bytes allocated by the measuring thread per operation. */
+        public double getAllocatedBytesPerOp() {
+            return allocatedBytesPerOp;
+        }
+
+        /** @return The allocation rate of the timed region in MB per second. */
+        public double getAllocationRateMbPerSec() {
+            return allocationRateMbPerSec;
+        }
+
+        /** @return The number of garbage collections during measurement. */
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        /** @return The time spent in garbage collection during measurement, in milliseconds. */
+        public long getGcTimeMs() {
+            return gcTimeMs;
+        }
+    }
+
+    // Consumes batch results so the measured work always has an observable effect
+    private static volatile long sink;
+
+    // The thread MX bean, used to read the bytes allocated by the measuring thread
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationTimeNanos;
+
+    /**
+     * Creates a harness.
+     *
+     * @param warmupIterations      The number of unmeasured iterations run first.
+     * @param measurementIterations The number of measured iterations, each giving one sample.
+     * @param iterationTimeMillis   The minimum time spent in each iteration.
+     */
+    public BenchmarkHarness(int warmupIterations, int measurementIterations, long iterationTimeMillis) {
+        if (measurementIterations < 1) {
+            throw new IllegalArgumentException("At least one measurement iteration is required");
+        }
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationTimeNanos = iterationTimeMillis * 1_000_000L;
+        if (THREAD_BEAN.isThreadAllocatedMemorySupported()) {
+            THREAD_BEAN.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    /**
+     * Runs the warmup and measurement iterations for one workload.
+     *
+     * @param label    The name printed for this benchmark.
+     * @param workload The work to measure.
+     * @return The measured result.
+     */
+    public Result measure(String label, Workload workload) {
+        for (int iteration = 0; iteration < warmupIterations; iteration++) {
+            runIteration(workload, null);
+        }
+
+        long gcCountBefore = totalGcCount();
+        long gcTimeBefore = totalGcTimeMs();
+        double[] samples = new double[measurementIterations];
+        long[] totals = new long[3]; // timed nanoseconds, operations, allocated bytes
+        for (int iteration = 0; iteration < measurementIterations; iteration++) {
+            long[] iterationTotals = new long[3];
+            runIteration(workload, iterationTotals);
+            samples[iteration] = (double) iterationTotals[0] / iterationTotals[1];
+            for (int index = 0; index < totals.length; index++) {
+                totals[index] += iterationTotals[index];
+            }
+        }
+
+        double bytesPerOp = (double) totals[2] / totals[1];
+        double megabytesPerSecond = totals[0] == 0 ? 0.0 : (totals[2] / (1024.0 * 1024.0)) / (totals[0] / 1e9);
+        return new Result(label, samples, bytesPerOp, megabytesPerSecond,
+                totalGcCount() - gcCountBefore, totalGcTimeMs() - gcTimeBefore);
+    }
+
+    private void runIteration(Workload workload, long[] totals) {
+        long timedNanos = 0;
+        long operations = 0;
+        long allocatedBytes = 0;
+        while (timedNanos < iterationTimeNanos || operations == 0) {
+            int batchOperations = workload.prepareBatch();
+            long allocatedBefore = getThreadAllocatedBytes();
+            long start = System.nanoTime();
+            long value = workload.runBatch();
+            long end = System.nanoTime();
+            long allocatedAfter = getThreadAllocatedBytes();
+            sink += value;
+            timedNanos += end - start;
+            operations += batchOperations;
+            allocatedBytes += allocatedAfter - allocatedBefore;
+        }
+        if (totals != null) {
+            totals[0] = timedNanos;
+            totals[1] = operations;
+            totals[2] = allocatedBytes;
+        }
+    }
+
+    /**
+     * Returns the total number of bytes the calling thread has allocated so far. Reading
+     * it before and after a piece of code gives the bytes that code allocated.
+     *
+     * @return The allocated byte count, or -1 if the JVM does not track thread allocation.
+     */
+    public static long getThreadAllocatedBytes() {
+        return THREAD_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long totalGcCount() {
+        long count = 0;
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for (GarbageCollectorMXBean collector : collectors) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long totalGcTimeMs() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * Prints the column headings that match printResult.
+     */
+    public static void printHeader() {
+        System.out.printf("%-40s %5s %14s %14s %-6s %14s %14s %8s\n",
+                "Benchmark", "Cnt", "Score", "Error", "Units", "alloc.rate", "alloc.norm", "gc.count");
+        System.out.println("-".repeat(124));
+    }
+
+    /**
+     * Prints one result row in a JMH-like layout: score and error in ns/op, allocation
+     * rate in MB/sec, normalised allocation in B/op and the number of collections.
+     *
+     * @param result The result to print.
+     */
+    public static void printResult(Result result) {
+        System.out.printf("%-40s %5d %14.3f +- %11.3f %-6s %14.3f %14.3f %8d\n",
+                result.getLabel(), result.samples.length, result.getScore(), result.getError(), "ns/op",
+                result.getAllocationRateMbPerSec(), result.getAllocatedBytesPerOp(), result.getGcCount());
+    }
+
+    /**
+     * Folds a value computed outside a workload into the sink, so that it stays observable.
+     *
+     * @param value The value to consume.
+     */
+    public static void consume(long value) {
+        sink += value;
+    }
+
+    /**
+     * Returns the accumulated sink value. Reading it keeps the sink observable.
+     *
+     * @return The sum of all batch results.
+     */
+    public static long getSink() {
+        return sink;
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The BenchmarkReport class turns stored benchmark results into reports: a comparison of
+ * two result sets that flags statistically significant regressions, and throughput charts
+ * per array size as text bars or CSV.
+ *
+ * A combination is flagged only when three tests agree: the Mann-Whitney U test finds the
+ * two sets of samples different at the chosen significance level, the confidence
+ * intervals of the two means at the same level do not overlap, and the mean changed by
+ * more than the chosen threshold. Noise in a single iteration therefore does not raise an
+ * alarm, while a consistent slowdown of a few percent on a quiet machine does.
+ */
+public final class BenchmarkReport {
+
+    // Width of the longest bar in text charts
+    private static final int CHART_WIDTH = 50;
+
+    private BenchmarkReport() {
+    }
+
+    /**
+     * Compares every combination present in both stores and prints one row for each.
+     *
+     * @param baseline  The earlier results.
+     * @param candidate The results to check against them.
+     * @param alpha     The significance level, for example 0.01.
+     * @param threshold The smallest relative change worth reporting, for example 0.05 for 5%.
+     * @param out       Where the report is printed.
+     * @return The number of combinations flagged as regressions.
+     */
+    public static int compare(BenchmarkStore baseline, BenchmarkStore candidate, double alpha, double threshold,
+                              PrintStream out) {
+        BenchmarkStore.Environment before = baseline.getEnvironment();
+        BenchmarkStore.Environment after = candidate.getEnvironment();
+        out.printf("Baseline:  %s on %s (%s)\n", before.getJvm(), before.getCpu(), before.getCreated());
+        out.printf("Candidate: %s on %s (%s)\n", after.getJvm(), after.getCpu(), after.getCreated());
+        if (!before.sameMachineAndJvm(after)) {
+            out.println("Note: the environments differ, so changes may come from the JVM or machine.");
+        }
+        out.println("=".repeat(124));
+        out.printf("%-40s %25s %25s %9s %9s  %s\n", "Benchmark", "Baseline (ns/op)", "Candidate (ns/op)",
+                "Change", "p-value", "Verdict");
+        out.println("-".repeat(124));
+
+        int regressions = 0;
+        for (BenchmarkStore.Record newer : candidate.getRecords()) {
+            BenchmarkStore.Record older = baseline.find(newer.getKey());
+            if (older == null) continue;
+            double[] oldSamples = older.getSamples();
+            double[] newSamples = newer.getSamples();
+            double oldMean = BenchmarkStatistics.mean(oldSamples);
+            double newMean = BenchmarkStatistics.mean(newSamples);
+            double oldError = BenchmarkStatistics.confidenceHalfWidth(oldSamples, 1.0 - alpha);
+            double newError = BenchmarkStatistics.confidenceHalfWidth(newSamples, 1.0 - alpha);
+            double change = (newMean - oldMean) / oldMean;
+            double pValue = BenchmarkStatistics.mannWhitneyPValue(oldSamples, newSamples);
+
+            // NaN errors (a single sample) never count as separated
+            boolean separated = newMean - newError > oldMean + oldError || newMean + newError < oldMean - oldError;
+            String verdict = "same";
+            if (pValue < alpha && separated && Math.abs(change) > threshold) {
+                verdict = change > 0 ? "REGRESSION" : "improved";
+            }
+            if (verdict.equals("REGRESSION")) regressions++;
+            out.printf("%-40s %25s %25s %+8.1f%% %9.4f  %s\n", newer.getKey(), formatScore(oldMean, oldError),
+                    formatScore(newMean, newError), change * 100.0, pValue, verdict);
+        }
+        out.println("-".repeat(124));
+        out.printf("%d regression(s) at alpha %.3f and threshold %.1f%%\n", regressions, alpha, threshold * 100.0);
+        return regressions;
+    }
+
+    private static String formatScore(double mean, double error) {
+        return String.format("%.1f +- %.1f", mean, error);
+    }
+
+    /**
+     * Prints the throughput of every algorithm, in millions of elements sorted per second,
+     * with one chart per distribution and array size.
+     *
+     * @param store  The results to chart.
+     * @param format "text" for bar charts or "csv" for one line per record.
+     * @param out    Where the chart is printed.
+     */
+    public static void printThroughput(BenchmarkStore store, String format, PrintStream out) {
+        switch (format) {
+            case "csv" -> printThroughputCsv(store, out);
+            case "text" -> printThroughputText(store, out);
+            default -> throw new IllegalArgumentException("Unknown chart format: " + format);
+        }
+    }
+
+    private static void printThroughputCsv(BenchmarkStore store, PrintStream out) {
+        out.println("algorithm,distribution,size,ns_per_op,error_ns_per_op,million_elements_per_s,bytes_per_op");
+        for (BenchmarkStore.Record record : store.getRecords()) {
+            double score = record.getScore();
+            out.printf("%s,%s,%d,%.3f,%.3f,%.4f,%.1f\n", record.getAlgorithm(), record.getDistribution(),
+                    record.getSize(), score, BenchmarkStatistics.confidenceHalfWidth(record.getSamples(), 0.999),
+                    throughput(record.getSize(), score), record.getAllocatedBytesPerOp());
+        }
+    }
+
+    private static void printThroughputText(BenchmarkStore store, PrintStream out) {
+        Map<String, List<BenchmarkStore.Record>> groups = new LinkedHashMap<>();
+        for (BenchmarkStore.Record record : store.getRecords()) {
+            String group = String.format("%s, size %d", record.getDistribution(), record.getSize());
+            groups.computeIfAbsent(group, key -> new ArrayList<>()).add(record);
+        }
+        for (Map.Entry<String, List<BenchmarkStore.Record>> group : groups.entrySet()) {
+            double best = 0.0;
+            for (BenchmarkStore.Record record : group.getValue()) {
+                best = Math.max(best, throughput(record.getSize(), record.getScore()));
+            }
+            out.printf("Throughput (%s, million elements/s)\n", group.getKey());
+            out.println("-".repeat(15 + CHART_WIDTH + 12));
+            for (BenchmarkStore.Record record : group.getValue()) {
+                double value = throughput(record.getSize(), record.getScore());
+                int bar = best > 0 ? (int) Math.round(value / best * CHART_WIDTH) : 0;
+                out.printf("%-15s %-" + CHART_WIDTH + "s %10.3f\n", record.getAlgorithm(), "#".repeat(bar), value);
+            }
+            out.println();
+        }
+    }
+
+    private static double throughput(int size, double nanosPerOp) {
+        return nanosPerOp > 0 ? size * 1000.0 / nanosPerOp : 0.0;
+    }
+}
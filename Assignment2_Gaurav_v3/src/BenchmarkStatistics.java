@@ -0,0 +1,181 @@
+/**
+ * The BenchmarkStatistics class holds the small amount of statistics needed to turn
+ * raw benchmark samples into a score with error bars: the mean, the sample standard
+ * deviation and the quantiles of the normal and Student t distributions. It also has
+ * the Mann-Whitney U test used to decide whether two sets of samples really differ.
+ */
+public final class BenchmarkStatistics {
+
+    // Coefficients of Acklam's rational approximation of the normal quantile function
+    private static final double[] A = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+    private static final double[] B = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+    private static final double[] C = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+    private static final double[] D = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+
+    private BenchmarkStatistics() {
+    }
+
+    /**
+     * Calculates the arithmetic mean of the samples.
+     *
+     * @param samples The samples to average.
+     * @return The mean, or 0 if there are no samples.
+     */
+    public static double mean(double[] samples) {
+        if (samples.length == 0) return 0.0;
+        double total = 0.0;
+        for (double sample : samples) {
+            total += sample;
+        }
+        return total / samples.length;
+    }
+
+    /**
+     * Calculates the sample standard deviation (with n - 1 in the denominator).
+     *
+     * @param samples The samples to measure.
+     * @return The standard deviation, or 0 if there are fewer than two samples.
+     */
+    public static double standardDeviation(double[] samples) {
+        if (samples.length < 2) return 0.0;
+        double mean = mean(samples);
+        double squares = 0.0;
+        for (double sample : samples) {
+            squares += (sample - mean) * (sample - mean);
+        }
+        return Math.sqrt(squares / (samples.length - 1));
+    }
+
+    /**
+     * Calculates the half-width of the two-sided confidence interval around the mean,
+     * using the Student t distribution as JMH does for its error column.
+     *
+     * @param samples    The samples the interval is built from.
+     * @param confidence The confidence level, for example 0.999.
+     * @return The half-width of the interval, or NaN if there are fewer than two samples.
+     */
+    public static double confidenceHalfWidth(double[] samples, double confidence) {
+        if (samples.length < 2) return Double.NaN;
+        double quantile = studentTQuantile(1.0 - (1.0 - confidence) / 2.0, samples.length - 1);
+        return quantile * standardDeviation(samples) / Math.sqrt(samples.length);
+    }
+
+    /**
+     * Approximates the quantile function of the standard normal distribution.
+     *
+     * @param probability The probability, strictly between 0 and 1.
+     * @return The value below which the given fraction of the distribution lies.
+     */
+    public static double normalQuantile(double probability) {
+        if (probability <= 0.0 || probability >= 1.0) {
+            throw new IllegalArgumentException("Probability must be between 0 and 1: " + probability);
+        }
+        final double lowTail = 0.02425;
+        if (probability < lowTail) {
+            double q = Math.sqrt(-2.0 * Math.log(probability));
+            return (((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5])
+                    / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1.0);
+        }
+        if (probability > 1.0 - lowTail) {
+            return -normalQuantile(1.0 - probability);
+        }
+        double q = probability - 0.5;
+        double r = q * q;
+        return (((((A[0] * r + A[1]) * r + A[2]) * r + A[3]) * r + A[4]) * r + A[5]) * q
+                / (((((B[0] * r + B[1]) * r + B[2]) * r + B[3]) * r + B[4]) * r + 1.0);
+    }
+
+    /**
+     * Approximates the quantile function of the Student t distribution with the
+     * Cornish-Fisher expansion around the normal quantile.
+     *
+     * @param probability      The probability, strictly between 0 and 1.
+     * @param degreesOfFreedom The degrees of freedom, at least 1.
+     * @return The value below which the given fraction of the distribution lies.
+     */
+    public static double studentTQuantile(double probability, int degreesOfFreedom) {
+        double z = normalQuantile(probability);
+        double n = degreesOfFreedom;
+        double z2 = z * z;
+        double z3 = z2 * z;
+        double z5 = z3 * z2;
+        double z7 = z5 * z2;
+        double z9 = z7 * z2;
+        return z
+                + (z3 + z) / (4.0 * n)
+                + (5.0 * z5 + 16.0 * z3 + 3.0 * z) / (96.0 * n * n)
+                + (3.0 * z7 + 19.0 * z5 + 17.0 * z3 - 15.0 * z) / (384.0 * n * n * n)
+                + (79.0 * z9 + 776.0 * z7 + 1482.0 * z5 - 1920.0 * z3 - 945.0 * z) / (92160.0 * n * n * n * n);
+    }
+
+    /**
+     * Approximates the cumulative distribution function of the standard normal
+     * distribution, using the Chebyshev fit of erfc from Numerical Recipes (relative error
+     * below 1.2e-7).
+     *
+     * @param x The value.
+     * @return The probability that a standard normal variable is at most x.
+     */
+    public static double normalCdf(double x) {
+        double z = Math.abs(x) / Math.sqrt(2.0);
+        double t = 1.0 / (1.0 + 0.5 * z);
+        double erfc = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? 1.0 - erfc / 2.0 : erfc / 2.0;
+    }
+
+    /**
+     * Runs the two-sided Mann-Whitney U test, which asks whether values from one sample
+     * tend to be larger than values from the other without assuming either is normally
+     * distributed. Ties get their average rank, and the p-value comes from the normal
+     * approximation with tie and continuity corrections, which is adequate from about
+     * five samples per side.
+     *
+     * @param first  The first sample, not empty.
+     * @param second The second sample, not empty.
+     * @return The two-sided p-value; small values mean the samples differ.
+     */
+    public static double mannWhitneyPValue(double[] first, double[] second) {
+        int n1 = first.length;
+        int n2 = second.length;
+        if (n1 == 0 || n2 == 0) {
+            throw new IllegalArgumentException("Both samples must be non-empty");
+        }
+        int total = n1 + n2;
+        double[] pooled = new double[total];
+        System.arraycopy(first, 0, pooled, 0, n1);
+        System.arraycopy(second, 0, pooled, n1, n2);
+        int[] order = PrimitiveSorts.argsort(pooled);
+
+        // Sum the ranks of the first sample, giving tied values their average rank
+        double rankSumFirst = 0.0;
+        double tieCorrection = 0.0;
+        for (int start = 0; start < total; ) {
+            int end = start;
+            while (end + 1 < total && pooled[order[end + 1]] == pooled[order[start]]) {
+                end++;
+            }
+            double averageRank = (start + end) / 2.0 + 1.0;
+            for (int position = start; position <= end; position++) {
+                if (order[position] < n1) {
+                    rankSumFirst += averageRank;
+                }
+            }
+            double ties = end - start + 1;
+            tieCorrection += ties * ties * ties - ties;
+            start = end + 1;
+        }
+
+        double u = rankSumFirst - n1 * (n1 + 1) / 2.0;
+        double meanU = n1 * (double) n2 / 2.0;
+        double variance = n1 * (double) n2 / 12.0 * ((total + 1) - tieCorrection / (total * (double) (total - 1)));
+        if (variance <= 0.0) return 1.0;
+        double z = Math.max(0.0, Math.abs(u - meanU) - 0.5) / Math.sqrt(variance);
+        return Math.min(1.0, 2.0 * (1.0 - normalCdf(z)));
+    }
+}
@@ -0,0 +1,298 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The BenchmarkStore class keeps benchmark results beyond the end of a run, so a later run
+ * on a new JVM or after a code change can be compared with it (see BenchmarkReport). A
+ * store holds the environment the results were measured in and one record per measured
+ * combination of algorithm, input distribution and array size, including every
+ * per-iteration sample, so the whole timing distribution is kept rather than only the mean.
+ *
+ * Stores are saved as small tab-separated text files:
+ * <pre>
+ *   #sortbench-results v1
+ *   &#64;jvm      OpenJDK 64-Bit Server VM 21.0.1+12-LTS
+ *   &#64;cpu      Intel(R) Xeon(R) CPU @ 2.20GHz x8
+ *   &#64;os       Linux amd64
+ *   &#64;created  2026-10-18T09:30:00Z
+ *   QuickSort  uniform  400  0.008  11670.31,11702.5,11655.02
+ * </pre>
+ * Each record line holds the algorithm, the distribution, the size, the bytes allocated
+ * per operation and the comma-separated samples in nanoseconds per operation.
+ */
+public final class BenchmarkStore {
+
+    // First line of every result file, naming the format and its version
+    private static final String FORMAT_HEADER = "#sortbench-results v1";
+
+    /**
+     * The machine and JVM a set of results was measured on.
+     */
+    public static final class Environment {
+        private final String jvm;
+        private final String cpu;
+        private final String os;
+        private final String created;
+
+        public Environment(String jvm, String cpu, String os, String created) {
+            this.jvm = jvm;
+            this.cpu = cpu;
+            this.os = os;
+            this.created = created;
+        }
+
+        /**
+         * Describes the running JVM and machine. The CPU model is read from /proc/cpuinfo
+         * where it exists; elsewhere only the architecture is known. Results measured with
+         * the sort counters compiled out say so in the JVM description.
+         *
+         * @return The current environment.
+         */
+        public static Environment current() {
+            String jvm = System.getProperty("java.vm.name") + " " + System.getProperty("java.runtime.version");
+            if (!SortMetrics.ENABLED) {
+                jvm += " -Dsort.metrics=false";
+            }
+            String os = System.getProperty("os.name") + " " + System.getProperty("os.arch");
+            String cpu = System.getProperty("os.arch");
+            try (BufferedReader reader = Files.newBufferedReader(Path.of("/proc/cpuinfo"), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("model name")) {
+                        cpu = line.substring(line.indexOf(':') + 1).trim();
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                // Not Linux, or not readable: keep the architecture
+            }
+            cpu += " x" + Runtime.getRuntime().availableProcessors();
+            return new Environment(jvm, cpu, os, Instant.now().toString());
+        }
+
+        public String getJvm() {
+            return jvm;
+        }
+
+        public String getCpu() {
+            return cpu;
+        }
+
+        public String getOs() {
+            return os;
+        }
+
+        public String getCreated() {
+            return created;
+        }
+
+        /**
+         * Reports whether results from the two environments are directly comparable.
+         *
+         * @param other The other environment.
+         * @return True if the JVM, CPU and operating system are all the same.
+         */
+        public boolean sameMachineAndJvm(Environment other) {
+            return jvm.equals(other.jvm) && cpu.equals(other.cpu) && os.equals(other.os);
+        }
+    }
+
+    /**
+     * The samples of one algorithm on one distribution and size.
+     */
+    public static final class Record {
+        private final String algorithm;
+        private final String distribution;
+        private final int size;
+        private final double allocatedBytesPerOp;
+        private final double[] samples;
+
+        public Record(String algorithm, String distribution, int size, double allocatedBytesPerOp, double[] samples) {
+            this.algorithm = algorithm;
+            this.distribution = distribution;
+            this.size = size;
+            this.allocatedBytesPerOp = allocatedBytesPerOp;
+            this.samples = samples.clone();
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public String getDistribution() {
+            return distribution;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public double getAllocatedBytesPerOp() {
+            return allocatedBytesPerOp;
+        }
+
+        /** @return The per-iteration samples, in nanoseconds per operation. */
+        public double[] getSamples() {
+            return samples.clone();
+        }
+
+        /** @return The mean time per operation in nanoseconds. */
+        public double getScore() {
+            return BenchmarkStatistics.mean(samples);
+        }
+
+        /** @return The name identifying the combination, such as "QuickSort(uniform,400)". */
+        public String getKey() {
+            return String.format("%s(%s,%d)", algorithm, distribution, size);
+        }
+    }
+
+    private final Environment environment;
+    private final List<Record> records = new ArrayList<>();
+
+    /**
+     * Creates an empty store for results measured in the given environment.
+     *
+     * @param environment The environment, normally Environment.current().
+     */
+    public BenchmarkStore(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Adds the result of one harness measurement.
+     *
+     * @param algorithm    The display name of the algorithm.
+     * @param distribution The name of the input distribution.
+     * @param size         The array size.
+     * @param result       The measured result.
+     */
+    public void add(String algorithm, String distribution, int size, BenchmarkHarness.Result result) {
+        records.add(new Record(algorithm, distribution, size, result.getAllocatedBytesPerOp(), result.getSamples()));
+    }
+
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    /** @return The records in the order they were added or read. */
+    public List<Record> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * Finds the record of a combination.
+     *
+     * @param key The key of the record, as returned by Record.getKey.
+     * @return The record, or null if this store has none for that combination.
+     */
+    public Record find(String key) {
+        for (Record record : records) {
+            if (record.getKey().equals(key)) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the store to a file, replacing any file already there.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(FORMAT_HEADER);
+            writer.newLine();
+            writeProperty(writer, "jvm", environment.jvm);
+            writeProperty(writer, "cpu", environment.cpu);
+            writeProperty(writer, "os", environment.os);
+            writeProperty(writer, "created", environment.created);
+            for (Record record : records) {
+                StringBuilder line = new StringBuilder();
+                line.append(clean(record.algorithm)).append('\t')
+                        .append(clean(record.distribution)).append('\t')
+                        .append(record.size).append('\t')
+                        .append(record.allocatedBytesPerOp).append('\t');
+                for (int index = 0; index < record.samples.length; index++) {
+                    if (index > 0) line.append(',');
+                    line.append(record.samples[index]);
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Reads a store written by save.
+     *
+     * @param file The file to read.
+     * @return The store.
+     * @throws IOException If the file cannot be read or is not a result file.
+     */
+    public static BenchmarkStore load(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(FORMAT_HEADER)) {
+            throw new IOException(file + " is not a benchmark result file");
+        }
+        String jvm = "";
+        String cpu = "";
+        String os = "";
+        String created = "";
+        List<Record> records = new ArrayList<>();
+        for (int lineNumber = 2; lineNumber <= lines.size(); lineNumber++) {
+            String line = lines.get(lineNumber - 1);
+            if (line.isEmpty()) continue;
+            String[] fields = line.split("\t", -1);
+            try {
+                if (line.startsWith("@")) {
+                    String value = fields.length > 1 ? fields[1] : "";
+                    switch (fields[0]) {
+                        case "@jvm" -> jvm = value;
+                        case "@cpu" -> cpu = value;
+                        case "@os" -> os = value;
+                        case "@created" -> created = value;
+                        default -> {
+                            // Properties added by later versions are ignored
+                        }
+                    }
+                    continue;
+                }
+                if (fields.length != 5) {
+                    throw new IOException("expected 5 fields but found " + fields.length);
+                }
+                String[] sampleFields = fields[4].split(",");
+                double[] samples = new double[sampleFields.length];
+                for (int index = 0; index < samples.length; index++) {
+                    samples[index] = Double.parseDouble(sampleFields[index]);
+                }
+                records.add(new Record(fields[0], fields[1], Integer.parseInt(fields[2]),
+                        Double.parseDouble(fields[3]), samples));
+            } catch (NumberFormatException | IOException e) {
+                throw new IOException(file + ":" + lineNumber + ": malformed record: " + e.getMessage(), e);
+            }
+        }
+        BenchmarkStore store = new BenchmarkStore(new Environment(jvm, cpu, os, created));
+        store.records.addAll(records);
+        return store;
+    }
+
+    private static void writeProperty(BufferedWriter writer, String name, String value) throws IOException {
+        writer.write("@" + name + "\t" + clean(value));
+        writer.newLine();
+    }
+
+    private static String clean(String value) {
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
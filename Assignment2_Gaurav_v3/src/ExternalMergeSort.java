@@ -0,0 +1,525 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * The ExternalMergeSort class sorts a binary file of 32-bit ints that may be far larger
+ * than the heap. It works in two phases:
+ * <ol>
+ *   <li>Run formation: the input is read window by window through one direct buffer, each
+ *       window of at most runSize ints is copied into one reused int[] and sorted with
+ *       one of the in-memory sorts of SortAlgorithm, and the sorted run is written to a
+ *       temporary file.</li>
+ *   <li>Merge: at most MAX_FAN_IN runs are merged at a time through a primitive min-heap
+ *       of (value, run) pairs, each run read through its own small buffer. While there are
+ *       more runs than that, groups of them are merged into longer runs in extra passes;
+ *       the last pass writes the output file.</li>
+ * </ol>
+ * No file is memory-mapped, so the number of runs is not limited by the number of
+ * mappings the operating system allows, and run files can be deleted as soon as they are
+ * merged. A run size so small that the input would make more than MAX_RUNS runs is raised
+ * to the smallest size that does not.
+ * While reading the input and writing the output, the class keeps the same running sum
+ * that SortingPerformance.calculateChecksum computes, so the output can be checked
+ * against the input without ever loading either into memory.
+ *
+ * Usage:
+ * <pre>
+ *   java ExternalMergeSort input.bin output.bin [--run-size=16_777_216] [--algorithm=LsdRadixSort]
+ *                          [--order=big|little] [--generate=COUNT]
+ * </pre>
+ * With --generate the input file is first filled with COUNT random ints.
+ */
+public class ExternalMergeSort {
+
+    // Default number of ints sorted in memory per run (64 MB of int data)
+    public static final int DEFAULT_RUN_SIZE = 1 << 24;
+
+    // Size of the direct buffers used to read the input and to write runs and output
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    // Size of the buffer each run is read through while it is merged
+    private static final int RUN_BUFFER_BYTES = 1 << 16;
+
+    // Largest number of runs merged at once, bounding open files and buffer memory
+    public static final int MAX_FAN_IN = 128;
+
+    // Largest number of runs formed from one input; smaller run sizes are raised to match
+    public static final int MAX_RUNS = 1 << 16;
+
+    // Seed used by --generate so generated inputs are reproducible
+    private static final long RANDOM_SEED = 123456;
+
+    /**
+     * The figures reported by one external sort.
+     */
+    public static final class Statistics {
+        long elements;
+        int runs;
+        int runSize;
+        int mergePasses;
+        long bytesRead;
+        long bytesWritten;
+        long comparisons;
+        long inputChecksum;
+        long outputChecksum;
+        boolean outputSorted = true;
+        long runFormationNanos;
+        long mergeNanos;
+
+        public long getElements() {
+            return elements;
+        }
+
+        public int getRuns() {
+            return runs;
+        }
+
+        /** @return The number of ints per run actually used, after raising a run size that is too small. */
+        public int getRunSize() {
+            return runSize;
+        }
+
+        /** @return The number of passes over the data the merge took. */
+        public int getMergePasses() {
+            return mergePasses;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public long getComparisons() {
+            return comparisons;
+        }
+
+        public long getInputChecksum() {
+            return inputChecksum;
+        }
+
+        public long getOutputChecksum() {
+            return outputChecksum;
+        }
+
+        /** @return True if every output value was at least the value written before it. */
+        public boolean isOutputSorted() {
+            return outputSorted;
+        }
+
+        /** @return The merge throughput in MB of input per second. */
+        public double getMergeThroughputMbPerSec() {
+            return mergeNanos == 0 ? 0.0 : (elements * (double) Integer.BYTES / (1024.0 * 1024.0)) / (mergeNanos / 1e9);
+        }
+
+        /**
+         * Prints the statistics in the same plain style as the results tables.
+         */
+        public void print() {
+            System.out.println("External Merge Sort Results");
+            System.out.println("==============================================================");
+            System.out.printf("%-24s %d\n", "Elements", elements);
+            System.out.printf("%-24s %d\n", "Runs", runs);
+            System.out.printf("%-24s %d\n", "Run size", runSize);
+            System.out.printf("%-24s %d\n", "Merge passes", mergePasses);
+            System.out.printf("%-24s %d\n", "Bytes read", bytesRead);
+            System.out.printf("%-24s %d\n", "Bytes written", bytesWritten);
+            System.out.printf("%-24s %d\n", "Comparisons", comparisons);
+            System.out.printf("%-24s %.3f\n", "Run formation (ms)", runFormationNanos / 1_000_000.0);
+            System.out.printf("%-24s %.3f\n", "Merge (ms)", mergeNanos / 1_000_000.0);
+            System.out.printf("%-24s %.1f\n", "Merge throughput (MB/s)", getMergeThroughputMbPerSec());
+            System.out.printf("%-24s %d\n", "Input checksum", inputChecksum);
+            System.out.printf("%-24s %d\n", "Output checksum", outputChecksum);
+            System.out.printf("%-24s %s\n", "Verified",
+                    outputSorted && inputChecksum == outputChecksum ? "yes" : "NO");
+            System.out.println();
+        }
+    }
+
+    private final int runSize;
+    private final SortAlgorithm runSorter;
+    private final ByteOrder byteOrder;
+
+    /**
+     * Creates an external sorter.
+     *
+     * @param runSize   The number of ints sorted in memory at a time.
+     * @param runSorter The in-memory sort applied to every run.
+     * @param byteOrder The byte order of the input, the runs and the output.
+     */
+    public ExternalMergeSort(int runSize, SortAlgorithm runSorter, ByteOrder byteOrder) {
+        if (runSize < 1) {
+            throw new IllegalArgumentException("Run size must be positive: " + runSize);
+        }
+        this.runSize = runSize;
+        this.runSorter = runSorter;
+        this.byteOrder = byteOrder;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java ExternalMergeSort input.bin output.bin [--run-size=N] [--algorithm=NAME]"
+                    + " [--order=big|little] [--generate=COUNT]");
+            return;
+        }
+        Path input = Paths.get(args[0]);
+        Path output = Paths.get(args[1]);
+        String[] optionArgs = new String[args.length - 2];
+        System.arraycopy(args, 2, optionArgs, 0, optionArgs.length);
+        Map<String, String> options = SortBenchmark.parseOptions(optionArgs);
+
+        ByteOrder order = options.getOrDefault("order", "big").equalsIgnoreCase("little")
+                ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        if (options.containsKey("generate")) {
+            long count = Long.parseLong(options.get("generate").replace("_", ""));
+            writeRandomInts(input, count, order);
+        }
+        int runSize = Integer.parseInt(options.getOrDefault("run-size", String.valueOf(DEFAULT_RUN_SIZE)).replace("_", ""));
+        SortAlgorithm algorithm = SortAlgorithm.fromName(options.getOrDefault("algorithm", "LsdRadixSort"));
+
+        Statistics statistics = new ExternalMergeSort(runSize, algorithm, order).sort(input, output);
+        statistics.print();
+    }
+
+    /**
+     * Sorts the ints of the input file into the output file.
+     *
+     * @param input  A file whose length is a multiple of four bytes.
+     * @param output The file to create or replace with the sorted ints.
+     * @return The statistics of the sort.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public Statistics sort(Path input, Path output) throws IOException {
+        Statistics statistics = new Statistics();
+        Path runDirectory = Files.createTempDirectory(output.toAbsolutePath().getParent(), "runs");
+        List<Path> runFiles = new ArrayList<>();
+        try {
+            long runStart = System.nanoTime();
+            formRuns(input, runDirectory, runFiles, statistics);
+            statistics.runFormationNanos = System.nanoTime() - runStart;
+
+            long mergeStart = System.nanoTime();
+            mergeRuns(runDirectory, runFiles, output, statistics);
+            statistics.mergeNanos = System.nanoTime() - mergeStart;
+        } finally {
+            // Intermediate runs of an interrupted merge are in the directory as well
+            try (Stream<Path> leftovers = Files.list(runDirectory)) {
+                for (Path runFile : (Iterable<Path>) leftovers::iterator) {
+                    Files.deleteIfExists(runFile);
+                }
+            }
+            Files.deleteIfExists(runDirectory);
+        }
+        return statistics;
+    }
+
+    private void formRuns(Path input, Path runDirectory, List<Path> runFiles, Statistics statistics) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % Integer.BYTES != 0) {
+                throw new IOException("Input length " + size + " is not a multiple of " + Integer.BYTES + " bytes");
+            }
+            long totalInts = size / Integer.BYTES;
+            long smallestRunSize = (totalInts + MAX_RUNS - 1) / MAX_RUNS;
+            if (smallestRunSize > Integer.MAX_VALUE - 8) {
+                throw new IOException("Input of " + totalInts + " ints needs runs larger than an int[] can hold");
+            }
+            int effectiveRunSize = (int) Math.max(runSize, smallestRunSize);
+            statistics.runSize = effectiveRunSize;
+            int[] runBuffer = new int[(int) Math.min(effectiveRunSize, Math.max(1, totalInts))];
+            ByteBuffer readBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(byteOrder);
+            ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(byteOrder);
+
+            for (long first = 0; first < totalInts; first += effectiveRunSize) {
+                int count = (int) Math.min(effectiveRunSize, totalInts - first);
+                readInts(channel, readBuffer, runBuffer, count);
+                statistics.bytesRead += (long) count * Integer.BYTES;
+                for (int index = 0; index < count; index++) {
+                    statistics.inputChecksum += runBuffer[index];
+                }
+
+                int[] run = count == runBuffer.length ? runBuffer : Arrays.copyOf(runBuffer, count);
+                statistics.comparisons += runSorter.sort(run);
+
+                Path runFile = runDirectory.resolve("run-" + runFiles.size() + ".bin");
+                runFiles.add(runFile);
+                try (FileChannel runChannel = FileChannel.open(runFile, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    statistics.bytesWritten += writeInts(runChannel, writeBuffer, run, count);
+                }
+                statistics.runs++;
+            }
+            statistics.elements = totalInts;
+        }
+    }
+
+    /**
+     * Merges the runs MAX_FAN_IN at a time into longer runs until at most MAX_FAN_IN are
+     * left, then merges those into the output. Every merged run file is deleted straight away.
+     */
+    private void mergeRuns(Path runDirectory, List<Path> runFiles, Path output, Statistics statistics) throws IOException {
+        List<Path> runs = new ArrayList<>(runFiles);
+        int nextRunNumber = runs.size();
+        while (runs.size() > MAX_FAN_IN) {
+            List<Path> merged = new ArrayList<>();
+            for (int first = 0; first < runs.size(); first += MAX_FAN_IN) {
+                List<Path> group = runs.subList(first, Math.min(first + MAX_FAN_IN, runs.size()));
+                Path mergedRun = runDirectory.resolve("run-" + nextRunNumber++ + ".bin");
+                mergeGroup(group, mergedRun, statistics, false);
+                for (Path runFile : group) {
+                    Files.delete(runFile);
+                }
+                merged.add(mergedRun);
+            }
+            runs = merged;
+            statistics.mergePasses++;
+        }
+        mergeGroup(runs, output, statistics, true);
+        statistics.mergePasses++;
+    }
+
+    /**
+     * Merges up to MAX_FAN_IN sorted run files into one file.
+     *
+     * @param isOutput True for the final merge, whose values are checked and checksummed.
+     */
+    private void mergeGroup(List<Path> runFiles, Path target, Statistics statistics, boolean isOutput) throws IOException {
+        int runCount = runFiles.size();
+        RunReader[] runs = new RunReader[runCount];
+        try (FileChannel outputChannel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (int run = 0; run < runCount; run++) {
+                runs[run] = new RunReader(runFiles.get(run), byteOrder);
+            }
+
+            // The heap holds the current head value of every unfinished run and the run it came from
+            int[] heapValues = new int[runCount];
+            int[] heapRuns = new int[runCount];
+            int heapSize = 0;
+            for (int run = 0; run < runCount; run++) {
+                if (runs[run].hasNext()) {
+                    heapValues[heapSize] = runs[run].next();
+                    heapRuns[heapSize] = run;
+                    heapSize++;
+                }
+            }
+            for (int parent = heapSize / 2 - 1; parent >= 0; parent--) {
+                statistics.comparisons += siftDown(heapValues, heapRuns, parent, heapSize);
+            }
+
+            ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(byteOrder);
+            IntBuffer writeInts = writeBuffer.asIntBuffer();
+            boolean first = true;
+            int previous = 0;
+            while (heapSize > 0) {
+                int value = heapValues[0];
+                RunReader source = runs[heapRuns[0]];
+                if (source.hasNext()) {
+                    heapValues[0] = source.next();
+                } else {
+                    heapSize--;
+                    heapValues[0] = heapValues[heapSize];
+                    heapRuns[0] = heapRuns[heapSize];
+                }
+                statistics.comparisons += siftDown(heapValues, heapRuns, 0, heapSize);
+
+                if (isOutput) {
+                    if (!first && value < previous) {
+                        statistics.outputSorted = false;
+                    }
+                    first = false;
+                    previous = value;
+                    statistics.outputChecksum += value;
+                }
+                statistics.bytesRead += Integer.BYTES;
+
+                writeInts.put(value);
+                if (!writeInts.hasRemaining()) {
+                    statistics.bytesWritten += flush(outputChannel, writeBuffer, writeInts.position());
+                    writeInts.clear();
+                }
+            }
+            statistics.bytesWritten += flush(outputChannel, writeBuffer, writeInts.position());
+        } finally {
+            for (RunReader run : runs) {
+                if (run != null) {
+                    run.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the ints of one sorted run through a small buffer of its own.
+     */
+    private static final class RunReader implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final IntBuffer ints;
+        private boolean exhausted;
+
+        RunReader(Path runFile, ByteOrder byteOrder) throws IOException {
+            this.channel = FileChannel.open(runFile, StandardOpenOption.READ);
+            this.buffer = ByteBuffer.allocateDirect(RUN_BUFFER_BYTES).order(byteOrder);
+            this.ints = buffer.asIntBuffer();
+            ints.limit(0);
+        }
+
+        boolean hasNext() throws IOException {
+            if (!ints.hasRemaining() && !exhausted) {
+                fill();
+            }
+            return ints.hasRemaining();
+        }
+
+        int next() {
+            return ints.get();
+        }
+
+        private void fill() throws IOException {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    exhausted = true;
+                    break;
+                }
+            }
+            ints.clear().limit(buffer.position() / Integer.BYTES);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static long siftDown(int[] heapValues, int[] heapRuns, int parent, int heapSize) {
+        long comparisons = 0;
+        int value = heapValues[parent];
+        int run = heapRuns[parent];
+        int child;
+        while ((child = 2 * parent + 1) < heapSize) {
+            if (child + 1 < heapSize) {
+                comparisons++;
+                if (heapValues[child + 1] < heapValues[child]) {
+                    child++;
+                }
+            }
+            comparisons++;
+            if (heapValues[child] >= value) break;
+            heapValues[parent] = heapValues[child];
+            heapRuns[parent] = heapRuns[child];
+            parent = child;
+        }
+        heapValues[parent] = value;
+        heapRuns[parent] = run;
+        return comparisons;
+    }
+
+    private static long writeInts(FileChannel channel, ByteBuffer writeBuffer, int[] values, int count) throws IOException {
+        IntBuffer ints = writeBuffer.clear().asIntBuffer();
+        long written = 0;
+        for (int offset = 0; offset < count; ) {
+            int chunk = Math.min(ints.capacity(), count - offset);
+            ints.clear();
+            ints.put(values, offset, chunk);
+            written += flush(channel, writeBuffer, chunk);
+            offset += chunk;
+        }
+        return written;
+    }
+
+    private static long flush(FileChannel channel, ByteBuffer writeBuffer, int intCount) throws IOException {
+        writeBuffer.clear().limit(intCount * Integer.BYTES);
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+        return (long) intCount * Integer.BYTES;
+    }
+
+    /**
+     * Reads the next count ints of a channel into the start of values, through readBuffer.
+     */
+    private static void readInts(FileChannel channel, ByteBuffer readBuffer, int[] values, int count) throws IOException {
+        IntBuffer ints = readBuffer.clear().asIntBuffer();
+        for (int offset = 0; offset < count; ) {
+            int chunk = Math.min(ints.capacity(), count - offset);
+            readBuffer.clear().limit(chunk * Integer.BYTES);
+            while (readBuffer.hasRemaining()) {
+                if (channel.read(readBuffer) < 0) {
+                    throw new IOException("Input ended " + (count - offset) * Integer.BYTES + " bytes early");
+                }
+            }
+            ints.clear();
+            ints.get(values, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Calculates the checksum of a file of ints without loading it, reading it block by
+     * block. The result equals SortingPerformance.calculateChecksum of the same values.
+     *
+     * @param file      The file to checksum.
+     * @param byteOrder The byte order of the file.
+     * @return The sum of all ints in the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long calculateFileChecksum(Path file, ByteOrder byteOrder) throws IOException {
+        long checksumTotal = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer readBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(byteOrder);
+            int[] block = new int[WRITE_BUFFER_BYTES / Integer.BYTES];
+            for (long remaining = channel.size() / Integer.BYTES; remaining > 0; ) {
+                int count = (int) Math.min(block.length, remaining);
+                readInts(channel, readBuffer, block, count);
+                for (int index = 0; index < count; index++) {
+                    checksumTotal += block[index];
+                }
+                remaining -= count;
+            }
+        }
+        return checksumTotal;
+    }
+
+    /**
+     * Writes the given number of random ints to a file, for trying the sort out.
+     *
+     * @param file      The file to create or replace.
+     * @param count     The number of ints to write.
+     * @param byteOrder The byte order to write them in.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeRandomInts(Path file, long count, ByteOrder byteOrder) throws IOException {
+        Random random = new Random(RANDOM_SEED);
+        ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(byteOrder);
+        IntBuffer ints = writeBuffer.asIntBuffer();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (long written = 0; written < count; written++) {
+                ints.put(random.nextInt());
+                if (!ints.hasRemaining()) {
+                    flush(channel, writeBuffer, ints.position());
+                    ints.clear();
+                }
+            }
+            flush(channel, writeBuffer, ints.position());
+        }
+    }
+}
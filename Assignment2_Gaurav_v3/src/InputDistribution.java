@@ -0,0 +1,153 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The InputDistribution enum describes the shape of the data handed to the sorting
+ * benchmarks. Every distribution is generated from a seed so the same arguments always
+ * produce the same array.
+ *
+ * Besides uniform data, the distributions cover the shapes production data tends to
+ * have and that make the sorts behave very differently: already sorted or reversed
+ * input, nearly sorted input with a few misplaced elements, sorted input with an
+ * unsorted tail appended, many duplicates, Zipf-skewed values and concatenated
+ * sorted runs.
+ */
+public enum InputDistribution implements InputGenerator {
+    UNIFORM("uniform") {
+        @Override
+        public int[] generate(int size, int maxValue, long seed) {
+            int[] data = new int[size];
+            Random random = new Random(seed);
+            for (int index = 0; index < size; index++) {
+                data[index] = random.nextInt(maxValue);
+            }
+            return data;
+        }
+    },
+    SORTED("sorted") {
+        @Override
+        public int[] generate(int size, int maxValue, long seed) {
+            int[] data = UNIFORM.generate(size, maxValue, seed);
+            Arrays.sort(data);
+            return data;
+        }
+    },
+    REVERSED("reversed") {
+        @Override
+        public int[] generate(int size, int maxValue, long seed) {
+            int[] data = SORTED.generate(size, maxValue, seed);
+            for (int left = 0, right = size - 1; left < right; left++, right--) {
+                swapElements(data, left, right);
+            }
+            return data;
+        }
+    },
+    NEARLY_SORTED("nearly-sorted") {
+        @Override
+        public int[] generate(int size, int maxValue, long seed) {
+            // Sorted, then one element in a hundred swapped with a random partner
+            int[] data = SORTED.generate(size, maxValue, seed);
+            Random random = new Random(seed ^ 0x5DEECE66DL);
+            int swaps = size < 2 ? 0 : Math.max(1, size / 100);
+            for (int swap = 0; swap < swaps; swap++) {
+                swapElements(data, random.nextInt(size), random.nextInt(size));
+            }
+            return data;
+        }
+    },
+    SORTED_TAIL("sorted-tail") {
+        @Override
+        public int[] generate(int size, int maxValue, long seed) {
+            // The first nine tenths sorted, followed by an unsorted tail
+            int[] data = UNIFORM.generate(size, maxValue, seed);
+            Arrays.sort(data, 0, size - size / 10);
+            return data;
+        }
+    },
+    FEW_UNIQUE("few-unique") {
+        @Override
+        public int[] generate(int size, int maxValue, long seed) {
+            // Every element is one of eight distinct values
+            Random random = new Random(seed);
+            int[] distinctValues = new int[8];
+            for (int index = 0; index < distinctValues.length; index++) {
+                distinctValues[index] = random.nextInt(maxValue);
+            }
+            int[] data = new int[size];
+            for (int index = 0; index < size; index++) {
+                data[index] = distinctValues[random.nextInt(distinctValues.length)];
+            }
+            return data;
+        }
+    },
+    ZIPF("zipf") {
+        @Override
+        public int[] generate(int size, int maxValue, long seed) {
+            // Value k - 1 appears with probability proportional to 1 / k, for k up to min(size, maxValue)
+            int distinctValues = Math.max(1, Math.min(size, maxValue));
+            double[] cumulative = new double[distinctValues];
+            double total = 0.0;
+            for (int rank = 0; rank < distinctValues; rank++) {
+                total += 1.0 / (rank + 1);
+                cumulative[rank] = total;
+            }
+            Random random = new Random(seed);
+            int[] data = new int[size];
+            for (int index = 0; index < size; index++) {
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                data[index] = Math.min(rank < 0 ? -rank - 1 : rank, distinctValues - 1);
+            }
+            return data;
+        }
+    },
+    SORTED_RUNS("sorted-runs") {
+        @Override
+        public int[] generate(int size, int maxValue, long seed) {
+            // About sqrt(n) ascending runs of about sqrt(n) elements each
+            int[] data = UNIFORM.generate(size, maxValue, seed);
+            int runLength = Math.max(1, (int) Math.sqrt(size));
+            for (int start = 0; start < size; start += runLength) {
+                Arrays.sort(data, start, Math.min(size, start + runLength));
+            }
+            return data;
+        }
+    };
+
+    // The short name accepted on the command line and printed in results
+    private final String displayName;
+
+    InputDistribution(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Returns the short name of this distribution.
+     *
+     * @return The display name of the distribution.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    private static void swapElements(int[] data, int first, int second) {
+        int temp = data[first];
+        data[first] = data[second];
+        data[second] = temp;
+    }
+
+    /**
+     * Looks up a distribution by its display name or constant name, ignoring case.
+     *
+     * @param name The name to look up.
+     * @return The matching distribution.
+     * @throws IllegalArgumentException If no distribution has that name.
+     */
+    public static InputDistribution fromName(String name) {
+        for (InputDistribution distribution : values()) {
+            if (distribution.displayName.equalsIgnoreCase(name) || distribution.name().equalsIgnoreCase(name)) {
+                return distribution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown input distribution: " + name);
+    }
+}
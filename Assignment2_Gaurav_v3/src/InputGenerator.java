@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The InputGenerator interface is the extension point for benchmark input data. A
+ * generator turns a size, a value bound and a seed into an array, and must return the
+ * same array every time it is given the same arguments, so benchmark runs can be
+ * reproduced exactly.
+ *
+ * Generators are looked up by name. The built-in InputDistribution constants are always
+ * registered; other generators can be added with register, after which they take part
+ * in every benchmark that accepts --distributions.
+ */
+@FunctionalInterface
+public interface InputGenerator {
+
+    /**
+     * Generates a new array.
+     *
+     * @param size     The number of elements to generate.
+     * @param maxValue The exclusive upper bound of the generated values.
+     * @param seed     The seed that makes the output reproducible.
+     * @return A new array of the requested size.
+     */
+    int[] generate(int size, int maxValue, long seed);
+
+    /**
+     * Adds a generator under the given name, replacing any generator of the same name.
+     *
+     * @param name      The name used on the command line and in results.
+     * @param generator The generator.
+     */
+    static void register(String name, InputGenerator generator) {
+        Registry.GENERATORS.put(name.toLowerCase(), generator);
+    }
+
+    /**
+     * Looks up a generator by name, ignoring case.
+     *
+     * @param name The registered name, or the constant name of an InputDistribution.
+     * @return The matching generator.
+     * @throws IllegalArgumentException If no generator has that name.
+     */
+    static InputGenerator lookup(String name) {
+        InputGenerator generator = Registry.GENERATORS.get(name.toLowerCase());
+        return generator != null ? generator : InputDistribution.fromName(name);
+    }
+
+    /**
+     * Returns the names of all registered generators, in registration order.
+     *
+     * @return The generator names.
+     */
+    static List<String> names() {
+        return new ArrayList<>(Registry.GENERATORS.keySet());
+    }
+
+    /**
+     * Holds the registered generators; the built-in distributions are registered first.
+     */
+    final class Registry {
+        private static final Map<String, InputGenerator> GENERATORS = new LinkedHashMap<>();
+
+        static {
+            for (InputDistribution distribution : InputDistribution.values()) {
+                GENERATORS.put(distribution.getDisplayName(), distribution);
+            }
+        }
+
+        private Registry() {
+        }
+    }
+}
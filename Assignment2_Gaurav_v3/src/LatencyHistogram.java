@@ -0,0 +1,93 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class records latencies from many threads at once and reports
+ * their percentiles. Values are counted in log-linear buckets: every power of two is split
+ * into 16 equal sub-buckets, so a reported percentile is never more than about 6% above
+ * the true value, whatever its magnitude, and recording is a single atomic increment.
+ */
+public final class LatencyHistogram {
+
+    // Sub-buckets per power of two, and its logarithm
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Values below this are counted exactly, one bucket per value
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucketOf(Long.MAX_VALUE) + 1);
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos The latency in nanoseconds; negative values are counted as 0.
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(Math.max(0, nanos)));
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return The total count.
+     */
+    public long getCount() {
+        long total = 0;
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            total += counts.get(bucket);
+        }
+        return total;
+    }
+
+    /**
+     * Returns a percentile of the recorded latencies, as the upper edge of the bucket that
+     * holds it.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The latency in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = getCount();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return upperEdgeOf(bucket);
+            }
+        }
+        return upperEdgeOf(counts.length() - 1);
+    }
+
+    /**
+     * Formats the usual percentiles on one line, in microseconds.
+     *
+     * @return A line such as "p50 12.0us  p90 20.0us  p99 41.0us  p99.9 88.0us  max 120.0us".
+     */
+    public String summary() {
+        return String.format("p50 %.1fus  p90 %.1fus  p99 %.1fus  p99.9 %.1fus  max %.1fus",
+                getPercentile(50) / 1e3, getPercentile(90) / 1e3, getPercentile(99) / 1e3,
+                getPercentile(99.9) / 1e3, getPercentile(100) / 1e3);
+    }
+
+    private static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperEdgeOf(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        int subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        long lowerEdge = (long) (SUB_BUCKETS + subBucket) << shift;
+        return lowerEdge + (1L << shift) - 1;
+    }
+}
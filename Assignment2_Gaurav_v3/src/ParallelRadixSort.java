@@ -0,0 +1,342 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The ParallelRadixSort class is a most-significant-digit radix sort for very large int
+ * arrays that spreads its work over a fork-join pool.
+ *
+ * The first digit (the top byte, with the sign bit flipped) is distributed in three steps:
+ * every worker counts a histogram over its own chunk of the array, a prefix sum over all
+ * chunk histograms gives every chunk its own write offset inside every bucket, and the
+ * chunks then scatter into a shared auxiliary buffer in parallel without any locking.
+ * The 256 resulting buckets become independent tasks that sort the next byte the same
+ * way, and buckets small enough are finished with SortingNetworks.sortLeaf.
+ *
+ * Every task gathers the SortMetrics counts of its pool thread in its own SortMetrics and
+ * adds those of the tasks it joins, and the calling thread adds the top-level task's once
+ * the pool is done, so the counts cover the work of every thread.
+ *
+ * The per-bucket count arrays come from a ScratchArena kept by every thread that sorts
+ * buckets, and the overload taking an arena borrows the auxiliary buffer and the chunk
+ * histograms from it, so repeated sorts of the same size allocate no scratch arrays.
+ * Arrays too small to fork any task are sorted on the calling thread.
+ */
+public final class ParallelRadixSort {
+
+    // Buckets at or below this size are finished with SortingNetworks.sortLeaf
+    public static final int INSERTION_BUCKET_SIZE = 48;
+
+    // Buckets above this size are sorted as separate tasks rather than inline
+    private static final int FORK_THRESHOLD = 1 << 14;
+
+    // Number of histogram chunks handed to each worker thread
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final int DIGIT_BITS = 8;
+    private static final int RADIX = 1 << DIGIT_BITS;
+    private static final int TOP_SHIFT = Integer.SIZE - DIGIT_BITS;
+
+    // The arena of every thread that sorts buckets; an arena is not thread-safe, so each has its own
+    private static final ThreadLocal<ScratchArena> BUCKET_ARENAS = ThreadLocal.withInitial(ScratchArena::new);
+
+    private ParallelRadixSort() {
+    }
+
+    /**
+     * Sorts the array on the common fork-join pool.
+     *
+     * @param inputArray The array containing numbers that need to be sorted, of any sign.
+     * @return The number of operations: one per element counted or scattered at every
+     *         digit level, plus the comparisons of the insertion-sorted buckets.
+     */
+    public static long parallelRadixSort(int[] inputArray) {
+        return parallelRadixSort(inputArray, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sorts the array on the given fork-join pool.
+     *
+     * @param inputArray The array containing numbers that need to be sorted, of any sign.
+     * @param pool       The pool that runs the histogram, scatter and bucket tasks.
+     * @return The number of operations, as described for parallelRadixSort(int[]).
+     */
+    public static long parallelRadixSort(int[] inputArray, ForkJoinPool pool) {
+        int length = inputArray.length;
+        if (length <= INSERTION_BUCKET_SIZE) {
+            return SortingNetworks.sortLeaf(inputArray, 0, length - 1);
+        }
+        int chunks = chunkCount(length, pool);
+        return parallelRadixSort(inputArray, new int[length], new int[chunks * RADIX], new int[RADIX + 1], chunks, pool);
+    }
+
+    /**
+     * Sorts the array on the common fork-join pool, borrowing the auxiliary buffer and the
+     * chunk histograms from the arena. Only the calling thread touches the arena.
+     *
+     * @param inputArray The array containing numbers that need to be sorted, of any sign.
+     * @param arena      The arena that lends the scratch arrays.
+     * @return The number of operations, as described for parallelRadixSort(int[]).
+     */
+    public static long parallelRadixSort(int[] inputArray, ScratchArena arena) {
+        int length = inputArray.length;
+        if (length <= INSERTION_BUCKET_SIZE) {
+            return SortingNetworks.sortLeaf(inputArray, 0, length - 1);
+        }
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunks = chunkCount(length, pool);
+        int[] auxiliaryArr = arena.acquire(length);
+        int[] chunkCounts = arena.acquire(chunks * RADIX);
+        int[] bucketStarts = arena.acquire(RADIX + 1);
+        try {
+            Arrays.fill(chunkCounts, 0, chunks * RADIX, 0);
+            return parallelRadixSort(inputArray, auxiliaryArr, chunkCounts, bucketStarts, chunks, pool);
+        } finally {
+            arena.release(bucketStarts);
+            arena.release(chunkCounts);
+            arena.release(auxiliaryArr);
+        }
+    }
+
+    private static int chunkCount(int length, ForkJoinPool pool) {
+        return Math.max(1, Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, length / FORK_THRESHOLD));
+    }
+
+    private static long parallelRadixSort(int[] inputArray, int[] auxiliaryArr, int[] chunkCounts, int[] bucketStarts,
+                                          int chunks, ForkJoinPool pool) {
+        int length = inputArray.length;
+        SortMetrics.countAuxiliaryBytes(((long) length + (long) chunks * RADIX) * Integer.BYTES);
+        if (length <= FORK_THRESHOLD) {
+            // No bucket is large enough to fork, so the pool would only add a hand-off
+            return sortBucket(inputArray, auxiliaryArr, 0, length - 1, TOP_SHIFT, BUCKET_ARENAS.get(), null);
+        }
+        TopLevelTask task = new TopLevelTask(inputArray, auxiliaryArr, chunkCounts, bucketStarts, chunks);
+        long operationCount = pool.invoke(task);
+        SortMetrics.current().add(task.work);
+        return operationCount;
+    }
+
+    private static int digitOf(int value, int shift) {
+        return ((value ^ Integer.MIN_VALUE) >>> shift) & (RADIX - 1);
+    }
+
+    /**
+     * Distributes the whole array by its top digit with per-chunk histograms, then sorts
+     * the buckets in parallel.
+     */
+    private static final class TopLevelTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] array;
+        private final int[] auxiliaryArr;
+        private final int[] chunkCounts;
+        private final int[] bucketStarts;
+        private final int chunks;
+        private final transient SortMetrics work = new SortMetrics();
+
+        TopLevelTask(int[] array, int[] auxiliaryArr, int[] chunkCounts, int[] bucketStarts, int chunks) {
+            this.array = array;
+            this.auxiliaryArr = auxiliaryArr;
+            this.chunkCounts = chunkCounts;
+            this.bucketStarts = bucketStarts;
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected Long compute() {
+            int length = array.length;
+            ChunkTask[] tasks = new ChunkTask[chunks];
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int from = (int) ((long) length * chunk / chunks);
+                int to = (int) ((long) length * (chunk + 1) / chunks);
+                tasks[chunk] = new ChunkTask(array, auxiliaryArr, from, to, chunkCounts, chunk * RADIX, false);
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            // Prefix sum in bucket-major order: chunk c writes bucket b after chunks 0..c-1
+            int offset = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                bucketStarts[digit] = offset;
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    int count = chunkCounts[chunk * RADIX + digit];
+                    chunkCounts[chunk * RADIX + digit] = offset;
+                    offset += count;
+                }
+            }
+            bucketStarts[RADIX] = offset;
+
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                tasks[chunk] = new ChunkTask(array, auxiliaryArr, tasks[chunk].from, tasks[chunk].to, chunkCounts, chunk * RADIX, true);
+            }
+            ForkJoinTask.invokeAll(tasks);
+            SortMetrics.countMoves(length);
+
+            BucketTask[] buckets = new BucketTask[RADIX];
+            int bucketCount = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int low = bucketStarts[digit];
+                int high = bucketStarts[digit + 1] - 1;
+                if (low <= high) {
+                    buckets[bucketCount++] = new BucketTask(array, auxiliaryArr, low, high, TOP_SHIFT - DIGIT_BITS, true);
+                }
+            }
+            long operationCount = 2L * length;
+            for (int index = 0; index < bucketCount; index++) {
+                buckets[index].fork();
+            }
+            work.takeFromThread();
+            for (int index = bucketCount - 1; index >= 0; index--) {
+                operationCount += buckets[index].join();
+                work.add(buckets[index].work);
+            }
+            return operationCount;
+        }
+    }
+
+    /**
+     * Either counts the top-digit histogram of one chunk or, once the prefix sum has turned
+     * those counts into write offsets, scatters the chunk to them.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] array;
+        private final int[] auxiliaryArr;
+        private final int from;
+        private final int to;
+        private final int[] counts;
+        private final int countBase;
+        private final boolean scatter;
+
+        ChunkTask(int[] array, int[] auxiliaryArr, int from, int to, int[] counts, int countBase, boolean scatter) {
+            this.array = array;
+            this.auxiliaryArr = auxiliaryArr;
+            this.from = from;
+            this.to = to;
+            this.counts = counts;
+            this.countBase = countBase;
+            this.scatter = scatter;
+        }
+
+        @Override
+        protected void compute() {
+            if (scatter) {
+                for (int index = from; index < to; index++) {
+                    int value = array[index];
+                    auxiliaryArr[counts[countBase + digitOf(value, TOP_SHIFT)]++] = value;
+                }
+            } else {
+                for (int index = from; index < to; index++) {
+                    counts[countBase + digitOf(array[index], TOP_SHIFT)]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts the range [low, high] of one bucket on the digits at and below the given shift.
+     */
+    private static final class BucketTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] array;
+        private final int[] auxiliaryArr;
+        private final int low;
+        private final int high;
+        private final int shift;
+        private final boolean dataInAuxiliary;
+        private final transient SortMetrics work = new SortMetrics();
+
+        BucketTask(int[] array, int[] auxiliaryArr, int low, int high, int shift, boolean dataInAuxiliary) {
+            this.array = array;
+            this.auxiliaryArr = auxiliaryArr;
+            this.low = low;
+            this.high = high;
+            this.shift = shift;
+            this.dataInAuxiliary = dataInAuxiliary;
+        }
+
+        @Override
+        protected Long compute() {
+            if (dataInAuxiliary) {
+                System.arraycopy(auxiliaryArr, low, array, low, high - low + 1);
+                SortMetrics.countMoves(high - low + 1);
+            }
+            long operationCount = sortBucket(array, auxiliaryArr, low, high, shift, BUCKET_ARENAS.get(), work);
+            work.takeFromThread();
+            return operationCount;
+        }
+    }
+
+    /**
+     * Sorts the range [bucketLow, bucketHigh] on the digits at and below the given shift,
+     * forking every sub-bucket above FORK_THRESHOLD. The count arrays are borrowed from the
+     * arena of the running thread.
+     *
+     * @param work The SortMetrics of the running task, which gathers those of the forked
+     *             tasks; it may be null only when the range is too small to fork anything.
+     */
+    private static long sortBucket(int[] array, int[] auxiliaryArr, int bucketLow, int bucketHigh, int bucketShift,
+                                   ScratchArena arena, SortMetrics work) {
+        int size = bucketHigh - bucketLow + 1;
+        if (size <= INSERTION_BUCKET_SIZE) {
+            return SortingNetworks.sortLeaf(array, bucketLow, bucketHigh);
+        }
+        if (bucketShift < 0) {
+            return 0; // every digit is equal, so the bucket holds a single repeated key
+        }
+
+        int[] counts = arena.acquire(RADIX + 1);
+        int[] next = arena.acquire(RADIX + 1);
+        try {
+            Arrays.fill(counts, 0, RADIX + 1, 0);
+            for (int index = bucketLow; index <= bucketHigh; index++) {
+                counts[digitOf(array[index], bucketShift) + 1]++;
+            }
+            if (counts[digitOf(array[bucketLow], bucketShift) + 1] == size) {
+                return size + sortBucket(array, auxiliaryArr, bucketLow, bucketHigh, bucketShift - DIGIT_BITS, arena, work);
+            }
+            for (int digit = 0; digit < RADIX; digit++) {
+                counts[digit + 1] += counts[digit];
+            }
+            System.arraycopy(counts, 0, next, 0, RADIX + 1);
+            for (int index = bucketLow; index <= bucketHigh; index++) {
+                int value = array[index];
+                auxiliaryArr[bucketLow + next[digitOf(value, bucketShift)]++] = value;
+            }
+            System.arraycopy(auxiliaryArr, bucketLow, array, bucketLow, size);
+            SortMetrics.countMoves(2L * size);
+            long operationCount = 2L * size;
+
+            BucketTask[] forked = null;
+            int forkedCount = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                int subLow = bucketLow + counts[digit];
+                int subHigh = bucketLow + counts[digit + 1] - 1;
+                if (subHigh - subLow + 1 > FORK_THRESHOLD) {
+                    if (forked == null) {
+                        forked = new BucketTask[RADIX];
+                    }
+                    BucketTask task = new BucketTask(array, auxiliaryArr, subLow, subHigh, bucketShift - DIGIT_BITS, false);
+                    task.fork();
+                    forked[forkedCount++] = task;
+                } else if (subLow < subHigh) {
+                    operationCount += sortBucket(array, auxiliaryArr, subLow, subHigh, bucketShift - DIGIT_BITS, arena, work);
+                }
+            }
+            if (forkedCount > 0) {
+                work.takeFromThread();
+            }
+            for (int index = forkedCount - 1; index >= 0; index--) {
+                operationCount += forked[index].join();
+                work.add(forked[index].work);
+            }
+            return operationCount;
+        } finally {
+            arena.release(next);
+            arena.release(counts);
+        }
+    }
+}
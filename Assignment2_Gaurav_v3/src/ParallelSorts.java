@@ -0,0 +1,323 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The ParallelSorts class provides fork-join versions of MergeSort and QuickSort for
+ * arrays large enough to keep many cores busy. Both split the array into tasks until a
+ * range is no larger than the sequential cutoff and then hand the range to the
+ * sequential helpers in SortingPerformance.
+ *
+ * Each task counts its own comparisons and returns them from compute(), and a parent
+ * adds the counts of its children when it joins them, so the total is exact without
+ * any shared counter between threads. The SortMetrics counts travel the same way: every
+ * task gathers what it counted on its pool thread in its own SortMetrics, adds those of
+ * the tasks it joins, and the calling thread adds the root task's when the pool is done.
+ */
+public final class ParallelSorts {
+
+    // Ranges at or below this many elements are sorted sequentially
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 8192;
+
+    private ParallelSorts() {
+    }
+
+    /**
+     * Sorts the array with a parallel MergeSort on the common fork-join pool.
+     *
+     * @param inputArr The array to be sorted.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long parallelMergeSort(int[] inputArr) {
+        return parallelMergeSort(inputArr, DEFAULT_SEQUENTIAL_CUTOFF, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sorts the array with a parallel MergeSort. One auxiliary buffer the size of the input
+     * is shared by every task; tasks only ever touch their own range of it. Large merges
+     * are split as well, so the final merges do not run on a single thread.
+     *
+     * @param inputArr         The array to be sorted.
+     * @param sequentialCutoff Ranges of at most this many elements are sorted sequentially.
+     * @param pool             The pool that runs the tasks.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long parallelMergeSort(int[] inputArr, int sequentialCutoff, ForkJoinPool pool) {
+        if (inputArr.length < 2) return 0;
+        return parallelMergeSort(inputArr, new int[inputArr.length], sequentialCutoff, pool);
+    }
+
+    /**
+     * Sorts the array with a parallel MergeSort on the common fork-join pool, borrowing the
+     * shared auxiliary buffer from the arena. Only the calling thread touches the arena.
+     *
+     * @param inputArr The array to be sorted.
+     * @param arena    The arena that lends the auxiliary buffer.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long parallelMergeSort(int[] inputArr, ScratchArena arena) {
+        if (inputArr.length < 2) return 0;
+        int[] auxiliaryArr = arena.acquire(inputArr.length);
+        try {
+            return parallelMergeSort(inputArr, auxiliaryArr, DEFAULT_SEQUENTIAL_CUTOFF, ForkJoinPool.commonPool());
+        } finally {
+            arena.release(auxiliaryArr);
+        }
+    }
+
+    private static long parallelMergeSort(int[] inputArr, int[] auxiliaryArr, int sequentialCutoff, ForkJoinPool pool) {
+        SortMetrics.countAuxiliaryBytes((long) inputArr.length * Integer.BYTES);
+        if (inputArr.length <= sequentialCutoff) {
+            // A single task would sort sequentially anyway, so skip the hand-off to the pool
+            return SortingPerformance.mergeSortHelper(inputArr, auxiliaryArr, 0, inputArr.length - 1, 0);
+        }
+        MergeSortTask task = new MergeSortTask(inputArr, auxiliaryArr, 0, inputArr.length - 1, Math.max(2, sequentialCutoff));
+        long comparisonCount = pool.invoke(task);
+        SortMetrics.current().add(task.work);
+        return comparisonCount;
+    }
+
+    /**
+     * Sorts the array with a parallel QuickSort on the common fork-join pool.
+     *
+     * @param inputArray The array to be sorted.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long parallelQuickSort(int[] inputArray) {
+        return parallelQuickSort(inputArray, DEFAULT_SEQUENTIAL_CUTOFF, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Sorts the array with a parallel QuickSort. Each task partitions its range three ways
+     * with the introsort pivot rule, forks the smaller side and keeps the larger one, so the
+     * same adversarial inputs that are safe for performIntroQuickSort are safe here.
+     *
+     * @param inputArray       The array to be sorted.
+     * @param sequentialCutoff Ranges of at most this many elements are sorted sequentially.
+     * @param pool             The pool that runs the tasks.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long parallelQuickSort(int[] inputArray, int sequentialCutoff, ForkJoinPool pool) {
+        if (inputArray.length < 2) return 0;
+        int depthLimit = SortingPerformance.introSortDepthLimit(inputArray.length);
+        QuickSortTask task = new QuickSortTask(inputArray, 0, inputArray.length - 1, depthLimit, Math.max(3, sequentialCutoff));
+        long comparisonCount = pool.invoke(task);
+        SortMetrics.current().add(task.work);
+        return comparisonCount;
+    }
+
+    private static final class MergeSortTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] array;
+        private final int[] auxiliaryArr;
+        private final int low;
+        private final int high;
+        private final int cutoff;
+        private final transient SortMetrics work = new SortMetrics();
+
+        MergeSortTask(int[] array, int[] auxiliaryArr, int low, int high, int cutoff) {
+            this.array = array;
+            this.auxiliaryArr = auxiliaryArr;
+            this.low = low;
+            this.high = high;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected Long compute() {
+            if (high - low + 1 <= cutoff) {
+                long comparisonCounter = SortingPerformance.mergeSortHelper(array, auxiliaryArr, low, high, 0);
+                work.takeFromThread();
+                return comparisonCounter;
+            }
+            int mid = (low + high) >>> 1;
+            MergeSortTask left = new MergeSortTask(array, auxiliaryArr, low, mid, cutoff);
+            left.fork();
+            MergeSortTask right = new MergeSortTask(array, auxiliaryArr, mid + 1, high, cutoff);
+            long comparisonCounter = right.compute();
+            work.takeFromThread();
+            comparisonCounter += left.join();
+
+            System.arraycopy(array, low, auxiliaryArr, low, high - low + 1);
+            SortMetrics.countMoves(high - low + 1);
+            MergeTask merge = new MergeTask(auxiliaryArr, array, low, mid, mid + 1, high, low, cutoff);
+            comparisonCounter += merge.compute();
+            work.add(left.work);
+            work.add(right.work);
+            work.add(merge.work);
+            work.takeFromThread();
+            return comparisonCounter;
+        }
+    }
+
+    /**
+     * Merges two sorted runs of the source array into the destination. A large merge takes
+     * the middle element of the longer run, finds its position in the shorter run with a
+     * binary search, writes it directly to its final slot and merges both sides in parallel.
+     */
+    private static final class MergeTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] source;
+        private final int[] destination;
+        private final int firstLow;
+        private final int firstHigh;
+        private final int secondLow;
+        private final int secondHigh;
+        private final int destinationLow;
+        private final int cutoff;
+        private final transient SortMetrics work = new SortMetrics();
+
+        MergeTask(int[] source, int[] destination, int firstLow, int firstHigh, int secondLow, int secondHigh,
+                  int destinationLow, int cutoff) {
+            this.source = source;
+            this.destination = destination;
+            this.firstLow = firstLow;
+            this.firstHigh = firstHigh;
+            this.secondLow = secondLow;
+            this.secondHigh = secondHigh;
+            this.destinationLow = destinationLow;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected Long compute() {
+            int firstLength = firstHigh - firstLow + 1;
+            int secondLength = secondHigh - secondLow + 1;
+            if (firstLength + secondLength <= cutoff || firstLength == 0 || secondLength == 0) {
+                long comparisonCounter = sequentialMerge();
+                work.takeFromThread();
+                return comparisonCounter;
+            }
+
+            long comparisonCounter = 0;
+            int firstMid;
+            int secondMid;
+            MergeTask left;
+            MergeTask right;
+            if (firstLength >= secondLength) {
+                firstMid = (firstLow + firstHigh) >>> 1;
+                // Keys of the second run that are strictly smaller go to the left half
+                int lowIndex = secondLow;
+                int highIndex = secondHigh + 1;
+                int key = source[firstMid];
+                while (lowIndex < highIndex) {
+                    int probe = (lowIndex + highIndex) >>> 1;
+                    comparisonCounter++;
+                    if (source[probe] < key) lowIndex = probe + 1; else highIndex = probe;
+                }
+                secondMid = lowIndex;
+                int target = destinationLow + (firstMid - firstLow) + (secondMid - secondLow);
+                destination[target] = key;
+                left = new MergeTask(source, destination, firstLow, firstMid - 1, secondLow, secondMid - 1,
+                        destinationLow, cutoff);
+                right = new MergeTask(source, destination, firstMid + 1, firstHigh, secondMid, secondHigh, target + 1, cutoff);
+            } else {
+                secondMid = (secondLow + secondHigh) >>> 1;
+                // Keys of the first run that are equal stay to the left, which keeps the merge stable
+                int lowIndex = firstLow;
+                int highIndex = firstHigh + 1;
+                int key = source[secondMid];
+                while (lowIndex < highIndex) {
+                    int probe = (lowIndex + highIndex) >>> 1;
+                    comparisonCounter++;
+                    if (source[probe] <= key) lowIndex = probe + 1; else highIndex = probe;
+                }
+                firstMid = lowIndex;
+                int target = destinationLow + (firstMid - firstLow) + (secondMid - secondLow);
+                destination[target] = key;
+                left = new MergeTask(source, destination, firstLow, firstMid - 1, secondLow, secondMid - 1,
+                        destinationLow, cutoff);
+                right = new MergeTask(source, destination, firstMid, firstHigh, secondMid + 1, secondHigh, target + 1, cutoff);
+            }
+            SortMetrics.countWork(comparisonCounter, 1);
+
+            left.fork();
+            comparisonCounter += right.compute();
+            work.takeFromThread();
+            comparisonCounter += left.join();
+            work.add(left.work);
+            work.add(right.work);
+            return comparisonCounter;
+        }
+
+        private long sequentialMerge() {
+            long comparisonCounter = 0;
+            int leftIndex = firstLow;
+            int rightIndex = secondLow;
+            int currentIndex = destinationLow;
+            while (leftIndex <= firstHigh && rightIndex <= secondHigh) {
+                comparisonCounter++;
+                if (source[leftIndex] <= source[rightIndex]) {
+                    destination[currentIndex++] = source[leftIndex++];
+                } else {
+                    destination[currentIndex++] = source[rightIndex++];
+                }
+            }
+            if (leftIndex <= firstHigh) {
+                System.arraycopy(source, leftIndex, destination, currentIndex, firstHigh - leftIndex + 1);
+            } else if (rightIndex <= secondHigh) {
+                System.arraycopy(source, rightIndex, destination, currentIndex, secondHigh - rightIndex + 1);
+            }
+            SortMetrics.countWork(comparisonCounter, (firstHigh - firstLow + 1) + (secondHigh - secondLow + 1));
+            return comparisonCounter;
+        }
+    }
+
+    private static final class QuickSortTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] array;
+        private final int low;
+        private final int high;
+        private final int depthLimit;
+        private final int cutoff;
+        private final transient SortMetrics work = new SortMetrics();
+
+        QuickSortTask(int[] array, int low, int high, int depthLimit, int cutoff) {
+            this.array = array;
+            this.low = low;
+            this.high = high;
+            this.depthLimit = depthLimit;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected Long compute() {
+            int[] bounds = new int[2];
+            int rangeLow = low;
+            int rangeHigh = high;
+            int remainingDepth = depthLimit;
+            long comparisonCount = 0;
+            QuickSortTask[] forked = new QuickSortTask[Math.max(1, remainingDepth)];
+            int forkedCount = 0;
+
+            while (rangeHigh - rangeLow + 1 > cutoff && remainingDepth > 0) {
+                remainingDepth--;
+                comparisonCount += SortingPerformance.partitionThreeWay(array, rangeLow, rangeHigh, bounds);
+                int lessEnd = bounds[0];
+                int greaterStart = bounds[1];
+                QuickSortTask smaller;
+                if (lessEnd - rangeLow < rangeHigh - greaterStart) {
+                    smaller = new QuickSortTask(array, rangeLow, lessEnd - 1, remainingDepth, cutoff);
+                    rangeLow = greaterStart + 1;
+                } else {
+                    smaller = new QuickSortTask(array, greaterStart + 1, rangeHigh, remainingDepth, cutoff);
+                    rangeHigh = lessEnd - 1;
+                }
+                smaller.fork();
+                forked[forkedCount++] = smaller;
+            }
+
+            if (rangeLow < rangeHigh) {
+                comparisonCount += SortingPerformance.introSortHelper(array, rangeLow, rangeHigh, remainingDepth, bounds);
+            }
+            work.takeFromThread();
+            for (int index = forkedCount - 1; index >= 0; index--) {
+                comparisonCount += forked[index].join();
+                work.add(forked[index].work);
+            }
+            return comparisonCount;
+        }
+    }
+}
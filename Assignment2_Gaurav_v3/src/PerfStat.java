@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PerfStat class reads hardware counters such as cache misses and branch mispredicts
+ * by running the Linux perf tool against this JVM. attach starts "perf stat" on the
+ * process, stop interrupts it the way Ctrl-C would and parses the counts it prints.
+ *
+ * perf counts the whole process, so JIT and GC threads that run during the window are
+ * included, and it needs permission to read the counters (perf_event_paranoid of 2 or
+ * lower for a process of the same user). Where perf is missing, isAvailable says so and
+ * callers leave the hardware columns out.
+ */
+public final class PerfStat {
+
+    // Events counted when none are given
+    public static final String DEFAULT_EVENTS = "instructions,cache-misses,branch-misses";
+
+    // Time given to perf to attach before the measured code starts
+    private static final long ATTACH_MILLIS = 250;
+
+    // Longest wait for perf to print its counts after it is interrupted
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    private final Process process;
+
+    private PerfStat(Process process) {
+        this.process = process;
+    }
+
+    /**
+     * Reports whether perf can be run on this machine.
+     *
+     * @return True on Linux when "perf --version" succeeds.
+     */
+    public static boolean isAvailable() {
+        if (!System.getProperty("os.name").startsWith("Linux")) return false;
+        try {
+            Process probe = new ProcessBuilder("perf", "--version").redirectErrorStream(true).start();
+            probe.getInputStream().readAllBytes();
+            return probe.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS) && probe.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Starts counting the given events for this JVM.
+     *
+     * @param events A comma-separated list of perf event names, for example DEFAULT_EVENTS.
+     * @return The running counter, to be stopped with stop.
+     * @throws IOException If perf cannot be started.
+     */
+    public static PerfStat attach(String events) throws IOException {
+        String pid = Long.toString(ProcessHandle.current().pid());
+        Process process = new ProcessBuilder("perf", "stat", "-x", ",", "-e", events, "-p", pid)
+                .redirectErrorStream(true)
+                .start();
+        try {
+            Thread.sleep(ATTACH_MILLIS);
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while attaching perf", e);
+        }
+        if (!process.isAlive()) {
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            throw new IOException("perf stat exited straight away: " + output.trim());
+        }
+        return new PerfStat(process);
+    }
+
+    /**
+     * Stops counting and returns the counts.
+     *
+     * @return The count of every event perf could measure, keyed by event name in the
+     *         order perf printed them. Events the machine does not support are left out.
+     * @throws IOException If perf cannot be interrupted or does not finish.
+     */
+    public Map<String, Long> stop() throws IOException {
+        try {
+            Process interrupt = new ProcessBuilder("kill", "-INT", Long.toString(process.pid())).start();
+            interrupt.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("perf stat did not finish");
+            }
+            return parseCsv(output);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while stopping perf", e);
+        } finally {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Parses the output of "perf stat -x ,", whose lines start with the count, the unit and
+     * the event name.
+     */
+    private static Map<String, Long> parseCsv(String output) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String line : output.split("\n")) {
+            String[] fields = line.split(",");
+            if (fields.length < 3 || fields[0].isEmpty() || !Character.isDigit(fields[0].charAt(0))) {
+                continue;
+            }
+            try {
+                counts.put(fields[2].trim(), (long) Double.parseDouble(fields[0]));
+            } catch (NumberFormatException e) {
+                // "<not supported>" and similar; leave the event out
+            }
+        }
+        return counts;
+    }
+}
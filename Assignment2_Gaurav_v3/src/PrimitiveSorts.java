@@ -0,0 +1,737 @@
+/**
+ * The PrimitiveSorts class provides the quick, merge and radix sorts of SortingPerformance
+ * for long[] and double[] arrays, and an argsort that orders an int[] index array by the
+ * keys it points at. Everything works on the primitive arrays directly, so sorting 64-bit
+ * timestamps, measurements or records by key never boxes a value.
+ *
+ * Doubles are sorted in the total order of Double.compare, the same order as
+ * Arrays.sort(double[]): -0.0 sorts before 0.0 and every NaN sorts after positive
+ * infinity. The radix sorts order doubles by their sortable bits (see toSortableBits),
+ * which is the same order again, and move the original values, so NaN payloads survive.
+ *
+ * Like the int sorts, every method sorts in place and returns the number of comparisons
+ * (or, for the radix sorts, element operations) it counted. They also add their
+ * comparisons, moves and scratch space to SortMetrics, counted as the int sorts count
+ * them, and every public sorting method is bracketed by SortMetrics.begin and end, so it
+ * emits a SortEvent during a Flight Recorder recording just like a sort run through
+ * SortAlgorithm.
+ */
+public final class PrimitiveSorts {
+
+    // Ranges at or below this size are finished with insertion sort by the quicksorts
+    private static final int INSERTION_SORT_CUTOFF = 16;
+
+    // Digit width of the radix sorts: eight passes of 256 buckets each
+    private static final int RADIX_DIGIT_BITS = 8;
+    private static final int RADIX_PASSES = Long.SIZE / RADIX_DIGIT_BITS;
+    private static final int RADIX_MASK = (1 << RADIX_DIGIT_BITS) - 1;
+
+    private PrimitiveSorts() {
+    }
+
+    /**
+     * Maps a double to a long whose signed order is the total order of Double.compare. All
+     * NaNs map to the same key.
+     *
+     * @param value The double to map.
+     * @return The sortable key.
+     */
+    public static long toSortableBits(double value) {
+        long bits = Double.doubleToLongBits(value);
+        // Negative values have their magnitude bits flipped so that larger magnitudes sort lower
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Turns a key made by toSortableBits back into its double.
+     *
+     * @param key The sortable key.
+     * @return The double it was made from.
+     */
+    public static double fromSortableBits(long key) {
+        return Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE));
+    }
+
+    // ---------------------------------------------------------------- long[]
+
+    /**
+     * This function sorts a long array with the introsort used by performIntroQuickSort:
+     * three-way partitioning around a median-of-three pivot (Tukey's ninther above
+     * SortingPerformance.NINTHER_THRESHOLD), HeapSort once the depth exceeds 2 log2(n),
+     * and InsertionSort for small ranges.
+     *
+     * @param inputArray The array to sort.
+     * @return The total count of comparisons made during the sorting process.
+     */
+    public static long performQuickSort(long[] inputArray) {
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        long comparisonCount = inputArray.length < 2 ? 0
+                : introSort(inputArray, 0, inputArray.length - 1, SortingPerformance.introSortDepthLimit(inputArray.length));
+        SortMetrics.end(event, "QuickSort(long[])", inputArray.length);
+        return comparisonCount;
+    }
+
+    private static long introSort(long[] array, int low, int high, int depthLimit) {
+        long comparisonCount = 0;
+        while (high - low + 1 > INSERTION_SORT_CUTOFF) {
+            if (depthLimit == 0) {
+                return comparisonCount + heapSort(array, low, high);
+            }
+            depthLimit--;
+            long comparisonsBefore = comparisonCount;
+
+            long pivotValue;
+            int size = high - low + 1;
+            int mid = low + (size >>> 1);
+            if (size > SortingPerformance.NINTHER_THRESHOLD) {
+                int step = size / 8;
+                pivotValue = medianOfThree(medianOfThree(array[low], array[low + step], array[low + 2 * step]),
+                        medianOfThree(array[mid - step], array[mid], array[mid + step]),
+                        medianOfThree(array[high - 2 * step], array[high - step], array[high]));
+                comparisonCount += 12;
+            } else {
+                pivotValue = medianOfThree(array[low], array[mid], array[high]);
+                comparisonCount += 3;
+            }
+
+            // [low, lessEnd) < pivot, [lessEnd, current) == pivot, (greaterStart, high] > pivot
+            int lessEnd = low;
+            int greaterStart = high;
+            int current = low;
+            while (current <= greaterStart) {
+                long value = array[current];
+                comparisonCount++;
+                if (value < pivotValue) {
+                    array[current++] = array[lessEnd];
+                    array[lessEnd++] = value;
+                } else {
+                    comparisonCount++;
+                    if (value > pivotValue) {
+                        array[current] = array[greaterStart];
+                        array[greaterStart--] = value;
+                    } else {
+                        current++;
+                    }
+                }
+            }
+
+            // Every key that went left or right was moved with two writes
+            SortMetrics.countWork(comparisonCount - comparisonsBefore, 2L * (lessEnd - low + high - greaterStart));
+            if (lessEnd - low < high - greaterStart) {
+                comparisonCount += introSort(array, low, lessEnd - 1, depthLimit);
+                low = greaterStart + 1;
+            } else {
+                comparisonCount += introSort(array, greaterStart + 1, high, depthLimit);
+                high = lessEnd - 1;
+            }
+        }
+        return comparisonCount + insertionSort(array, low, high);
+    }
+
+    private static long medianOfThree(long a, long b, long c) {
+        boolean aBelowB = a < b;
+        if (aBelowB == (b < c)) return b;
+        return aBelowB == (a < c) ? c : a;
+    }
+
+    private static long insertionSort(long[] array, int low, int high) {
+        long comparisonCounter = 0;
+        long moveCounter = 0;
+        for (int index = low + 1; index <= high; index++) {
+            long currentElement = array[index];
+            int position = index;
+            while (position > low && array[position - 1] > currentElement) {
+                array[position] = array[position - 1];
+                position--;
+            }
+
+            // One comparison per shift, plus the one that stopped the scan unless it ran off the start
+            int shifts = index - position;
+            comparisonCounter += position > low ? shifts + 1 : shifts;
+            moveCounter += shifts;
+            array[position] = currentElement;
+        }
+        SortMetrics.countWork(comparisonCounter, moveCounter + Math.max(0, high - low));
+        return comparisonCounter;
+    }
+
+    private static long heapSort(long[] array, int low, int high) {
+        long comparisonCount = 0;
+        long[] moveCount = new long[1]; // Filled by siftDown, so the thread's counters are looked up once
+        int size = high - low + 1;
+        for (int parent = size / 2 - 1; parent >= 0; parent--) {
+            comparisonCount += siftDown(array, low, parent, size, moveCount);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            long temp = array[low];
+            array[low] = array[low + end];
+            array[low + end] = temp;
+            comparisonCount += siftDown(array, low, 0, end, moveCount);
+        }
+        SortMetrics.countWork(comparisonCount, 2L * (size - 1) + moveCount[0]);
+        return comparisonCount;
+    }
+
+    private static long siftDown(long[] array, int offset, int parent, int size, long[] moveCount) {
+        long comparisonCount = 0;
+        long moves = 1;
+        long value = array[offset + parent];
+        int child;
+        while ((child = 2 * parent + 1) < size) {
+            if (child + 1 < size) {
+                comparisonCount++;
+                if (array[offset + child + 1] > array[offset + child]) {
+                    child++;
+                }
+            }
+            comparisonCount++;
+            if (array[offset + child] <= value) break;
+            array[offset + parent] = array[offset + child];
+            parent = child;
+            moves++;
+        }
+        array[offset + parent] = value;
+        moveCount[0] += moves;
+        return comparisonCount;
+    }
+
+    /**
+     * This function sorts a long array with the top-down MergeSort of executeMergeSort.
+     *
+     * @param inputArr The array to be sorted.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long executeMergeSort(long[] inputArr) {
+        return executeMergeSort(inputArr, new long[inputArr.length]);
+    }
+
+    /**
+     * This function sorts a long array with MergeSort, merging through a caller-supplied
+     * auxiliary array.
+     *
+     * @param inputArr     The array to be sorted.
+     * @param auxiliaryArr A buffer at least as long as inputArr; its contents are overwritten.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long executeMergeSort(long[] inputArr, long[] auxiliaryArr) {
+        if (auxiliaryArr.length < inputArr.length) {
+            throw new IllegalArgumentException("Auxiliary array is shorter than the input");
+        }
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        SortMetrics.countAuxiliaryBytes((long) inputArr.length * Long.BYTES);
+        long comparisonCount = mergeSort(inputArr, auxiliaryArr, 0, inputArr.length - 1);
+        SortMetrics.end(event, "MergeSort(long[])", inputArr.length);
+        return comparisonCount;
+    }
+
+    private static long mergeSort(long[] array, long[] auxArr, int start, int end) {
+        if (start >= end) return 0;
+        int mid = (start + end) >>> 1;
+        long comparisonCounter = mergeSort(array, auxArr, start, mid) + mergeSort(array, auxArr, mid + 1, end);
+        System.arraycopy(array, start, auxArr, start, end - start + 1);
+        long mergeComparisons = 0;
+        int leftIndex = start, rightIndex = mid + 1, currentIndex = start;
+        while (leftIndex <= mid && rightIndex <= end) {
+            mergeComparisons++;
+            array[currentIndex++] = auxArr[leftIndex] <= auxArr[rightIndex] ? auxArr[leftIndex++] : auxArr[rightIndex++];
+        }
+        System.arraycopy(auxArr, leftIndex, array, currentIndex, mid - leftIndex + 1);
+
+        // The copy into auxArr, then every write back up to where the right run stayed in place
+        SortMetrics.countWork(mergeComparisons, (end - start + 1) + (currentIndex - start) + (mid - leftIndex + 1));
+        return comparisonCounter + mergeComparisons;
+    }
+
+    /**
+     * This function sorts a long array with an LSD radix sort on 8-bit digits, in the
+     * manner of RadixSortEngine: one counting pass builds all eight histograms, passes
+     * whose digit is the same for every key are skipped, and the sign bit is flipped so
+     * negative values sort first.
+     *
+     * @param inputArray The array to sort, of any sign.
+     * @return The number of element operations: one per element for the counting pass
+     *         plus one per element for every scatter pass that was not skipped.
+     */
+    public static long performRadixSort(long[] inputArray) {
+        return performRadixSort(inputArray, new long[inputArray.length]);
+    }
+
+    /**
+     * This function sorts a long array with the LSD radix sort using a caller-supplied
+     * scratch buffer.
+     *
+     * @param inputArray The array to sort, of any sign.
+     * @param scratch    A buffer at least as long as inputArray; its contents are overwritten.
+     * @return The number of element operations, as described for performRadixSort(long[]).
+     */
+    public static long performRadixSort(long[] inputArray, long[] scratch) {
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        long operationCount = radixSort(inputArray, scratch);
+        SortMetrics.end(event, "RadixSort(long[])", inputArray.length);
+        return operationCount;
+    }
+
+    private static long radixSort(long[] inputArray, long[] scratch) {
+        int length = inputArray.length;
+        if (length < 2) return 0;
+        if (scratch.length < length) {
+            throw new IllegalArgumentException("Scratch buffer is shorter than the input");
+        }
+        SortMetrics.countAuxiliaryBytes((long) length * Long.BYTES + RADIX_PASSES * (1 << RADIX_DIGIT_BITS) * Integer.BYTES);
+        int[][] histograms = new int[RADIX_PASSES][1 << RADIX_DIGIT_BITS];
+        for (long value : inputArray) {
+            long key = value ^ Long.MIN_VALUE;
+            for (int pass = 0; pass < RADIX_PASSES; pass++) {
+                histograms[pass][(int) (key >>> (pass * RADIX_DIGIT_BITS)) & RADIX_MASK]++;
+            }
+        }
+        long operationCount = length;
+
+        long[] source = inputArray;
+        long[] destination = scratch;
+        for (int pass = 0; pass < RADIX_PASSES; pass++) {
+            int[] counts = histograms[pass];
+            int shift = pass * RADIX_DIGIT_BITS;
+            if (!toOffsets(counts, (int) ((inputArray[0] ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK, length)) {
+                continue;
+            }
+            for (int index = 0; index < length; index++) {
+                long value = source[index];
+                destination[counts[(int) ((value ^ Long.MIN_VALUE) >>> shift) & RADIX_MASK]++] = value;
+            }
+            operationCount += length;
+
+            long[] swap = source;
+            source = destination;
+            destination = swap;
+        }
+
+        if (source != inputArray) {
+            System.arraycopy(source, 0, inputArray, 0, length);
+        }
+
+        // Every scatter pass moved each element once, and so did the copy back if there was one
+        SortMetrics.countMoves(operationCount - length + (source != inputArray ? length : 0));
+        return operationCount;
+    }
+
+    /**
+     * Turns a histogram into starting offsets, unless every key falls in the same bucket.
+     *
+     * @return False if the pass can be skipped.
+     */
+    private static boolean toOffsets(int[] counts, int firstKeyDigit, int length) {
+        if (counts[firstKeyDigit] == length) {
+            return false;
+        }
+        int offset = 0;
+        for (int digit = 0; digit < counts.length; digit++) {
+            int count = counts[digit];
+            counts[digit] = offset;
+            offset += count;
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------- double[]
+
+    /**
+     * This function sorts a double array with the introsort of performQuickSort(long[]),
+     * comparing in the total order of Double.compare.
+     *
+     * @param inputArray The array to sort; it may contain NaN and signed zeros.
+     * @return The total count of comparisons made during the sorting process.
+     */
+    public static long performQuickSort(double[] inputArray) {
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        long comparisonCount = inputArray.length < 2 ? 0
+                : introSort(inputArray, 0, inputArray.length - 1, SortingPerformance.introSortDepthLimit(inputArray.length));
+        SortMetrics.end(event, "QuickSort(double[])", inputArray.length);
+        return comparisonCount;
+    }
+
+    private static long introSort(double[] array, int low, int high, int depthLimit) {
+        long comparisonCount = 0;
+        while (high - low + 1 > INSERTION_SORT_CUTOFF) {
+            if (depthLimit == 0) {
+                return comparisonCount + heapSort(array, low, high);
+            }
+            depthLimit--;
+            long comparisonsBefore = comparisonCount;
+
+            double pivotValue;
+            int size = high - low + 1;
+            int mid = low + (size >>> 1);
+            if (size > SortingPerformance.NINTHER_THRESHOLD) {
+                int step = size / 8;
+                pivotValue = medianOfThree(medianOfThree(array[low], array[low + step], array[low + 2 * step]),
+                        medianOfThree(array[mid - step], array[mid], array[mid + step]),
+                        medianOfThree(array[high - 2 * step], array[high - step], array[high]));
+                comparisonCount += 12;
+            } else {
+                pivotValue = medianOfThree(array[low], array[mid], array[high]);
+                comparisonCount += 3;
+            }
+
+            // [low, lessEnd) < pivot, [lessEnd, current) == pivot, (greaterStart, high] > pivot
+            int lessEnd = low;
+            int greaterStart = high;
+            int current = low;
+            while (current <= greaterStart) {
+                double value = array[current];
+                int order = Double.compare(value, pivotValue);
+                comparisonCount++;
+                if (order < 0) {
+                    array[current++] = array[lessEnd];
+                    array[lessEnd++] = value;
+                } else {
+                    comparisonCount++;
+                    if (order > 0) {
+                        array[current] = array[greaterStart];
+                        array[greaterStart--] = value;
+                    } else {
+                        current++;
+                    }
+                }
+            }
+
+            // Every key that went left or right was moved with two writes
+            SortMetrics.countWork(comparisonCount - comparisonsBefore, 2L * (lessEnd - low + high - greaterStart));
+            if (lessEnd - low < high - greaterStart) {
+                comparisonCount += introSort(array, low, lessEnd - 1, depthLimit);
+                low = greaterStart + 1;
+            } else {
+                comparisonCount += introSort(array, greaterStart + 1, high, depthLimit);
+                high = lessEnd - 1;
+            }
+        }
+        return comparisonCount + insertionSort(array, low, high);
+    }
+
+    private static double medianOfThree(double a, double b, double c) {
+        boolean aBelowB = Double.compare(a, b) < 0;
+        if (aBelowB == Double.compare(b, c) < 0) return b;
+        return aBelowB == Double.compare(a, c) < 0 ? c : a;
+    }
+
+    private static long insertionSort(double[] array, int low, int high) {
+        long comparisonCounter = 0;
+        long moveCounter = 0;
+        for (int index = low + 1; index <= high; index++) {
+            double currentElement = array[index];
+            int position = index;
+            while (position > low && Double.compare(array[position - 1], currentElement) > 0) {
+                array[position] = array[position - 1];
+                position--;
+            }
+
+            // One comparison per shift, plus the one that stopped the scan unless it ran off the start
+            int shifts = index - position;
+            comparisonCounter += position > low ? shifts + 1 : shifts;
+            moveCounter += shifts;
+            array[position] = currentElement;
+        }
+        SortMetrics.countWork(comparisonCounter, moveCounter + Math.max(0, high - low));
+        return comparisonCounter;
+    }
+
+    private static long heapSort(double[] array, int low, int high) {
+        long comparisonCount = 0;
+        long[] moveCount = new long[1]; // Filled by siftDown, so the thread's counters are looked up once
+        int size = high - low + 1;
+        for (int parent = size / 2 - 1; parent >= 0; parent--) {
+            comparisonCount += siftDown(array, low, parent, size, moveCount);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            double temp = array[low];
+            array[low] = array[low + end];
+            array[low + end] = temp;
+            comparisonCount += siftDown(array, low, 0, end, moveCount);
+        }
+        SortMetrics.countWork(comparisonCount, 2L * (size - 1) + moveCount[0]);
+        return comparisonCount;
+    }
+
+    private static long siftDown(double[] array, int offset, int parent, int size, long[] moveCount) {
+        long comparisonCount = 0;
+        long moves = 1;
+        double value = array[offset + parent];
+        int child;
+        while ((child = 2 * parent + 1) < size) {
+            if (child + 1 < size) {
+                comparisonCount++;
+                if (Double.compare(array[offset + child + 1], array[offset + child]) > 0) {
+                    child++;
+                }
+            }
+            comparisonCount++;
+            if (Double.compare(array[offset + child], value) <= 0) break;
+            array[offset + parent] = array[offset + child];
+            parent = child;
+            moves++;
+        }
+        array[offset + parent] = value;
+        moveCount[0] += moves;
+        return comparisonCount;
+    }
+
+    /**
+     * This function sorts a double array with MergeSort in the total order of Double.compare.
+     *
+     * @param inputArr The array to be sorted; it may contain NaN and signed zeros.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long executeMergeSort(double[] inputArr) {
+        return executeMergeSort(inputArr, new double[inputArr.length]);
+    }
+
+    /**
+     * This function sorts a double array with MergeSort, merging through a caller-supplied
+     * auxiliary array.
+     *
+     * @param inputArr     The array to be sorted.
+     * @param auxiliaryArr A buffer at least as long as inputArr; its contents are overwritten.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long executeMergeSort(double[] inputArr, double[] auxiliaryArr) {
+        if (auxiliaryArr.length < inputArr.length) {
+            throw new IllegalArgumentException("Auxiliary array is shorter than the input");
+        }
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        SortMetrics.countAuxiliaryBytes((long) inputArr.length * Double.BYTES);
+        long comparisonCount = mergeSort(inputArr, auxiliaryArr, 0, inputArr.length - 1);
+        SortMetrics.end(event, "MergeSort(double[])", inputArr.length);
+        return comparisonCount;
+    }
+
+    private static long mergeSort(double[] array, double[] auxArr, int start, int end) {
+        if (start >= end) return 0;
+        int mid = (start + end) >>> 1;
+        long comparisonCounter = mergeSort(array, auxArr, start, mid) + mergeSort(array, auxArr, mid + 1, end);
+        System.arraycopy(array, start, auxArr, start, end - start + 1);
+        long mergeComparisons = 0;
+        int leftIndex = start, rightIndex = mid + 1, currentIndex = start;
+        while (leftIndex <= mid && rightIndex <= end) {
+            mergeComparisons++;
+            array[currentIndex++] = Double.compare(auxArr[leftIndex], auxArr[rightIndex]) <= 0
+                    ? auxArr[leftIndex++] : auxArr[rightIndex++];
+        }
+        System.arraycopy(auxArr, leftIndex, array, currentIndex, mid - leftIndex + 1);
+
+        // The copy into auxArr, then every write back up to where the right run stayed in place
+        SortMetrics.countWork(mergeComparisons, (end - start + 1) + (currentIndex - start) + (mid - leftIndex + 1));
+        return comparisonCounter + mergeComparisons;
+    }
+
+    /**
+     * This function sorts a double array with the LSD radix sort of performRadixSort(long[]),
+     * using the sortable bits of each value as its key. The values themselves are moved,
+     * so every NaN keeps its exact bit pattern.
+     *
+     * @param inputArray The array to sort; it may contain NaN and signed zeros.
+     * @return The number of element operations, as described for performRadixSort(long[]).
+     */
+    public static long performRadixSort(double[] inputArray) {
+        return performRadixSort(inputArray, new double[inputArray.length]);
+    }
+
+    /**
+     * This function sorts a double array with the LSD radix sort using a caller-supplied
+     * scratch buffer.
+     *
+     * @param inputArray The array to sort; it may contain NaN and signed zeros.
+     * @param scratch    A buffer at least as long as inputArray; its contents are overwritten.
+     * @return The number of element operations, as described for performRadixSort(long[]).
+     */
+    public static long performRadixSort(double[] inputArray, double[] scratch) {
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        long operationCount = radixSort(inputArray, scratch);
+        SortMetrics.end(event, "RadixSort(double[])", inputArray.length);
+        return operationCount;
+    }
+
+    private static long radixSort(double[] inputArray, double[] scratch) {
+        int length = inputArray.length;
+        if (length < 2) return 0;
+        if (scratch.length < length) {
+            throw new IllegalArgumentException("Scratch buffer is shorter than the input");
+        }
+        SortMetrics.countAuxiliaryBytes((long) length * Double.BYTES + RADIX_PASSES * (1 << RADIX_DIGIT_BITS) * Integer.BYTES);
+        int[][] histograms = new int[RADIX_PASSES][1 << RADIX_DIGIT_BITS];
+        for (double value : inputArray) {
+            long key = toSortableBits(value) ^ Long.MIN_VALUE;
+            for (int pass = 0; pass < RADIX_PASSES; pass++) {
+                histograms[pass][(int) (key >>> (pass * RADIX_DIGIT_BITS)) & RADIX_MASK]++;
+            }
+        }
+        long operationCount = length;
+
+        double[] source = inputArray;
+        double[] destination = scratch;
+        long firstKey = toSortableBits(inputArray[0]) ^ Long.MIN_VALUE;
+        for (int pass = 0; pass < RADIX_PASSES; pass++) {
+            int[] counts = histograms[pass];
+            int shift = pass * RADIX_DIGIT_BITS;
+            if (!toOffsets(counts, (int) (firstKey >>> shift) & RADIX_MASK, length)) {
+                continue;
+            }
+            for (int index = 0; index < length; index++) {
+                double value = source[index];
+                long key = toSortableBits(value) ^ Long.MIN_VALUE;
+                destination[counts[(int) (key >>> shift) & RADIX_MASK]++] = value;
+            }
+            operationCount += length;
+
+            double[] swap = source;
+            source = destination;
+            destination = swap;
+        }
+
+        if (source != inputArray) {
+            System.arraycopy(source, 0, inputArray, 0, length);
+        }
+
+        // Every scatter pass moved each element once, and so did the copy back if there was one
+        SortMetrics.countMoves(operationCount - length + (source != inputArray ? length : 0));
+        return operationCount;
+    }
+
+    // ---------------------------------------------------------------- argsort
+
+    /**
+     * Returns the permutation that sorts the keys, leaving the keys untouched.
+     *
+     * @param keys The keys to order by.
+     * @return Indices such that keys[result[0]] <= keys[result[1]] <= ..., equal keys in index order.
+     */
+    public static int[] argsort(long[] keys) {
+        int[] indices = identity(keys.length);
+        performArgSort(keys, indices);
+        return indices;
+    }
+
+    /**
+     * Returns the permutation that sorts the keys in the total order of Double.compare,
+     * leaving the keys untouched.
+     *
+     * @param keys The keys to order by.
+     * @return Indices such that the keys they point at are in order, equal keys in index order.
+     */
+    public static int[] argsort(double[] keys) {
+        int[] indices = identity(keys.length);
+        performArgSort(keys, indices);
+        return indices;
+    }
+
+    /**
+     * This function sorts an array of indices by the keys they point at, with a stable
+     * MergeSort, so records stored as parallel arrays can be reordered by one of them. The
+     * keys are only read.
+     *
+     * @param keys    The keys to order by.
+     * @param indices Indices into keys, sorted in place; equal keys keep their relative order.
+     * @return The total count of comparisons made while sorting the indices.
+     */
+    public static long performArgSort(long[] keys, int[] indices) {
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        SortMetrics.countAuxiliaryBytes((long) indices.length * Integer.BYTES);
+        long comparisonCount = argMergeSort(keys, indices, new int[indices.length], 0, indices.length - 1);
+        SortMetrics.end(event, "ArgSort(long[])", indices.length);
+        return comparisonCount;
+    }
+
+    /**
+     * This function sorts an array of indices by the double keys they point at, in the
+     * total order of Double.compare, with a stable MergeSort.
+     *
+     * @param keys    The keys to order by.
+     * @param indices Indices into keys, sorted in place; equal keys keep their relative order.
+     * @return The total count of comparisons made while sorting the indices.
+     */
+    public static long performArgSort(double[] keys, int[] indices) {
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        SortMetrics.countAuxiliaryBytes((long) indices.length * Integer.BYTES);
+        long comparisonCount = argMergeSort(keys, indices, new int[indices.length], 0, indices.length - 1);
+        SortMetrics.end(event, "ArgSort(double[])", indices.length);
+        return comparisonCount;
+    }
+
+    private static int[] identity(int length) {
+        int[] indices = new int[length];
+        for (int index = 0; index < length; index++) {
+            indices[index] = index;
+        }
+        return indices;
+    }
+
+    private static long argMergeSort(long[] keys, int[] indices, int[] auxArr, int start, int end) {
+        if (start >= end) return 0;
+        int mid = (start + end) >>> 1;
+        long comparisonCounter = argMergeSort(keys, indices, auxArr, start, mid)
+                + argMergeSort(keys, indices, auxArr, mid + 1, end);
+        System.arraycopy(indices, start, auxArr, start, end - start + 1);
+        long mergeComparisons = 0;
+        int leftIndex = start, rightIndex = mid + 1, currentIndex = start;
+        while (leftIndex <= mid && rightIndex <= end) {
+            mergeComparisons++;
+            indices[currentIndex++] = keys[auxArr[leftIndex]] <= keys[auxArr[rightIndex]]
+                    ? auxArr[leftIndex++] : auxArr[rightIndex++];
+        }
+        System.arraycopy(auxArr, leftIndex, indices, currentIndex, mid - leftIndex + 1);
+
+        // The copy into auxArr, then every write back up to where the right run stayed in place
+        SortMetrics.countWork(mergeComparisons, (end - start + 1) + (currentIndex - start) + (mid - leftIndex + 1));
+        return comparisonCounter + mergeComparisons;
+    }
+
+    private static long argMergeSort(double[] keys, int[] indices, int[] auxArr, int start, int end) {
+        if (start >= end) return 0;
+        int mid = (start + end) >>> 1;
+        long comparisonCounter = argMergeSort(keys, indices, auxArr, start, mid)
+                + argMergeSort(keys, indices, auxArr, mid + 1, end);
+        System.arraycopy(indices, start, auxArr, start, end - start + 1);
+        long mergeComparisons = 0;
+        int leftIndex = start, rightIndex = mid + 1, currentIndex = start;
+        while (leftIndex <= mid && rightIndex <= end) {
+            mergeComparisons++;
+            indices[currentIndex++] = Double.compare(keys[auxArr[leftIndex]], keys[auxArr[rightIndex]]) <= 0
+                    ? auxArr[leftIndex++] : auxArr[rightIndex++];
+        }
+        System.arraycopy(auxArr, leftIndex, indices, currentIndex, mid - leftIndex + 1);
+
+        // The copy into auxArr, then every write back up to where the right run stayed in place
+        SortMetrics.countWork(mergeComparisons, (end - start + 1) + (currentIndex - start) + (mid - leftIndex + 1));
+        return comparisonCounter + mergeComparisons;
+    }
+
+    // ---------------------------------------------------------------- checksums
+
+    /**
+     * Calculates the checksum of a long array, the wrapping sum of its elements.
+     *
+     * @param inputArray The array to checksum.
+     * @return The checksum.
+     */
+    public static long calculateChecksum(long[] inputArray) {
+        long checksumTotal = 0;
+        for (long value : inputArray) {
+            checksumTotal += value;
+        }
+        return checksumTotal;
+    }
+
+    /**
+     * Calculates the checksum of a double array, the wrapping sum of the sortable bits of
+     * its elements, so it does not depend on the order of the elements and tells -0.0 from 0.0.
+     *
+     * @param inputArray The array to checksum.
+     * @return The checksum.
+     */
+    public static long calculateChecksum(double[] inputArray) {
+        long checksumTotal = 0;
+        for (double value : inputArray) {
+            checksumTotal += toSortableBits(value);
+        }
+        return checksumTotal;
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.Arrays;
+
+/**
+ * The RadixSortEngine class is a least-significant-digit radix sort for int arrays that
+ * works on binary digits of 8 or 11 bits instead of decimal digits. A single counting
+ * pass builds the histograms of every digit at once, after which each digit is scattered
+ * between the input array and one scratch buffer, alternating direction every pass, so
+ * nothing is copied back between passes.
+ *
+ * A digit whose histogram puts every key in the same bucket cannot change the order and
+ * its pass is skipped. The sign bit is flipped while digits are extracted, which makes
+ * negative values sort before positive ones without a separate pass.
+ *
+ * An engine keeps its scratch buffer and histograms between calls and is therefore not
+ * safe to share between threads; performLsdRadixSort keeps one engine per thread.
+ */
+public final class RadixSortEngine {
+
+    // Digit width that gives four passes of 256 buckets each
+    public static final int BYTE_DIGITS = 8;
+
+    // Digit width that gives three passes of 2048 buckets each
+    public static final int ELEVEN_BIT_DIGITS = 11;
+
+    // One engine per thread, so the static entry point reuses its buffers
+    private static final ThreadLocal<RadixSortEngine> THREAD_ENGINE =
+            ThreadLocal.withInitial(() -> new RadixSortEngine(BYTE_DIGITS));
+
+    private final int digitBits;
+    private final int passes;
+    private final int[][] histograms;
+    private int[] scratchBuffer = new int[0];
+
+    /**
+     * Creates an engine that sorts with digits of the given width.
+     *
+     * @param digitBits The number of bits per digit, either BYTE_DIGITS or ELEVEN_BIT_DIGITS.
+     */
+    public RadixSortEngine(int digitBits) {
+        if (digitBits != BYTE_DIGITS && digitBits != ELEVEN_BIT_DIGITS) {
+            throw new IllegalArgumentException("Digit width must be 8 or 11 bits: " + digitBits);
+        }
+        this.digitBits = digitBits;
+        this.passes = (Integer.SIZE + digitBits - 1) / digitBits;
+        this.histograms = new int[passes][1 << digitBits];
+    }
+
+    /**
+     * Sorts the array in place with the thread's byte-digit engine.
+     *
+     * @param inputArray The array containing numbers that need to be sorted, of any sign.
+     * @return The number of element operations: one per element for the counting pass
+     *         plus one per element for every scatter pass that was not skipped. Arrays of
+     *         at most SortingNetworks.LEAF_SIZE elements are handed to sortLeaf instead,
+     *         which returns its comparisons.
+     */
+    public static long performLsdRadixSort(int[] inputArray) {
+        return THREAD_ENGINE.get().sort(inputArray);
+    }
+
+    /**
+     * Sorts the array in place, growing the scratch buffer only if the array is larger than
+     * any array this engine has sorted before.
+     *
+     * @param inputArray The array containing numbers that need to be sorted, of any sign.
+     * @return The number of element operations, as described for performLsdRadixSort.
+     */
+    public long sort(int[] inputArray) {
+        int length = inputArray.length;
+        if (length < 2) return 0;
+        if (scratchBuffer.length < length) {
+            scratchBuffer = new int[length];
+        }
+        return sort(inputArray, scratchBuffer);
+    }
+
+    /**
+     * Sorts the array in place using a caller-supplied scratch buffer.
+     *
+     * @param inputArray The array containing numbers that need to be sorted, of any sign.
+     * @param scratch    A buffer at least as long as inputArray; its contents are overwritten.
+     * @return The number of element operations, as described for performLsdRadixSort.
+     */
+    public long sort(int[] inputArray, int[] scratch) {
+        int length = inputArray.length;
+        if (length < 2) return 0;
+        if (scratch.length < length) {
+            throw new IllegalArgumentException("Scratch buffer is shorter than the input");
+        }
+        if (length <= SortingNetworks.LEAF_SIZE) {
+            return SortingNetworks.sortLeaf(inputArray, 0, length - 1);
+        }
+        long operationCount = buildHistograms(inputArray, length);
+        SortMetrics.countAuxiliaryBytes(((long) length + passes * (1 << digitBits)) * Integer.BYTES);
+
+        int mask = (1 << digitBits) - 1;
+        int[] source = inputArray;
+        int[] destination = scratch;
+        for (int pass = 0; pass < passes; pass++) {
+            int[] counts = histograms[pass];
+            int shift = pass * digitBits;
+            int firstKeyDigit = ((inputArray[0] ^ Integer.MIN_VALUE) >>> shift) & mask;
+            if (counts[firstKeyDigit] == length) {
+                continue;
+            }
+
+            // Turn the counts into starting offsets
+            int offset = 0;
+            for (int digit = 0; digit < counts.length; digit++) {
+                int count = counts[digit];
+                counts[digit] = offset;
+                offset += count;
+            }
+            for (int index = 0; index < length; index++) {
+                int value = source[index];
+                destination[counts[((value ^ Integer.MIN_VALUE) >>> shift) & mask]++] = value;
+            }
+            operationCount += length;
+
+            int[] swap = source;
+            source = destination;
+            destination = swap;
+        }
+
+        if (source != inputArray) {
+            System.arraycopy(source, 0, inputArray, 0, length);
+        }
+
+        // Every scatter pass moved each element once, and so did the copy back if there was one
+        SortMetrics.countMoves(operationCount - length + (source != inputArray ? length : 0));
+        return operationCount;
+    }
+
+    private long buildHistograms(int[] inputArray, int length) {
+        for (int[] counts : histograms) {
+            Arrays.fill(counts, 0);
+        }
+        int mask = (1 << digitBits) - 1;
+        for (int index = 0; index < length; index++) {
+            int key = inputArray[index] ^ Integer.MIN_VALUE;
+            for (int pass = 0; pass < passes; pass++) {
+                histograms[pass][(key >>> (pass * digitBits)) & mask]++;
+            }
+        }
+        return length;
+    }
+}
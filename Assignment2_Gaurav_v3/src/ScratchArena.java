@@ -0,0 +1,103 @@
+import java.util.Arrays;
+
+/**
+ * The ScratchArena class hands out reusable int[] scratch buffers, so sorts that need an
+ * auxiliary array do not allocate one on every call. Buffers are grouped in power-of-two
+ * size classes: a request for n ints is served by a buffer of the smallest class that
+ * holds n, and a released buffer goes back to its class for the next request.
+ *
+ * Callers must treat a buffer as holding garbage and use only its first n elements. An
+ * arena is not thread-safe; give every thread its own.
+ */
+public final class ScratchArena {
+
+    // Number of size classes: class c holds buffers of exactly 2^c ints
+    private static final int SIZE_CLASSES = 31;
+
+    // Free buffers of every size class, used as stacks
+    private final int[][][] freeBuffers = new int[SIZE_CLASSES][][];
+    private final int[] freeCounts = new int[SIZE_CLASSES];
+
+    // Number of buffers this arena has ever allocated, to show the steady state allocates none
+    private long buffersAllocated;
+
+    /**
+     * Creates an empty arena; buffers are allocated on first use.
+     */
+    public ScratchArena() {
+        for (int sizeClass = 0; sizeClass < SIZE_CLASSES; sizeClass++) {
+            freeBuffers[sizeClass] = new int[2][];
+        }
+    }
+
+    /**
+     * Allocates buffers up front so that the given number of simultaneous requests of the
+     * given length will not allocate.
+     *
+     * @param length The length that will be requested.
+     * @param count  The number of such buffers that may be in use at the same time.
+     * @return This arena, for chaining.
+     */
+    public ScratchArena reserve(int length, int count) {
+        int[][] reserved = new int[count][];
+        for (int index = 0; index < count; index++) {
+            reserved[index] = acquire(length);
+        }
+        for (int[] buffer : reserved) {
+            release(buffer);
+        }
+        return this;
+    }
+
+    /**
+     * Takes a buffer of at least the given length out of the arena, allocating one only if
+     * its size class has no free buffer.
+     *
+     * @param minimumLength The number of ints the caller needs.
+     * @return A buffer whose length is the smallest power of two that is at least minimumLength.
+     */
+    public int[] acquire(int minimumLength) {
+        int sizeClass = sizeClassOf(minimumLength);
+        if (freeCounts[sizeClass] > 0) {
+            int[][] stack = freeBuffers[sizeClass];
+            int[] buffer = stack[--freeCounts[sizeClass]];
+            stack[freeCounts[sizeClass]] = null;
+            return buffer;
+        }
+        buffersAllocated++;
+        return new int[1 << sizeClass];
+    }
+
+    /**
+     * Returns a buffer obtained from acquire, so it can be handed out again.
+     *
+     * @param buffer The buffer to return.
+     */
+    public void release(int[] buffer) {
+        int sizeClass = sizeClassOf(buffer.length);
+        if (buffer.length != 1 << sizeClass) {
+            throw new IllegalArgumentException("Buffer of length " + buffer.length + " did not come from an arena");
+        }
+        int[][] stack = freeBuffers[sizeClass];
+        if (freeCounts[sizeClass] == stack.length) {
+            freeBuffers[sizeClass] = stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[freeCounts[sizeClass]++] = buffer;
+    }
+
+    /**
+     * Returns the number of buffers this arena has allocated so far.
+     *
+     * @return The count of buffers allocated by acquire.
+     */
+    public long getBuffersAllocated() {
+        return buffersAllocated;
+    }
+
+    private static int sizeClassOf(int length) {
+        if (length > 1 << (SIZE_CLASSES - 1)) {
+            throw new IllegalArgumentException("Scratch buffers are limited to 2^30 ints: " + length);
+        }
+        return length <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+}
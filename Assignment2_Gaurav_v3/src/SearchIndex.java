@@ -0,0 +1,202 @@
+/**
+ * The SearchIndex class answers lookups on a sorted int array with fewer cache misses than
+ * performBinarySearch. The keys are stored in Eytzinger (breadth-first) order: the root of
+ * the implicit search tree sits at index 1 and the children of node k at 2k and 2k + 1, so
+ * the first levels of every search share the same few cache lines and every later level
+ * is a predictable step forward in memory.
+ *
+ * The descent is branchless: each step computes the next node from the comparison result
+ * instead of branching on it, so there are no mispredictions to pay for. Java has no
+ * prefetch instruction, so the single-key search issues an ordinary load of the node four
+ * levels further down (the 16 descendants of a node share one 64-byte line); the load
+ * results are only summed in a local variable, so the processor does not wait for them.
+ * The sum is stored only when it happens to equal PREFETCH_MARKER, which is enough to
+ * stop the JIT from removing the loads, while searches from many threads share no
+ * written state. The batched
+ * searchAll goes further and walks a group of queries down the tree in lock step, so the
+ * cache misses of all queries in the group overlap instead of queueing one after another.
+ *
+ * Lookups return indices into the original sorted array, so callers can use an index
+ * exactly like the result of performBinarySearch.
+ */
+public final class SearchIndex {
+
+    // Number of queries searchAll walks down the tree together
+    private static final int BATCH_WIDTH = 16;
+
+    // Levels ahead touched by the software prefetch of the single-key search
+    private static final int PREFETCH_LEVELS = 4;
+
+    // Sum of prefetched keys that is written to the sink; any fixed value will do
+    private static final int PREFETCH_MARKER = 0x5EA2C4;
+
+    // Receives the prefetch sum when it equals PREFETCH_MARKER, so the loads cannot be removed
+    private static int prefetchSink;
+
+    // Keys in Eytzinger order, 1-indexed; slot 0 is unused
+    private final int[] eytzinger;
+
+    // For every Eytzinger slot, the index of the same key in the sorted array
+    private final int[] sortedIndex;
+
+    private final int size;
+
+    /**
+     * Builds an index over a sorted array. The array is copied, so it may be changed afterwards.
+     *
+     * @param sortedArray An array sorted in non-decreasing order.
+     */
+    public SearchIndex(int[] sortedArray) {
+        this.size = sortedArray.length;
+        this.eytzinger = new int[size + 1];
+        this.sortedIndex = new int[size + 1];
+        fillInOrder(sortedArray);
+    }
+
+    /**
+     * Visits the implicit tree in order without recursion, assigning the sorted keys to
+     * the nodes in the order they are visited.
+     */
+    private void fillInOrder(int[] sortedArray) {
+        int next = 0;
+        int node = 1;
+        while (next < size) {
+            // Go as far left as possible
+            while (node <= size) {
+                node <<= 1;
+            }
+            // Climb back up past every node whose right subtree is finished
+            node >>= Integer.numberOfTrailingZeros(~node) + 1;
+            eytzinger[node] = sortedArray[next];
+            sortedIndex[node] = next;
+            next++;
+            node = 2 * node + 1;
+        }
+    }
+
+    /**
+     * Returns the number of keys in the index.
+     *
+     * @return The size of the sorted array the index was built from.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the first key that is greater than or equal to the target.
+     *
+     * @param targetValue The value being searched for.
+     * @return The sorted-array index of that key, or size() if every key is smaller.
+     */
+    public int lowerBound(int targetValue) {
+        int node = descend(targetValue);
+        return node == 0 ? size : sortedIndex[node];
+    }
+
+    /**
+     * Searches for the target value, with the same contract as performBinarySearch.
+     *
+     * @param targetValue The value being searched for.
+     * @return The sorted-array index of the first occurrence of the target, or -1 if not found.
+     */
+    public int search(int targetValue) {
+        int node = descend(targetValue);
+        return node != 0 && eytzinger[node] == targetValue ? sortedIndex[node] : -1;
+    }
+
+    private int descend(int targetValue) {
+        int[] keys = eytzinger;
+        int limit = size;
+        int prefetched = 0;
+        int node = 1;
+        while (node <= limit) {
+            prefetched += keys[(int) Math.min((long) node << PREFETCH_LEVELS, limit)];
+            node = 2 * node + (keys[node] < targetValue ? 1 : 0);
+        }
+        if (prefetched == PREFETCH_MARKER) {
+            prefetchSink = prefetched;
+        }
+        // The answer is the last node where the search went left: strip the trailing right turns and that left turn
+        return node >> (Integer.numberOfTrailingZeros(~node) + 1);
+    }
+
+    /**
+     * Searches for many values at once. Queries are processed in groups that descend the
+     * tree together, one level at a time, which overlaps their memory accesses.
+     *
+     * @param queries The values being searched for.
+     * @return For every query, the sorted-array index of its first occurrence or -1.
+     */
+    public int[] searchAll(int[] queries) {
+        int[] results = new int[queries.length];
+        searchAll(queries, results);
+        return results;
+    }
+
+    /**
+     * Searches for many values at once, writing into a caller-supplied array.
+     *
+     * @param queries The values being searched for.
+     * @param results Receives, for every query, the sorted-array index of its first occurrence or -1.
+     */
+    public void searchAll(int[] queries, int[] results) {
+        if (results.length < queries.length) {
+            throw new IllegalArgumentException("Results array is shorter than the queries");
+        }
+        int[] keys = eytzinger;
+        int limit = size;
+        // After floor(log2(size)) + 1 steps every node index is past the end of the tree
+        int levels = 32 - Integer.numberOfLeadingZeros(limit);
+        int[] nodes = new int[BATCH_WIDTH];
+
+        for (int start = 0; start < queries.length; start += BATCH_WIDTH) {
+            int width = Math.min(BATCH_WIDTH, queries.length - start);
+            for (int lane = 0; lane < width; lane++) {
+                nodes[lane] = 1;
+            }
+            for (int level = 0; level < levels; level++) {
+                for (int lane = 0; lane < width; lane++) {
+                    int node = nodes[lane];
+                    int step = 2 * node + (keys[Math.min(node, limit)] < queries[start + lane] ? 1 : 0);
+                    nodes[lane] = node <= limit ? step : node;
+                }
+            }
+            for (int lane = 0; lane < width; lane++) {
+                int node = nodes[lane];
+                node >>= Integer.numberOfTrailingZeros(~node) + 1;
+                results[start + lane] = node != 0 && keys[node] == queries[start + lane] ? sortedIndex[node] : -1;
+            }
+        }
+    }
+
+    /**
+     * Finds the first element of a sorted array that is greater than or equal to the target,
+     * using a branchless binary search: the range halves every step and the comparison
+     * result only selects the new base, which compiles to a conditional move.
+     *
+     * @param sortedArray An array sorted in non-decreasing order.
+     * @param targetValue The value being searched for.
+     * @return The index of that element, or sortedArray.length if every element is smaller.
+     */
+    public static int branchlessLowerBound(int[] sortedArray, int targetValue) {
+        int length = sortedArray.length;
+        if (length == 0) return 0;
+        int base = 0;
+        while (length > 1) {
+            int half = length >>> 1;
+            base = sortedArray[base + half - 1] < targetValue ? base + half : base;
+            length -= half;
+        }
+        return base + (sortedArray[base] < targetValue ? 1 : 0);
+    }
+
+    /**
+     * Returns the prefetch sink. Reading it keeps the prefetch loads observable.
+     *
+     * @return PREFETCH_MARKER if any search's prefetched keys added up to it, otherwise 0.
+     */
+    public static int getPrefetchSink() {
+        return prefetchSink;
+    }
+}
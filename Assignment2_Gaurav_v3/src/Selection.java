@@ -0,0 +1,151 @@
+/**
+ * The Selection class answers order-statistic queries, such as the k-th smallest value, a
+ * median or a percentile, without sorting the whole array. It uses the partitioning of
+ * the introsort in SortingPerformance, but after each partition continues only into the
+ * side that holds the wanted rank, so on average it makes O(n) comparisons instead of
+ * O(n log n).
+ *
+ * Like the introsort, the quickselect guards against bad pivots: once it has partitioned
+ * 2 log2(n) times without finishing, it switches to median-of-medians pivots, which keep
+ * the worst case linear as well. Every method counts comparisons the same way the sorts
+ * do and returns the count, adds its comparisons, moves and scratch space to SortMetrics,
+ * and emits a SortEvent during a Flight Recorder recording.
+ *
+ * For data that does not fit in an array, or arrives as a stream, see StreamingTopK.
+ */
+public final class Selection {
+
+    // Ranges at or below this size are finished with insertion sort
+    private static final int INSERTION_SELECT_CUTOFF = 16;
+
+    // Number of elements in each group of the median-of-medians pivot
+    private static final int GROUP_SIZE = 5;
+
+    private Selection() {
+    }
+
+    /**
+     * This function rearranges the array so that the element of rank k (the k-th smallest,
+     * counting from 0) is at index k, every element before it is no larger and every
+     * element after it is no smaller.
+     *
+     * @param inputArray The array to rearrange.
+     * @param k          The rank wanted, from 0 to inputArray.length - 1.
+     * @return The total count of comparisons made during the selection.
+     */
+    public static long performQuickSelect(int[] inputArray, int k) {
+        checkRank(inputArray, k);
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        SortMetrics.countAuxiliaryBytes(2 * Integer.BYTES);
+        long comparisonCount = selectRange(inputArray, 0, inputArray.length - 1, k, new int[2]);
+        SortMetrics.end(event, "QuickSelect", inputArray.length);
+        return comparisonCount;
+    }
+
+    /**
+     * This function moves the k smallest elements to the front of the array in sorted
+     * order; the order of the remaining elements is unspecified.
+     *
+     * @param inputArray The array to rearrange.
+     * @param k          The number of smallest elements wanted, from 0 to inputArray.length.
+     * @return The total count of comparisons made.
+     */
+    public static long partialSort(int[] inputArray, int k) {
+        if (k < 0 || k > inputArray.length) {
+            throw new IllegalArgumentException("k must be between 0 and " + inputArray.length + ": " + k);
+        }
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        long comparisonCount = k == 0 ? 0 : sortSmallest(inputArray, k);
+        SortMetrics.end(event, "PartialSort", inputArray.length);
+        return comparisonCount;
+    }
+
+    private static long sortSmallest(int[] inputArray, int k) {
+        SortMetrics.countAuxiliaryBytes(2 * Integer.BYTES);
+        int[] bounds = new int[2];
+        long comparisonCount = selectRange(inputArray, 0, inputArray.length - 1, k - 1, bounds);
+        // Element k - 1 is in place; the k - 1 elements before it only need sorting
+        if (k > 2) {
+            comparisonCount += SortingPerformance.introSortHelper(inputArray, 0, k - 2,
+                    SortingPerformance.introSortDepthLimit(k - 1), bounds);
+        } else if (k == 2) {
+            comparisonCount++;
+            if (inputArray[0] > inputArray[1]) {
+                int temp = inputArray[0];
+                inputArray[0] = inputArray[1];
+                inputArray[1] = temp;
+                SortMetrics.countWork(1, 2);
+            } else {
+                SortMetrics.countComparisons(1);
+            }
+        }
+        return comparisonCount;
+    }
+
+    /**
+     * Finds a percentile with the nearest-rank method: the smallest value that at least the
+     * given percentage of the elements are less than or equal to. The array is rearranged
+     * as by performQuickSelect.
+     *
+     * @param inputArray The array to search; it must not be empty.
+     * @param percentile The percentile, from 0 to 100; 50 gives the (lower) median.
+     * @return The value at that percentile.
+     */
+    public static int findPercentile(int[] inputArray, double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        int k = Math.max(0, (int) Math.ceil(percentile / 100 * inputArray.length) - 1);
+        performQuickSelect(inputArray, k);
+        return inputArray[k];
+    }
+
+    private static void checkRank(int[] inputArray, int k) {
+        if (k < 0 || k >= inputArray.length) {
+            throw new IllegalArgumentException("Rank must be between 0 and " + (inputArray.length - 1) + ": " + k);
+        }
+    }
+
+    static long selectRange(int[] array, int low, int high, int k, int[] bounds) {
+        long comparisonCount = 0;
+        int depthLimit = SortingPerformance.introSortDepthLimit(high - low + 1);
+        while (high - low + 1 > INSERTION_SELECT_CUTOFF) {
+            if (depthLimit > 0) {
+                depthLimit--;
+                comparisonCount += SortingPerformance.partitionThreeWay(array, low, high, bounds);
+            } else {
+                comparisonCount += moveMedianOfMedians(array, low, high, bounds);
+                int pivotValue = array[low + (high - low + 1) / GROUP_SIZE / 2];
+                comparisonCount += SortingPerformance.partitionAroundValue(array, low, high, pivotValue, bounds);
+            }
+            if (k < bounds[0]) {
+                high = bounds[0] - 1;
+            } else if (k > bounds[1]) {
+                low = bounds[1] + 1;
+            } else {
+                return comparisonCount;
+            }
+        }
+        return comparisonCount + SortingPerformance.performInsertionSort(array, low, high);
+    }
+
+    /**
+     * Sorts every group of five in [low, high], gathers the group medians at the front of
+     * the range and selects their median, which ends up at index low + groups / 2.
+     */
+    private static long moveMedianOfMedians(int[] array, int low, int high, int[] bounds) {
+        long comparisonCount = 0;
+        int groups = 0;
+        for (int groupStart = low; groupStart + GROUP_SIZE - 1 <= high; groupStart += GROUP_SIZE) {
+            comparisonCount += SortingPerformance.performInsertionSort(array, groupStart, groupStart + GROUP_SIZE - 1);
+            int medianIndex = groupStart + GROUP_SIZE / 2;
+            int target = low + groups;
+            int temp = array[target];
+            array[target] = array[medianIndex];
+            array[medianIndex] = temp;
+            groups++;
+        }
+        SortMetrics.countMoves(2L * groups);
+        return comparisonCount + selectRange(array, low, low + groups - 1, low + groups / 2, bounds);
+    }
+}
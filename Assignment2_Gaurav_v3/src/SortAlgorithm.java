@@ -0,0 +1,112 @@
+import java.util.function.ToLongFunction;
+
+/**
+ * The SortAlgorithm enum lists every sorting routine that the results table and the
+ * benchmark runner know about. Each constant pairs the name printed in the tables with
+ * the static sorting method in SortingPerformance, so the table, the benchmarks and any
+ * other caller all execute exactly the same code.
+ *
+ * Every sorter sorts the given array in place and returns the number of operations it
+ * counted, which is the same long-returning contract used by the original sorts.
+ * Algorithms that need an auxiliary array can also borrow it from a ScratchArena, so a
+ * benchmark loop that sorts the same size over and over allocates nothing.
+ *
+ * Every sort is bracketed by SortMetrics.begin and end, so afterwards SortMetrics.current() holds
+ * its comparisons, moves and auxiliary memory and a Flight Recorder recording sees one
+ * event per sort.
+ */
+public enum SortAlgorithm {
+    QUICK_SORT("QuickSort", SortingPerformance::performQuickSort),
+    INTRO_QUICK_SORT("IntroQuickSort", SortingPerformance::performIntroQuickSort, SortingPerformance::performIntroQuickSort),
+    SELECTION_SORT("SelectionSort", SortingPerformance::performSelectionSort),
+    INSERTION_SORT("InsertionSort", SortingPerformance::performInsertionSort),
+    MERGE_SORT("MergeSort", SortingPerformance::executeMergeSort, SortingPerformance::executeMergeSort),
+    ADAPTIVE_MERGE_SORT("AdaptiveMerge", AdaptiveMergeSort::performAdaptiveMergeSort, AdaptiveMergeSort::performAdaptiveMergeSort),
+    BUBBLE_SORT("BubbleSort", SortingPerformance::performBubbleSort),
+    RADIX_SORT("RadixSort", SortingPerformance::performRadixSort, SortingPerformance::performRadixSort),
+    LSD_RADIX_SORT("LsdRadixSort", RadixSortEngine::performLsdRadixSort),
+    PARALLEL_MERGE_SORT("ParMergeSort", ParallelSorts::parallelMergeSort, ParallelSorts::parallelMergeSort),
+    PARALLEL_QUICK_SORT("ParQuickSort", ParallelSorts::parallelQuickSort),
+    PARALLEL_RADIX_SORT("ParRadixSort", ParallelRadixSort::parallelRadixSort, ParallelRadixSort::parallelRadixSort);
+
+    // The name shown in the results table and in benchmark output
+    private final String displayName;
+
+    // The sorting routine, returning its operation count
+    private final ToLongFunction<int[]> sorter;
+
+    // The same routine taking its scratch space from an arena, or null if it needs none
+    private final ScratchSorter scratchSorter;
+
+    /**
+     * A sorting routine that borrows its auxiliary arrays from an arena.
+     */
+    @FunctionalInterface
+    interface ScratchSorter {
+        long sort(int[] array, ScratchArena arena);
+    }
+
+    SortAlgorithm(String displayName, ToLongFunction<int[]> sorter) {
+        this(displayName, sorter, null);
+    }
+
+    SortAlgorithm(String displayName, ToLongFunction<int[]> sorter, ScratchSorter scratchSorter) {
+        this.displayName = displayName;
+        this.sorter = sorter;
+        this.scratchSorter = scratchSorter;
+    }
+
+    /**
+     * Returns the name used for this algorithm in printed tables.
+     *
+     * @return The display name of the algorithm.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Sorts the array in place with this algorithm.
+     *
+     * @param array The array to sort.
+     * @return The number of operations counted by the algorithm.
+     */
+    public long sort(int[] array) {
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        long result = sorter.applyAsLong(array);
+        SortMetrics.end(event, displayName, array.length);
+        return result;
+    }
+
+    /**
+     * Sorts the array in place with this algorithm, taking any auxiliary array it needs
+     * from the arena instead of allocating it. Algorithms that need no scratch space, or
+     * manage their own, simply sort.
+     *
+     * @param array The array to sort.
+     * @param arena The arena that lends scratch buffers.
+     * @return The number of operations counted by the algorithm.
+     */
+    public long sort(int[] array, ScratchArena arena) {
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        long result = scratchSorter != null ? scratchSorter.sort(array, arena) : sorter.applyAsLong(array);
+        SortMetrics.end(event, displayName, array.length);
+        return result;
+    }
+
+    /**
+     * Looks up an algorithm by its display name or constant name, ignoring case.
+     *
+     * @param name The name to look up, for example "QuickSort" or "QUICK_SORT".
+     * @return The matching algorithm.
+     * @throws IllegalArgumentException If no algorithm has that name.
+     */
+    public static SortAlgorithm fromName(String name) {
+        for (SortAlgorithm algorithm : values()) {
+            if (algorithm.displayName.equalsIgnoreCase(name) || algorithm.name().equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sorting algorithm: " + name);
+    }
+}
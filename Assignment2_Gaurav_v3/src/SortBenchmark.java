@@ -0,0 +1,956 @@
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * The SortBenchmark class is the command-line entry point for the benchmark suite. It
+ * measures the sorting methods of SortingPerformance with BenchmarkHarness across every
+ * combination of algorithm, array size and input distribution that is requested, and
+ * prints ns/op with a 99.9% error bar together with the allocation figures.
+ *
+ * Options are given as --name=value pairs, for example:
+ * <pre>
+ *   java SortBenchmark --algorithms=QuickSort,MergeSort --sizes=20,400,8000
+ *                      --distributions=uniform,sorted --warmup=5 --iterations=10 --time=200
+ * </pre>
+ *
+ * With --save=file the results of the sort and matrix modes, with every sample and a
+ * description of the JVM and CPU, are written to a BenchmarkStore file. Two such files
+ * are compared with --mode=compare --baseline=old --candidate=new [--alpha=0.01]
+ * [--threshold=0.05], which exits with status 1 if it finds a regression, and charted
+ * with --mode=chart --results=file [--format=text|csv].
+ *
+ * Sorted output is verified outside the timed region with SortVerifier, one sorted copy
+ * in every --verify (default 16); --verify=0 turns verification off.
+ *
+ * Distributions are looked up through InputGenerator, so --distributions=all runs every
+ * registered generator. The --mode option selects a suite other than the default "sort"
+ * sweep:
+ * <ul>
+ *   <li>matrix: the same sweep as "sort" over every distribution by default, printed as
+ *       one algorithm × distribution table of ns/op per size.</li>
+ *   <li>parallel: the fork-join merge, quick and MSD radix sorts against
+ *       Arrays.parallelSort, by default at 1M, 10M and 100M elements (the largest size
+ *       needs roughly -Xmx2g). --threads sets the pool size and --cutoff the sequential
+ *       cutoff.</li>
+ *   <li>search: performBinarySearch, the branchless lower bound and the Eytzinger
+ *       SearchIndex (single and batched) on sorted arrays of --sizes, for each hit ratio
+ *       in --hit-ratios. Hits are keys present in the array, misses are keys that fall
+ *       between them.</li>
+ *   <li>scan: the scalar and the Vector API kernels of VectorScan (find-first-equal,
+ *       max and argmin, plus a selection sort built on argmin) on small unsorted arrays.
+ *       Start the JVM with --add-modules jdk.incubator.vector to get the SIMD kernel;
+ *       without it both columns run the scalar code.</li>
+ *   <li>select: a full IntroQuickSort against quickselect of the median, partialSort of
+ *       the --k smallest and a StreamingTopK of the --k smallest, on uniform arrays of
+ *       --sizes.</li>
+ *   <li>primitive: the long[] and double[] sorts and the argsort of PrimitiveSorts against
+ *       Arrays.sort on the primitive array and against the boxing route (box, sort
+ *       Long[] / Double[] / Integer[] indices with a comparator, unbox) on --sizes.</li>
+ *   <li>network: the cost per element of InsertionSort, the scalar and the SIMD sorting
+ *       networks of SortingNetworks and IntroQuickSort on uniform arrays of --sizes
+ *       (default 4 to 64); the networks stop at SortingNetworks.MAX_NETWORK_SIZE. Vector
+ *       API code runs very slowly until C2 has compiled it, so on a machine with few
+ *       cores give the SIMD column a longer --time (1000 or more).</li>
+ *   <li>metrics: the comparisons, moves and auxiliary memory SortMetrics counts for one
+ *       sort of each algorithm on --sizes (default 1000,10000). With --perf, each
+ *       algorithm also sorts repeatedly for --time ms under "perf stat" and the hardware
+ *       counts of --events are shown per sort; these include the untimed refill copy.</li>
+ * </ul>
+ */
+public class SortBenchmark {
+
+    // Seed shared with SortingPerformance so the benchmark sorts the same data as the table
+    private static final long RANDOM_SEED = 123456;
+
+    // Maximum value for random number generation, as in SortingPerformance.main
+    private static final int MAX_RANDOM_VALUE = 100000;
+
+    // Upper bound on the number of elements held by one batch of working copies
+    private static final int BATCH_ELEMENT_BUDGET = 1 << 20;
+
+    // Number of elements one batch of a scan benchmark examines, so that even a batch of the
+    // shortest scans lasts tens of microseconds rather than a few timer ticks
+    private static final int SCAN_ELEMENT_BUDGET = 1 << 18;
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        String mode = options.getOrDefault("mode", "sort");
+        if (mode.equals("compare")) {
+            int regressions = runComparison(options);
+            System.exit(regressions > 0 ? 1 : 0);
+        }
+        if (mode.equals("chart")) {
+            BenchmarkStore store = BenchmarkStore.load(Path.of(requireOption(options, "results")));
+            BenchmarkReport.printThroughput(store, options.getOrDefault("format", "text"), System.out);
+            return;
+        }
+
+        BenchmarkHarness harness = createHarness(options);
+        BenchmarkStore store = options.containsKey("save") ? new BenchmarkStore(BenchmarkStore.Environment.current()) : null;
+        switch (mode) {
+            case "sort" -> runSortBenchmarks(harness, options, store);
+            case "matrix" -> runDistributionMatrix(harness, options, store);
+            case "parallel" -> runParallelBenchmarks(harness, options);
+            case "search" -> runSearchBenchmarks(harness, options);
+            case "scan" -> runScanBenchmarks(harness, options);
+            case "select" -> runSelectionBenchmarks(harness, options);
+            case "primitive" -> runPrimitiveBenchmarks(harness, options);
+            case "network" -> runNetworkBenchmarks(harness, options);
+            case "metrics" -> runMetricsReport(options);
+            default -> throw new IllegalArgumentException("Unknown benchmark mode: " + mode);
+        }
+        System.out.println("(sink " + BenchmarkHarness.getSink() + ")");
+        if (store != null) {
+            store.save(Path.of(options.get("save")));
+            System.out.println("Saved " + store.getRecords().size() + " results to " + options.get("save"));
+        }
+    }
+
+    /**
+     * Loads the --baseline and --candidate result files and prints their comparison.
+     *
+     * @param options The parsed command-line options.
+     * @return The number of regressions found.
+     * @throws IOException If a result file cannot be read.
+     */
+    public static int runComparison(Map<String, String> options) throws IOException {
+        BenchmarkStore baseline = BenchmarkStore.load(Path.of(requireOption(options, "baseline")));
+        BenchmarkStore candidate = BenchmarkStore.load(Path.of(requireOption(options, "candidate")));
+        double alpha = Double.parseDouble(options.getOrDefault("alpha", "0.01"));
+        double threshold = Double.parseDouble(options.getOrDefault("threshold", "0.05"));
+        return BenchmarkReport.compare(baseline, candidate, alpha, threshold, System.out);
+    }
+
+    private static String requireOption(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing option --" + name);
+        }
+        return value;
+    }
+
+    /**
+     * Runs the algorithm × size × distribution sweep and prints one row per combination.
+     *
+     * @param harness The harness that measures each combination.
+     * @param options The parsed command-line options.
+     * @return The results in the order they were printed.
+     */
+    public static List<BenchmarkHarness.Result> runSortBenchmarks(BenchmarkHarness harness, Map<String, String> options) {
+        return runSortBenchmarks(harness, options, null);
+    }
+
+    /**
+     * Runs the sort sweep and also records every result in the store.
+     *
+     * @param harness The harness that measures each combination.
+     * @param options The parsed command-line options.
+     * @param store   The store that receives the results, or null.
+     * @return The results in the order they were printed.
+     */
+    public static List<BenchmarkHarness.Result> runSortBenchmarks(BenchmarkHarness harness, Map<String, String> options,
+                                                                  BenchmarkStore store) {
+        List<SortAlgorithm> algorithms = parseAlgorithms(options.getOrDefault("algorithms", "all"));
+        List<String> distributions = parseDistributions(options.getOrDefault("distributions", "uniform"));
+        int[] sizes = parseIntList(options.getOrDefault("sizes", "20,400,8000"));
+
+        List<BenchmarkHarness.Result> results = new ArrayList<>();
+        ScratchArena arena = new ScratchArena();
+        BenchmarkHarness.printHeader();
+        for (int size : sizes) {
+            for (String distribution : distributions) {
+                int[] source = InputGenerator.lookup(distribution).generate(size, MAX_RANDOM_VALUE, RANDOM_SEED);
+                for (SortAlgorithm algorithm : algorithms) {
+                    String label = String.format("%s(%s,%d)", algorithm.getDisplayName(), distribution, size);
+                    BenchmarkHarness.Result result = harness.measure(label, new SortWorkload(array -> algorithm.sort(array, arena), source, createVerifier(options)));
+                    BenchmarkHarness.printResult(result);
+                    results.add(result);
+                    if (store != null) {
+                        store.add(algorithm.getDisplayName(), distribution, size, result);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs every algorithm on every distribution and prints, for each size, a matrix with
+     * one row per algorithm and one column per distribution holding the mean ns/op.
+     *
+     * @param harness The harness that measures each combination.
+     * @param options The parsed command-line options.
+     * @return The results, indexed [size][algorithm][distribution].
+     */
+    public static BenchmarkHarness.Result[][][] runDistributionMatrix(BenchmarkHarness harness, Map<String, String> options) {
+        return runDistributionMatrix(harness, options, null);
+    }
+
+    /**
+     * Runs the distribution matrix and also records every result in the store.
+     *
+     * @param harness The harness that measures each combination.
+     * @param options The parsed command-line options.
+     * @param store   The store that receives the results, or null.
+     * @return The results, indexed [size][algorithm][distribution].
+     */
+    public static BenchmarkHarness.Result[][][] runDistributionMatrix(BenchmarkHarness harness, Map<String, String> options,
+                                                                      BenchmarkStore store) {
+        List<SortAlgorithm> algorithms = parseAlgorithms(options.getOrDefault("algorithms", "all"));
+        List<String> distributions = parseDistributions(options.getOrDefault("distributions", "all"));
+        int[] sizes = parseIntList(options.getOrDefault("sizes", "20,400,8000"));
+
+        BenchmarkHarness.Result[][][] matrix = new BenchmarkHarness.Result[sizes.length][algorithms.size()][distributions.size()];
+        ScratchArena arena = new ScratchArena();
+        for (int sizeIndex = 0; sizeIndex < sizes.length; sizeIndex++) {
+            int size = sizes[sizeIndex];
+            for (int column = 0; column < distributions.size(); column++) {
+                int[] source = InputGenerator.lookup(distributions.get(column)).generate(size, MAX_RANDOM_VALUE, RANDOM_SEED);
+                for (int row = 0; row < algorithms.size(); row++) {
+                    SortAlgorithm algorithm = algorithms.get(row);
+                    String label = String.format("%s(%s,%d)", algorithm.getDisplayName(), distributions.get(column), size);
+                    matrix[sizeIndex][row][column] = harness.measure(label, new SortWorkload(array -> algorithm.sort(array, arena), source, createVerifier(options)));
+                    if (store != null) {
+                        store.add(algorithm.getDisplayName(), distributions.get(column), size, matrix[sizeIndex][row][column]);
+                    }
+                }
+            }
+
+            System.out.printf("Sorting Matrix (Array Size: %d, ns/op)\n", size);
+            System.out.printf("%-15s", "Algorithm");
+            for (String distribution : distributions) {
+                System.out.printf(" %14s", distribution);
+            }
+            System.out.println();
+            System.out.println("-".repeat(15 + 15 * distributions.size()));
+            for (int row = 0; row < algorithms.size(); row++) {
+                System.out.printf("%-15s", algorithms.get(row).getDisplayName());
+                for (int column = 0; column < distributions.size(); column++) {
+                    System.out.printf(" %14.1f", matrix[sizeIndex][row][column].getScore());
+                }
+                System.out.println();
+            }
+            System.out.println();
+        }
+        return matrix;
+    }
+
+    /**
+     * Compares the fork-join sorts with their sequential counterparts and with
+     * Arrays.parallelSort on large uniform arrays.
+     *
+     * @param harness The harness that measures each combination.
+     * @param options The parsed command-line options.
+     * @return The results in the order they were printed.
+     */
+    public static List<BenchmarkHarness.Result> runParallelBenchmarks(BenchmarkHarness harness, Map<String, String> options) {
+        int[] sizes = parseIntList(options.getOrDefault("sizes", "1_000_000,10_000_000,100_000_000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int cutoff = Integer.parseInt(options.getOrDefault("cutoff", String.valueOf(ParallelSorts.DEFAULT_SEQUENTIAL_CUTOFF)));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        List<BenchmarkHarness.Result> results = new ArrayList<>();
+        System.out.printf("Parallel sorts on %d threads, sequential cutoff %d\n", threads, cutoff);
+        BenchmarkHarness.printHeader();
+        try {
+            for (int size : sizes) {
+                int[] source = InputDistribution.UNIFORM.generate(size, Integer.MAX_VALUE, RANDOM_SEED);
+                List<String> labels = List.of("MergeSort", "IntroQuickSort", "LsdRadixSort",
+                        "ParMergeSort", "ParQuickSort", "ParRadixSort", "Arrays.parallelSort");
+                List<ToLongFunction<int[]>> sorters = List.of(
+                        SortingPerformance::executeMergeSort,
+                        SortingPerformance::performIntroQuickSort,
+                        RadixSortEngine::performLsdRadixSort,
+                        array -> ParallelSorts.parallelMergeSort(array, cutoff, pool),
+                        array -> ParallelSorts.parallelQuickSort(array, cutoff, pool),
+                        array -> ParallelRadixSort.parallelRadixSort(array, pool),
+                        array -> {
+                            // Invoked from a worker of this pool, parallelSort forks into it instead of the common pool
+                            pool.submit(() -> Arrays.parallelSort(array)).join();
+                            return 0;
+                        });
+                for (int index = 0; index < sorters.size(); index++) {
+                    String label = String.format("%s(%d)", labels.get(index), size);
+                    BenchmarkHarness.Result result = harness.measure(label, new SortWorkload(sorters.get(index), source, createVerifier(options)));
+                    BenchmarkHarness.printResult(result);
+                    results.add(result);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     * Compares the search strategies on a sorted array of even keys, with query mixes in
+     * which the given fraction of lookups hit a key and the rest miss.
+     *
+     * @param harness The harness that measures each combination.
+     * @param options The parsed command-line options.
+     * @return The results in the order they were printed.
+     */
+    public static List<BenchmarkHarness.Result> runSearchBenchmarks(BenchmarkHarness harness, Map<String, String> options) {
+        int[] sizes = parseIntList(options.getOrDefault("sizes", "1_000,1_000_000,10_000_000"));
+        String[] hitRatios = options.getOrDefault("hit-ratios", "0,0.5,0.9").split(",");
+        int queryCount = Integer.parseInt(options.getOrDefault("queries", "4096"));
+
+        List<BenchmarkHarness.Result> results = new ArrayList<>();
+        BenchmarkHarness.printHeader();
+        for (int size : sizes) {
+            Random random = new Random(RANDOM_SEED);
+            int[] sortedArray = new int[size];
+            for (int index = 0; index < size; index++) {
+                sortedArray[index] = random.nextInt(Integer.MAX_VALUE / 2) * 2;
+            }
+            RadixSortEngine.performLsdRadixSort(sortedArray);
+            SearchIndex index = new SearchIndex(sortedArray);
+
+            for (String ratioText : hitRatios) {
+                double hitRatio = Double.parseDouble(ratioText.trim());
+                int[] queries = new int[queryCount];
+                for (int query = 0; query < queryCount; query++) {
+                    queries[query] = size > 0 && random.nextDouble() < hitRatio
+                            ? sortedArray[random.nextInt(size)]
+                            : random.nextInt(Integer.MAX_VALUE / 2) * 2 + 1;
+                }
+                int[] answers = new int[queryCount];
+                List<String> labels = List.of("BinarySearch", "BranchlessLowerBound", "Eytzinger", "EytzingerBatch");
+                List<BenchmarkHarness.Workload> workloads = List.of(
+                        new QueryWorkload(queries, () -> {
+                            long found = 0;
+                            for (int query : queries) {
+                                found += SortingPerformance.performBinarySearch(sortedArray, 0, size - 1, query);
+                            }
+                            return found;
+                        }),
+                        new QueryWorkload(queries, () -> {
+                            long found = 0;
+                            for (int query : queries) {
+                                found += SearchIndex.branchlessLowerBound(sortedArray, query);
+                            }
+                            return found;
+                        }),
+                        new QueryWorkload(queries, () -> {
+                            long found = 0;
+                            for (int query : queries) {
+                                found += index.search(query);
+                            }
+                            return found;
+                        }),
+                        new QueryWorkload(queries, () -> {
+                            index.searchAll(queries, answers);
+                            return answers[0] + answers[queryCount - 1];
+                        }));
+                for (int workload = 0; workload < workloads.size(); workload++) {
+                    String label = String.format("%s(%d,hit=%s)", labels.get(workload), size, ratioText.trim());
+                    BenchmarkHarness.Result result = harness.measure(label, workloads.get(workload));
+                    BenchmarkHarness.printResult(result);
+                    results.add(result);
+                }
+            }
+            BenchmarkHarness.consume(SearchIndex.getPrefetchSink());
+        }
+        return results;
+    }
+
+    /**
+     * Compares the scalar scans with the active VectorScan kernel. Each operation is one
+     * full scan of the array; find-first-equal looks for a value that is not present, as
+     * compareSearchEfficiency does, so every element is examined. A batch repeats the scan
+     * until it has examined about SCAN_ELEMENT_BUDGET elements.
+     *
+     * @param harness The harness that measures each combination.
+     * @param options The parsed command-line options.
+     * @return The results in the order they were printed.
+     */
+    public static List<BenchmarkHarness.Result> runScanBenchmarks(BenchmarkHarness harness, Map<String, String> options) {
+        int[] sizes = parseIntList(options.getOrDefault("sizes", "16,64,256,1024,8000,65536"));
+        VectorScan.IntScanKernel scalar = VectorScan.scalar();
+        VectorScan.IntScanKernel active = VectorScan.active();
+        System.out.println("Vector API kernel " + (VectorScan.isVectorized() ? "active" : "not available, both columns are scalar"));
+
+        List<BenchmarkHarness.Result> results = new ArrayList<>();
+        BenchmarkHarness.printHeader();
+        for (int size : sizes) {
+            int[] source = InputDistribution.UNIFORM.generate(size, MAX_RANDOM_VALUE, RANDOM_SEED);
+            int[][] single = {source};
+            List<String> labels = List.of("LinearSearch", "FindFirstEqual.simd", "Max.scalar", "Max.simd",
+                    "ArgMin.scalar", "ArgMin.simd");
+            List<LongSupplier> scans = List.of(
+                    () -> SortingPerformance.performLinearSearch(source, -1),
+                    () -> active.findFirstEqual(source, 0, size, -1),
+                    () -> scalar.max(source, 0, size),
+                    () -> active.max(source, 0, size),
+                    () -> scalar.argMin(source, 0, size),
+                    () -> active.argMin(source, 0, size));
+            for (int index = 0; index < scans.size(); index++) {
+                String label = String.format("%s(%d)", labels.get(index), size);
+                LongSupplier scan = scans.get(index);
+                BenchmarkHarness.Result result = harness.measure(label, new ScanWorkload(scan, size));
+                BenchmarkHarness.printResult(result);
+                results.add(result);
+            }
+            if (size <= 8000) {
+                for (VectorScan.IntScanKernel kernel : List.of(scalar, active)) {
+                    String label = String.format("SelectionSort.%s(%d)", kernel == scalar ? "scalar" : "simd", size);
+                    BenchmarkHarness.Result result = harness.measure(label,
+                            new SortWorkload(array -> selectionSortWithArgMin(array, kernel), single[0],
+                                    createVerifier(options)));
+                    BenchmarkHarness.printResult(result);
+                    results.add(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Measures the cost of answering order-statistic queries without a full sort: the
+     * median by quickselect, the k smallest by partialSort and by the streaming heap, with
+     * a full IntroQuickSort as the baseline.
+     *
+     * @param harness The harness that measures each combination.
+     * @param options The parsed command-line options.
+     * @return The results in the order they were printed.
+     */
+    public static List<BenchmarkHarness.Result> runSelectionBenchmarks(BenchmarkHarness harness, Map<String, String> options) {
+        int[] sizes = parseIntList(options.getOrDefault("sizes", "1000,100000,1000000"));
+        int k = Integer.parseInt(options.getOrDefault("k", "100"));
+
+        List<BenchmarkHarness.Result> results = new ArrayList<>();
+        BenchmarkHarness.printHeader();
+        for (int size : sizes) {
+            int[] source = InputDistribution.UNIFORM.generate(size, MAX_RANDOM_VALUE, RANDOM_SEED);
+            int kept = Math.min(k, size);
+            List<String> labels = List.of("IntroQuickSort", "QuickSelect(median)", "PartialSort(k=" + kept + ")",
+                    "StreamingTopK(k=" + kept + ")");
+            List<ToLongFunction<int[]>> selectors = List.of(
+                    SortingPerformance::performIntroQuickSort,
+                    array -> Selection.performQuickSelect(array, array.length / 2),
+                    array -> Selection.partialSort(array, kept),
+                    array -> {
+                        StreamingTopK topK = new StreamingTopK(kept);
+                        for (int value : array) {
+                            topK.offer(value);
+                        }
+                        return topK.getComparisonCount() + topK.kthSmallest();
+                    });
+            for (int index = 0; index < selectors.size(); index++) {
+                String label = String.format("%s(%d)", labels.get(index), size);
+                BenchmarkHarness.Result result = harness.measure(label, new SortWorkload(selectors.get(index), source));
+                BenchmarkHarness.printResult(result);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compares the primitive long[] and double[] sorts and the argsort with Arrays.sort and
+     * with the boxing route that callers without them have to take. The boxed rows include
+     * the boxing and unboxing, since that is part of what the primitive sorts save.
+     *
+     * @param harness The harness that measures each combination.
+     * @param options The parsed command-line options.
+     * @return The results in the order they were printed.
+     */
+    public static List<BenchmarkHarness.Result> runPrimitiveBenchmarks(BenchmarkHarness harness, Map<String, String> options) {
+        int[] sizes = parseIntList(options.getOrDefault("sizes", "1000,100000,1000000"));
+
+        List<BenchmarkHarness.Result> results = new ArrayList<>();
+        BenchmarkHarness.printHeader();
+        for (int size : sizes) {
+            Random random = new Random(RANDOM_SEED);
+            long[] longSource = new long[size];
+            double[] doubleSource = new double[size];
+            for (int index = 0; index < size; index++) {
+                longSource[index] = random.nextLong();
+                doubleSource[index] = random.nextGaussian() * 1e6;
+            }
+            int[] identity = new int[size];
+            for (int index = 0; index < size; index++) {
+                identity[index] = index;
+            }
+
+            List<String> longLabels = List.of("LongQuickSort", "LongMergeSort", "LongRadixSort", "Arrays.sort(long[])",
+                    "BoxedSort(Long[])");
+            List<ToLongFunction<long[]>> longSorters = List.of(
+                    PrimitiveSorts::performQuickSort,
+                    PrimitiveSorts::executeMergeSort,
+                    PrimitiveSorts::performRadixSort,
+                    array -> {
+                        Arrays.sort(array);
+                        return array.length;
+                    },
+                    array -> {
+                        Long[] boxed = new Long[array.length];
+                        for (int index = 0; index < array.length; index++) {
+                            boxed[index] = array[index];
+                        }
+                        Arrays.sort(boxed);
+                        for (int index = 0; index < array.length; index++) {
+                            array[index] = boxed[index];
+                        }
+                        return array.length;
+                    });
+            for (int index = 0; index < longSorters.size(); index++) {
+                results.add(measurePrimitive(harness, longLabels.get(index), size,
+                        new PrimitiveSortWorkload<>(longSorters.get(index), longSource, long[]::clone)));
+            }
+
+            List<String> doubleLabels = List.of("DoubleQuickSort", "DoubleMergeSort", "DoubleRadixSort",
+                    "Arrays.sort(double[])", "BoxedSort(Double[])");
+            List<ToLongFunction<double[]>> doubleSorters = List.of(
+                    PrimitiveSorts::performQuickSort,
+                    PrimitiveSorts::executeMergeSort,
+                    PrimitiveSorts::performRadixSort,
+                    array -> {
+                        Arrays.sort(array);
+                        return array.length;
+                    },
+                    array -> {
+                        Double[] boxed = new Double[array.length];
+                        for (int index = 0; index < array.length; index++) {
+                            boxed[index] = array[index];
+                        }
+                        Arrays.sort(boxed);
+                        for (int index = 0; index < array.length; index++) {
+                            array[index] = boxed[index];
+                        }
+                        return array.length;
+                    });
+            for (int index = 0; index < doubleSorters.size(); index++) {
+                results.add(measurePrimitive(harness, doubleLabels.get(index), size,
+                        new PrimitiveSortWorkload<>(doubleSorters.get(index), doubleSource, double[]::clone)));
+            }
+
+            List<String> argLabels = List.of("ArgSort(long keys)", "BoxedArgSort(Integer[])");
+            List<ToLongFunction<int[]>> argSorters = List.of(
+                    indices -> PrimitiveSorts.performArgSort(longSource, indices),
+                    indices -> {
+                        Integer[] boxed = new Integer[indices.length];
+                        for (int index = 0; index < indices.length; index++) {
+                            boxed[index] = indices[index];
+                        }
+                        Arrays.sort(boxed, Comparator.comparingLong(position -> longSource[position]));
+                        for (int index = 0; index < indices.length; index++) {
+                            indices[index] = boxed[index];
+                        }
+                        return indices.length;
+                    });
+            for (int index = 0; index < argSorters.size(); index++) {
+                results.add(measurePrimitive(harness, argLabels.get(index), size,
+                        new SortWorkload(argSorters.get(index), identity)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Compares the sorting networks with InsertionSort, which they replace at the leaves
+     * of the recursive sorts, and with a whole IntroQuickSort, printing ns per element.
+     *
+     * @param harness The harness that measures each combination.
+     * @param options The parsed command-line options.
+     * @return The results, indexed [size][sorter]; null where a network cannot sort the size.
+     */
+    public static BenchmarkHarness.Result[][] runNetworkBenchmarks(BenchmarkHarness harness, Map<String, String> options) {
+        int[] sizes = parseIntList(options.getOrDefault("sizes", "4,8,12,16,20,24,32,48,64"));
+        List<String> labels = List.of("InsertionSort", "Network", VectorScan.isVectorized() ? "NetworkSimd" : "NetworkSimd(off)",
+                "IntroQuickSort");
+        List<ToLongFunction<int[]>> sorters = List.of(
+                SortingPerformance::performInsertionSort,
+                array -> SortingNetworks.sortRangeScalar(array, 0, array.length - 1),
+                array -> SortingNetworks.sortRange(array, 0, array.length - 1),
+                SortingPerformance::performIntroQuickSort);
+
+        BenchmarkHarness.Result[][] results = new BenchmarkHarness.Result[sizes.length][sorters.size()];
+        for (int sizeIndex = 0; sizeIndex < sizes.length; sizeIndex++) {
+            int size = sizes[sizeIndex];
+            int[] source = InputDistribution.UNIFORM.generate(size, MAX_RANDOM_VALUE, RANDOM_SEED);
+            for (int index = 0; index < sorters.size(); index++) {
+                boolean network = index == 1 || index == 2;
+                if (network && size > SortingNetworks.MAX_NETWORK_SIZE) continue;
+                String label = String.format("%s(%d)", labels.get(index), size);
+                results[sizeIndex][index] = harness.measure(label, new SortWorkload(sorters.get(index), source, createVerifier(options)));
+            }
+        }
+
+        System.out.println("Small-Array Sorting (uniform, ns per element)");
+        System.out.println("=".repeat(20 + 18 * labels.size()));
+        System.out.printf("%-8s %11s", "Size", "Comparators");
+        for (String label : labels) {
+            System.out.printf(" %17s", label);
+        }
+        System.out.println();
+        System.out.println("-".repeat(20 + 18 * labels.size()));
+        for (int sizeIndex = 0; sizeIndex < sizes.length; sizeIndex++) {
+            int size = sizes[sizeIndex];
+            String comparators = size <= SortingNetworks.MAX_NETWORK_SIZE
+                    ? Integer.toString(SortingNetworks.comparatorCount(size)) : "-";
+            System.out.printf("%-8d %11s", size, comparators);
+            for (BenchmarkHarness.Result result : results[sizeIndex]) {
+                System.out.printf(" %17s", result == null ? "-" : String.format("%.2f", result.getScore() / size));
+            }
+            System.out.println();
+        }
+        System.out.println("-".repeat(20 + 18 * labels.size()));
+        return results;
+    }
+
+    /**
+     * Prints what SortMetrics counts for one sort of every algorithm and, with --perf on
+     * Linux, the hardware counters perf reads while the algorithm sorts repeatedly.
+     *
+     * @param options The parsed command-line options.
+     * @throws IOException If perf is requested but fails.
+     */
+    public static void runMetricsReport(Map<String, String> options) throws IOException {
+        List<SortAlgorithm> algorithms = parseAlgorithms(options.getOrDefault("algorithms", "all"));
+        List<String> distributions = parseDistributions(options.getOrDefault("distributions", "uniform"));
+        int[] sizes = parseIntList(options.getOrDefault("sizes", "1000,10000"));
+        long timeMillis = Long.parseLong(options.getOrDefault("time", "200"));
+        String[] events = options.getOrDefault("events", PerfStat.DEFAULT_EVENTS).split(",");
+        boolean perf = Boolean.parseBoolean(options.getOrDefault("perf", "false"));
+        if (perf && !PerfStat.isAvailable()) {
+            System.out.println("perf is not available; showing the software counters only.");
+            perf = false;
+        }
+        if (!SortMetrics.ENABLED) {
+            System.out.println("The counters are compiled out (-Dsort.metrics=false) and read as zero.");
+        }
+
+        ScratchArena arena = new ScratchArena();
+        for (int size : sizes) {
+            for (String distribution : distributions) {
+                int[] source = InputGenerator.lookup(distribution).generate(size, MAX_RANDOM_VALUE, RANDOM_SEED);
+                double nLogN = size * (Math.log(Math.max(2, size)) / Math.log(2));
+                int width = 71 + (perf ? 16 * events.length : 0);
+                System.out.printf("Sort Metrics (%s, Array Size: %d)\n", distribution, size);
+                System.out.println("=".repeat(width));
+                System.out.printf("%-15s %14s %14s %12s %13s", "Algorithm", "Comparisons", "Moves", "Aux Bytes", "Cmp/(n lg n)");
+                if (perf) {
+                    for (String event : events) {
+                        System.out.printf(" %15s", event.trim() + "/sort");
+                    }
+                }
+                System.out.println();
+                System.out.println("-".repeat(width));
+                for (SortAlgorithm algorithm : algorithms) {
+                    int[] working = source.clone();
+                    algorithm.sort(working, arena);
+                    SortMetrics metrics = SortMetrics.current();
+                    System.out.printf("%-15s %14d %14d %12d %13.3f", algorithm.getDisplayName(), metrics.getComparisons(),
+                            metrics.getMoves(), metrics.getAuxiliaryBytes(), metrics.getComparisons() / nLogN);
+                    if (perf) {
+                        sortRepeatedly(algorithm, arena, source, working, timeMillis);
+                        PerfStat counter = PerfStat.attach(String.join(",", events));
+                        long sorts = sortRepeatedly(algorithm, arena, source, working, timeMillis);
+                        Map<String, Long> counts = counter.stop();
+                        for (String event : events) {
+                            Long count = counts.get(event.trim());
+                            System.out.printf(" %15s", count == null ? "n/a" : String.format("%.1f", (double) count / sorts));
+                        }
+                    }
+                    System.out.println();
+                }
+                System.out.println("-".repeat(width));
+                System.out.println();
+            }
+        }
+    }
+
+    private static long sortRepeatedly(SortAlgorithm algorithm, ScratchArena arena, int[] source, int[] working,
+                                       long timeMillis) {
+        long deadline = System.nanoTime() + timeMillis * 1_000_000L;
+        long sorts = 0;
+        do {
+            System.arraycopy(source, 0, working, 0, source.length);
+            BenchmarkHarness.consume(algorithm.sort(working, arena));
+            sorts++;
+        } while (System.nanoTime() < deadline);
+        return sorts;
+    }
+
+    private static BenchmarkHarness.Result measurePrimitive(BenchmarkHarness harness, String name, int size,
+                                                            BenchmarkHarness.Workload workload) {
+        BenchmarkHarness.Result result = harness.measure(String.format("%s(%d)", name, size), workload);
+        BenchmarkHarness.printResult(result);
+        return result;
+    }
+
+    private static long selectionSortWithArgMin(int[] arr, VectorScan.IntScanKernel kernel) {
+        long comparisonCounter = 0;
+        for (int index = 0; index < arr.length - 1; index++) {
+            int smallestIndex = kernel.argMin(arr, index, arr.length);
+            comparisonCounter += arr.length - index - 1;
+            int temp = arr[index];
+            arr[index] = arr[smallestIndex];
+            arr[smallestIndex] = temp;
+        }
+        return comparisonCounter;
+    }
+
+    /**
+     * A workload that runs one pass over a fixed set of queries per batch; every query
+     * counts as one operation.
+     */
+    static final class QueryWorkload implements BenchmarkHarness.Workload {
+        private final int[] queries;
+        private final LongSupplier pass;
+
+        QueryWorkload(int[] queries, LongSupplier pass) {
+            this.queries = queries;
+            this.pass = pass;
+        }
+
+        @Override
+        public int prepareBatch() {
+            return queries.length;
+        }
+
+        @Override
+        public long runBatch() {
+            return pass.getAsLong();
+        }
+    }
+
+    /**
+     * A workload that repeats one scan of an array enough times per batch that the batch
+     * lasts far longer than the resolution of System.nanoTime; every scan counts as one
+     * operation.
+     */
+    static final class ScanWorkload implements BenchmarkHarness.Workload {
+        private final LongSupplier scan;
+        private final int scansPerBatch;
+
+        ScanWorkload(LongSupplier scan, int length) {
+            this.scan = scan;
+            this.scansPerBatch = Math.max(1, SCAN_ELEMENT_BUDGET / Math.max(1, length));
+        }
+
+        @Override
+        public int prepareBatch() {
+            return scansPerBatch;
+        }
+
+        @Override
+        public long runBatch() {
+            long result = 0;
+            for (int repeat = 0; repeat < scansPerBatch; repeat++) {
+                result += scan.getAsLong();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A workload that sorts a batch of fresh copies of one source array. The copies are
+     * allocated once and refilled outside the timed region, so the timed region contains
+     * nothing but the sort calls themselves. With a verifier, the sorted copies of each
+     * batch are verified (sampled) before they are refilled, which is also untimed.
+     */
+    static final class SortWorkload implements BenchmarkHarness.Workload {
+        private final ToLongFunction<int[]> sorter;
+        private final int[] source;
+        private final int[][] workingCopies;
+        private final SortVerifier verifier;
+        private final long sourceFingerprint;
+        private boolean batchSorted;
+
+        SortWorkload(ToLongFunction<int[]> sorter, int[] source) {
+            this(sorter, source, null);
+        }
+
+        SortWorkload(ToLongFunction<int[]> sorter, int[] source, SortVerifier verifier) {
+            this.sorter = sorter;
+            this.source = source;
+            this.verifier = verifier;
+            this.sourceFingerprint = verifier != null ? SortVerifier.fingerprint(source) : 0;
+            int copies = Math.max(1, Math.min(1024, BATCH_ELEMENT_BUDGET / Math.max(1, source.length)));
+            this.workingCopies = new int[copies][source.length];
+        }
+
+        @Override
+        public int prepareBatch() {
+            if (verifier != null && batchSorted) {
+                for (int[] copy : workingCopies) {
+                    if (!verifier.verify(copy, sourceFingerprint)) {
+                        throw new IllegalStateException("Sort produced unsorted output or lost values");
+                    }
+                }
+            }
+            for (int[] copy : workingCopies) {
+                System.arraycopy(source, 0, copy, 0, source.length);
+            }
+            batchSorted = false;
+            return workingCopies.length;
+        }
+
+        @Override
+        public long runBatch() {
+            long result = 0;
+            for (int[] copy : workingCopies) {
+                result += sorter.applyAsLong(copy);
+                if (copy.length > 0) {
+                    result += copy[0] ^ copy[copy.length - 1];
+                }
+            }
+            batchSorted = true;
+            return result;
+        }
+    }
+
+    /**
+     * A workload like SortWorkload for any primitive array type, used for the long[] and
+     * double[] sorts. The copies are made once with the cloner and refilled with
+     * System.arraycopy outside the timed region.
+     */
+    static final class PrimitiveSortWorkload<A> implements BenchmarkHarness.Workload {
+        private final ToLongFunction<A> sorter;
+        private final A source;
+        private final int length;
+        private final List<A> workingCopies = new ArrayList<>();
+
+        PrimitiveSortWorkload(ToLongFunction<A> sorter, A source, UnaryOperator<A> cloner) {
+            this.sorter = sorter;
+            this.source = source;
+            this.length = Array.getLength(source);
+            int copies = Math.max(1, Math.min(1024, BATCH_ELEMENT_BUDGET / Math.max(1, length)));
+            for (int copy = 0; copy < copies; copy++) {
+                workingCopies.add(cloner.apply(source));
+            }
+        }
+
+        @Override
+        public int prepareBatch() {
+            for (A copy : workingCopies) {
+                System.arraycopy(source, 0, copy, 0, length);
+            }
+            return workingCopies.size();
+        }
+
+        @Override
+        public long runBatch() {
+            long result = 0;
+            for (A copy : workingCopies) {
+                result += sorter.applyAsLong(copy);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Parses a comma-separated list of algorithm names; "all" stands for every algorithm.
+     *
+     * @param list The list to parse.
+     * @return The algorithms in order.
+     */
+    static List<SortAlgorithm> parseAlgorithms(String list) {
+        List<SortAlgorithm> algorithms = new ArrayList<>();
+        for (String name : list.split(",")) {
+            if (name.trim().equalsIgnoreCase("all")) {
+                algorithms.addAll(List.of(SortAlgorithm.values()));
+            } else {
+                algorithms.add(SortAlgorithm.fromName(name.trim()));
+            }
+        }
+        return algorithms;
+    }
+
+    /**
+     * Parses a comma-separated list of generator names; "all" stands for every registered
+     * generator. Every name is checked against the registry straight away.
+     *
+     * @param list The list to parse.
+     * @return The generator names in order.
+     */
+    static List<String> parseDistributions(String list) {
+        List<String> distributions = new ArrayList<>();
+        for (String name : list.split(",")) {
+            if (name.trim().equalsIgnoreCase("all")) {
+                distributions.addAll(InputGenerator.names());
+            } else {
+                InputGenerator.lookup(name.trim());
+                distributions.add(name.trim().toLowerCase());
+            }
+        }
+        return distributions;
+    }
+
+    /**
+     * Builds a harness from the --warmup, --iterations and --time options.
+     *
+     * @param options The parsed command-line options.
+     * @return A harness configured from the options, or with defaults where they are absent.
+     */
+    static BenchmarkHarness createHarness(Map<String, String> options) {
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "10"));
+        long timeMillis = Long.parseLong(options.getOrDefault("time", "200"));
+        return new BenchmarkHarness(warmup, iterations, timeMillis);
+    }
+
+    /**
+     * Creates the verifier for one sort workload from the --verify option, the sample
+     * interval of SortVerifier; --verify=0 turns verification off.
+     *
+     * @param options The parsed command-line options.
+     * @return A new verifier, or null if verification is off.
+     */
+    static SortVerifier createVerifier(Map<String, String> options) {
+        int sampleInterval = Integer.parseInt(options.getOrDefault("verify", "16"));
+        return sampleInterval > 0 ? new SortVerifier(sampleInterval) : null;
+    }
+
+    /**
+     * Parses arguments of the form --name=value into a map. A bare --name maps to "true".
+     *
+     * @param args The command-line arguments.
+     * @return The options keyed by name.
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Options must look like --name=value: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Parses a comma-separated list of integers. Underscores are allowed as digit separators.
+     *
+     * @param list The list to parse, for example "20,400,8_000".
+     * @return The parsed integers in order.
+     */
+    static int[] parseIntList(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int index = 0; index < parts.length; index++) {
+            values[index] = Integer.parseInt(parts[index].trim().replace("_", ""));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,145 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The SortLoadGenerator class drives a running SortService for local testing. It opens
+ * --connections connections (default 16), each on its own virtual thread, and sends
+ * --requests requests (default 2000) on each, one after another. Most requests sort a
+ * random array of 1 to --small elements (default 64); a fraction --large-ratio (default
+ * 0.01) sort --large elements (default 100000) instead, and one request in --search-every
+ * (default 10) is a SEARCH with 16 keys.
+ *
+ * Every response is checked with SortVerifier, and at the end the generator prints the
+ * client-side throughput and latency percentiles followed by the service's own report.
+ * Use the same --unix or --port option as the service.
+ */
+public final class SortLoadGenerator {
+
+    // Seed of the first connection's random generator; each connection gets its own split
+    private static final long RANDOM_SEED = 123456;
+
+    // Number of keys sent with each SEARCH request
+    private static final int SEARCH_KEYS = 16;
+
+    private SortLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = SortBenchmark.parseOptions(args);
+        SocketAddress address = SortProtocol.addressFrom(options);
+        int connections = Integer.parseInt(options.getOrDefault("connections", "16"));
+        int requestsPerConnection = Integer.parseInt(options.getOrDefault("requests", "2000"));
+        int smallSize = Integer.parseInt(options.getOrDefault("small", "64"));
+        int largeSize = Integer.parseInt(options.getOrDefault("large", "100000"));
+        double largeRatio = Double.parseDouble(options.getOrDefault("large-ratio", "0.01"));
+        int searchEvery = Integer.parseInt(options.getOrDefault("search-every", "10"));
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        AtomicLong elements = new AtomicLong();
+        SplittableRandom seeds = new SplittableRandom(RANDOM_SEED);
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            for (int connection = 0; connection < connections; connection++) {
+                SplittableRandom random = seeds.split();
+                running.add(clients.submit(() -> {
+                    try (SocketChannel channel = SocketChannel.open(address)) {
+                        DataInputStream input = new DataInputStream(new BufferedInputStream(SortProtocol.inputStream(channel)));
+                        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(SortProtocol.outputStream(channel)));
+                        for (int request = 0; request < requestsPerConnection; request++) {
+                            int size = random.nextDouble() < largeRatio ? largeSize : 1 + random.nextInt(smallSize);
+                            int[] values = random.ints(size, 0, 100000).toArray();
+                            long sent = System.nanoTime();
+                            if (searchEvery > 0 && request % searchEvery == 0) {
+                                search(input, output, values, random);
+                            } else {
+                                sort(input, output, values);
+                            }
+                            latencies.record(System.nanoTime() - sent);
+                            elements.addAndGet(size);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long requests = latencies.getCount();
+
+        System.out.printf("Client: %d requests, %d elements in %.2f s (%.0f requests/s, %.2f million elements/s)\n",
+                requests, elements.get(), seconds, requests / seconds, elements.get() / seconds / 1e6);
+        System.out.println("Latency: " + latencies.summary());
+        System.out.println(fetchStats(address));
+    }
+
+    private static void sort(DataInputStream input, DataOutputStream output, int[] values) throws IOException {
+        long expectedFingerprint = SortVerifier.fingerprint(values);
+        output.writeInt(SortProtocol.OP_SORT);
+        SortProtocol.writeIntArray(output, values);
+        output.flush();
+        int[] sorted = readResponse(input);
+        if (sorted.length != values.length || !SortVerifier.isSortedPermutation(sorted, expectedFingerprint)) {
+            throw new IllegalStateException("Service returned a wrongly sorted array of " + values.length + " elements");
+        }
+    }
+
+    private static void search(DataInputStream input, DataOutputStream output, int[] values, SplittableRandom random)
+            throws IOException {
+        int[] keys = new int[SEARCH_KEYS];
+        for (int index = 0; index < keys.length; index++) {
+            keys[index] = random.nextBoolean() ? values[random.nextInt(values.length)] : -1 - random.nextInt(100);
+        }
+        output.writeInt(SortProtocol.OP_SEARCH);
+        SortProtocol.writeIntArray(output, values);
+        SortProtocol.writeIntArray(output, keys);
+        output.flush();
+        int[] positions = readResponse(input);
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (int index = 0; index < keys.length; index++) {
+            int position = positions[index];
+            boolean present = Arrays.binarySearch(sorted, keys[index]) >= 0;
+            if (present ? position < 0 || sorted[position] != keys[index] : position != -1) {
+                throw new IllegalStateException("Service answered a search wrongly for key " + keys[index]);
+            }
+        }
+    }
+
+    private static int[] readResponse(DataInputStream input) throws IOException {
+        int status = input.readInt();
+        if (status != SortProtocol.STATUS_OK) {
+            throw new IOException("Service error: " + input.readUTF());
+        }
+        return SortProtocol.readIntArray(input);
+    }
+
+    private static String fetchStats(SocketAddress address) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            DataInputStream input = new DataInputStream(SortProtocol.inputStream(channel));
+            DataOutputStream output = new DataOutputStream(SortProtocol.outputStream(channel));
+            output.writeInt(SortProtocol.OP_STATS);
+            output.flush();
+            if (input.readInt() != SortProtocol.STATUS_OK) {
+                throw new IOException("Service error: " + input.readUTF());
+            }
+            return input.readUTF();
+        }
+    }
+}
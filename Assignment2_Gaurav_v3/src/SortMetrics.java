@@ -0,0 +1,226 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The SortMetrics class counts the work a sort does with one definition for every
+ * algorithm, unlike the long each sort returns, whose meaning varies (QuickSort counts
+ * high - low per partition, the radix sorts count digit operations). Three counters are
+ * kept per thread:
+ * <ul>
+ *   <li>comparisons: every comparison between two keys, or between a key and a pivot.
+ *       The radix sorts make none.</li>
+ *   <li>moves: every element written to the array or to a scratch array, so a swap is
+ *       two moves and a merge pass writes each element twice (out and back).</li>
+ *   <li>auxiliary bytes: the size of the scratch arrays an algorithm works in, whether it
+ *       allocated them or borrowed them from a ScratchArena.</li>
+ * </ul>
+ * The sorts add to the counters once per partition, merge, pass or heap, never per element
+ * or per sift, so the hot loops only bump local variables.
+ *
+ * The counters are on unless the JVM is started with -Dsort.metrics=false. ENABLED is a
+ * static final constant, so with the property off the JIT removes every counting branch
+ * and the sorts run the uninstrumented code; running a benchmark with and without the
+ * property compares the two. While they are on, every sort through SortAlgorithm, the
+ * PrimitiveSorts and Selection methods and each StreamingTopK.addAll also emit a SortEvent
+ * when a Java Flight Recorder recording is running, for example with
+ * -XX:StartFlightRecording:filename=sorts.jfr.
+ *
+ * The parallel sorts do most of their work on pool threads. Each of their tasks keeps a
+ * SortMetrics of its own and moves the pool thread's counts into it with takeFromThread
+ * before it joins another task and when it finishes, so the counts travel up the task tree
+ * with the results; the calling thread adds those of the root task with add once the pool
+ * has finished.
+ */
+public final class SortMetrics {
+
+    // Whether the counters are compiled in; -Dsort.metrics=false is the fast build
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("sort.metrics", "true"));
+
+    // The counters of each thread
+    private static final ThreadLocal<SortMetrics> THREAD_METRICS = ThreadLocal.withInitial(SortMetrics::new);
+
+    // Lets a sort check for a running recording before creating its event
+    private static final EventType SORT_EVENT_TYPE = EventType.getEventType(SortEvent.class);
+
+    private long comparisons;
+    private long moves;
+    private long auxiliaryBytes;
+
+    /**
+     * The Flight Recorder event emitted for every sort run through SortAlgorithm,
+     * PrimitiveSorts, Selection or StreamingTopK.addAll.
+     */
+    @Name("sorting.Sort")
+    @Label("Sort")
+    @Category("Sorting")
+    @Description("One call of a sorting algorithm, with the work it counted")
+    static final class SortEvent extends Event {
+        @Label("Algorithm")
+        String algorithm;
+
+        @Label("Size")
+        int size;
+
+        @Label("Comparisons")
+        long comparisons;
+
+        @Label("Moves")
+        long moves;
+
+        @Label("Auxiliary Memory")
+        @DataAmount
+        long auxiliaryBytes;
+    }
+
+    /**
+     * Creates counters of zero that belong to no thread, for a fork-join task to gather its
+     * work in.
+     */
+    SortMetrics() {
+    }
+
+    /**
+     * Returns the counters of the calling thread.
+     *
+     * @return The thread's counters.
+     */
+    public static SortMetrics current() {
+        return THREAD_METRICS.get();
+    }
+
+    /**
+     * Adds to the calling thread's comparison count.
+     *
+     * @param count The number of comparisons made.
+     */
+    public static void countComparisons(long count) {
+        if (ENABLED) {
+            THREAD_METRICS.get().comparisons += count;
+        }
+    }
+
+    /**
+     * Adds to the calling thread's move count.
+     *
+     * @param count The number of elements written.
+     */
+    public static void countMoves(long count) {
+        if (ENABLED) {
+            THREAD_METRICS.get().moves += count;
+        }
+    }
+
+    /**
+     * Adds comparisons and moves to the calling thread's counts in one lookup.
+     *
+     * @param comparisonCount The number of comparisons made.
+     * @param moveCount       The number of elements written.
+     */
+    public static void countWork(long comparisonCount, long moveCount) {
+        if (ENABLED) {
+            SortMetrics metrics = THREAD_METRICS.get();
+            metrics.comparisons += comparisonCount;
+            metrics.moves += moveCount;
+        }
+    }
+
+    /**
+     * Adds to the calling thread's auxiliary memory.
+     *
+     * @param bytes The size of the scratch space used, in bytes.
+     */
+    public static void countAuxiliaryBytes(long bytes) {
+        if (ENABLED) {
+            THREAD_METRICS.get().auxiliaryBytes += bytes;
+        }
+    }
+
+    /**
+     * Starts measuring one sort on the calling thread: the counters are reset and, if a
+     * recording is running, the sort's event is started.
+     *
+     * @return The started event, or null if no recording wants it.
+     */
+    static SortEvent begin() {
+        if (!ENABLED) return null;
+        THREAD_METRICS.get().reset();
+        if (!SORT_EVENT_TYPE.isEnabled()) return null;
+        SortEvent event = new SortEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes measuring a sort started with begin, committing its event with the counts.
+     * Afterwards current() still holds the counts of the sort.
+     *
+     * @param event     The event returned by begin, or null.
+     * @param algorithm The name recorded in the event.
+     * @param size      The number of elements sorted.
+     */
+    static void end(SortEvent event, String algorithm, int size) {
+        if (event == null) return;
+        event.end();
+        if (event.shouldCommit()) {
+            SortMetrics metrics = THREAD_METRICS.get();
+            event.algorithm = algorithm;
+            event.size = size;
+            event.comparisons = metrics.comparisons;
+            event.moves = metrics.moves;
+            event.auxiliaryBytes = metrics.auxiliaryBytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Moves the calling thread's counts into these counters and sets the thread's back to
+     * zero. A fork-join task calls it before joining and when it finishes, because a pool
+     * thread waiting in join may run other tasks, whose counts must not be mixed in.
+     */
+    void takeFromThread() {
+        if (ENABLED) {
+            SortMetrics metrics = THREAD_METRICS.get();
+            add(metrics);
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Adds other counters to these, as a task does with those of a task it joined.
+     *
+     * @param other The counters to add.
+     */
+    void add(SortMetrics other) {
+        if (ENABLED) {
+            comparisons += other.comparisons;
+            moves += other.moves;
+            auxiliaryBytes += other.auxiliaryBytes;
+        }
+    }
+
+    /**
+     * Sets all three counters of this thread back to zero.
+     */
+    public void reset() {
+        comparisons = 0;
+        moves = 0;
+        auxiliaryBytes = 0;
+    }
+
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getAuxiliaryBytes() {
+        return auxiliaryBytes;
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+
+/**
+ * The SortProtocol class defines the binary protocol spoken between SortService and its
+ * clients, and holds the helpers both sides use to read and write it. All numbers are
+ * big-endian ints.
+ * <pre>
+ *   request  SORT:   op=1, n, n values             response: status=0, n, n sorted values
+ *   request  SEARCH: op=2, n, n values, q, q keys  response: status=0, q, q indices
+ *   request  STATS:  op=3                          response: status=0, UTF report
+ *   any failed request                             response: status=1, UTF message
+ * </pre>
+ * SEARCH sorts the values and answers, for each key, its index in the sorted values or -1,
+ * with the same contract as performBinarySearch. A connection carries any number of
+ * requests, one after another, and ends when the client closes it.
+ */
+public final class SortProtocol {
+
+    public static final int OP_SORT = 1;
+    public static final int OP_SEARCH = 2;
+    public static final int OP_STATS = 3;
+
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_ERROR = 1;
+
+    // Largest array accepted in one request, so a bad length cannot exhaust the heap
+    public static final int MAX_ELEMENTS = 1 << 26;
+
+    // TCP port used when neither --port nor --unix is given
+    public static final int DEFAULT_PORT = 9090;
+
+    private SortProtocol() {
+    }
+
+    /**
+     * Reads a length-prefixed int array.
+     *
+     * @param input The stream to read from.
+     * @return The array.
+     * @throws IOException If the stream ends early or the length is out of range.
+     */
+    public static int[] readIntArray(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > MAX_ELEMENTS) {
+            throw new IOException("Array length out of range: " + length);
+        }
+        byte[] bytes = new byte[length * Integer.BYTES];
+        input.readFully(bytes);
+        int[] values = new int[length];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Writes a length-prefixed int array.
+     *
+     * @param output The stream to write to.
+     * @param values The array to write.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void writeIntArray(DataOutputStream output, int[] values) throws IOException {
+        byte[] bytes = new byte[values.length * Integer.BYTES];
+        ByteBuffer.wrap(bytes).asIntBuffer().put(values);
+        output.writeInt(values.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Opens an input stream that reads straight from a socket channel. Channels.newInputStream
+     * is not used because, for Unix domain sockets, it holds a monitor while blocked in a
+     * read, which pins the carrier of a virtual thread and can stall every other connection.
+     *
+     * @param channel A connected channel in blocking mode.
+     * @return The stream; closing it closes the channel.
+     */
+    public static InputStream inputStream(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                return length == 0 ? 0 : channel.read(ByteBuffer.wrap(bytes, offset, length));
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    /**
+     * Opens an output stream that writes straight to a socket channel, for the same reason
+     * as inputStream.
+     *
+     * @param channel A connected channel in blocking mode.
+     * @return The stream; closing it closes the channel.
+     */
+    public static OutputStream outputStream(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int value) throws IOException {
+                write(new byte[] {(byte) value}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    /**
+     * Works out the address to listen on or connect to from the --unix and --port options.
+     *
+     * @param options The parsed command-line options.
+     * @return A Unix domain socket address if --unix is given, otherwise a loopback TCP address.
+     */
+    public static SocketAddress addressFrom(Map<String, String> options) {
+        String unixPath = options.get("unix");
+        if (unixPath != null) {
+            return UnixDomainSocketAddress.of(unixPath);
+        }
+        int port = Integer.parseInt(options.getOrDefault("port", Integer.toString(DEFAULT_PORT)));
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+}
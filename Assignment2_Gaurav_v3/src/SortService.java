@@ -0,0 +1,273 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The SortService class runs the sorting engine as a long-lived local server, so jobs get
+ * a JVM whose JIT is already warm instead of paying for startup and warmup every time. It
+ * accepts SortProtocol requests over a Unix domain socket (--unix=path) or a loopback TCP
+ * port (--port=n, default 9090) and serves every connection on its own virtual thread.
+ *
+ * Sorts are dispatched by size: arrays of at most SortingNetworks.LEAF_SIZE elements use
+ * SortingNetworks.sortLeaf, arrays of at least LARGE_ARRAY_SIZE use the LSD radix sort, and everything in
+ * between uses the introsort. Small requests from all connections are not sorted on their
+ * own virtual threads but handed to a few batching threads (--batchers=n, one per
+ * processor by default). Each takes a request from the shared queue together with its
+ * share of the requests waiting behind it, and sorts them back to back in one warm loop;
+ * the connection threads simply wait for their result. Taking only a share keeps every
+ * batcher busy when few requests are queued, while a long queue still makes long batches.
+ * Large requests are sorted where they arrive.
+ *
+ * The service counts requests, elements and batches and records the latency of every
+ * request from the moment it has been read until its response is flushed. A STATS
+ * request returns the report, and it is also printed when the process shuts down.
+ * SortLoadGenerator is a client for trying it out.
+ */
+public final class SortService {
+
+    // Arrays of at least this size are sorted by the LSD radix sort
+    static final int LARGE_ARRAY_SIZE = 4096;
+
+    // Sorts of at most this many elements go through the batching threads
+    private static final int BATCHED_ARRAY_SIZE = 1024;
+
+    // Largest number of requests sorted in one batch, and the capacity of the queue
+    private static final int MAX_BATCH = 256;
+    private static final int QUEUE_CAPACITY = 4096;
+
+    // Buffer size of the per-connection streams
+    private static final int STREAM_BUFFER_BYTES = 1 << 16;
+
+    /**
+     * A small sort waiting for a batching thread.
+     */
+    private static final class SortJob {
+        private final int[] values;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        SortJob(int[] values) {
+            this.values = values;
+        }
+    }
+
+    private final SocketAddress address;
+    private final int batcherCount;
+    private final BlockingQueue<SortJob> batchQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong elements = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedRequests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Creates a service that will listen on the given address.
+     *
+     * @param address      A UnixDomainSocketAddress or an InetSocketAddress.
+     * @param batcherCount The number of threads sorting batched requests.
+     */
+    public SortService(SocketAddress address, int batcherCount) {
+        if (batcherCount < 1) {
+            throw new IllegalArgumentException("batcherCount must be positive: " + batcherCount);
+        }
+        this.address = address;
+        this.batcherCount = batcherCount;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = SortBenchmark.parseOptions(args);
+        int batcherCount = Integer.parseInt(options.getOrDefault("batchers",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        SortService service = new SortService(SortProtocol.addressFrom(options), batcherCount);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(service.report())));
+        service.serve();
+    }
+
+    /**
+     * Sorts an array with the algorithm suited to its size.
+     *
+     * @param values The array to sort in place.
+     * @return The number of operations counted by the chosen algorithm.
+     */
+    public static long sortBySize(int[] values) {
+        if (values.length <= SortingNetworks.LEAF_SIZE) {
+            return SortingNetworks.sortLeaf(values, 0, values.length - 1);
+        }
+        if (values.length >= LARGE_ARRAY_SIZE) {
+            return RadixSortEngine.performLsdRadixSort(values);
+        }
+        return SortingPerformance.performIntroQuickSort(values);
+    }
+
+    /**
+     * Starts the batching threads and accepts connections until the process is stopped.
+     *
+     * @throws IOException If the address cannot be bound.
+     */
+    public void serve() throws IOException {
+        for (int index = 0; index < batcherCount; index++) {
+            Thread batcher = new Thread(this::runBatches, "sort-batcher-" + index);
+            batcher.setDaemon(true);
+            batcher.start();
+        }
+
+        ServerSocketChannel server;
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            Files.deleteIfExists(unixAddress.getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        try (server; ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.bind(address);
+            System.out.println("Sort service listening on " + address);
+            while (true) {
+                SocketChannel channel = server.accept();
+                connections.submit(() -> handleConnection(channel));
+            }
+        } finally {
+            if (address instanceof UnixDomainSocketAddress unixAddress) {
+                Files.deleteIfExists(unixAddress.getPath());
+            }
+        }
+    }
+
+    private void handleConnection(SocketChannel channel) {
+        try (channel;
+             DataInputStream input = new DataInputStream(new BufferedInputStream(SortProtocol.inputStream(channel), STREAM_BUFFER_BYTES));
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(SortProtocol.outputStream(channel), STREAM_BUFFER_BYTES))) {
+            while (true) {
+                int op;
+                try {
+                    op = input.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                handleRequest(op, input, output);
+            }
+        } catch (IOException e) {
+            // The client went away or sent a malformed frame; drop the connection
+            errors.incrementAndGet();
+        }
+    }
+
+    private void handleRequest(int op, DataInputStream input, DataOutputStream output) throws IOException {
+        switch (op) {
+            case SortProtocol.OP_SORT -> {
+                int[] values = SortProtocol.readIntArray(input);
+                long start = System.nanoTime();
+                sort(values);
+                output.writeInt(SortProtocol.STATUS_OK);
+                SortProtocol.writeIntArray(output, values);
+                output.flush();
+                completed(start, values.length);
+            }
+            case SortProtocol.OP_SEARCH -> {
+                int[] values = SortProtocol.readIntArray(input);
+                int[] keys = SortProtocol.readIntArray(input);
+                long start = System.nanoTime();
+                sort(values);
+                int[] positions = new SearchIndex(values).searchAll(keys);
+                output.writeInt(SortProtocol.STATUS_OK);
+                SortProtocol.writeIntArray(output, positions);
+                output.flush();
+                completed(start, values.length);
+            }
+            case SortProtocol.OP_STATS -> {
+                output.writeInt(SortProtocol.STATUS_OK);
+                output.writeUTF(report());
+                output.flush();
+            }
+            default -> {
+                // Counted as an error by handleConnection, which drops the connection
+                output.writeInt(SortProtocol.STATUS_ERROR);
+                output.writeUTF("Unknown operation: " + op);
+                output.flush();
+                throw new IOException("Unknown operation: " + op);
+            }
+        }
+    }
+
+    private void sort(int[] values) throws IOException {
+        if (values.length > BATCHED_ARRAY_SIZE) {
+            sortBySize(values);
+            return;
+        }
+        SortJob job = new SortJob(values);
+        try {
+            batchQueue.put(job);
+            job.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the batch", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Batched sort failed", e.getCause());
+        }
+    }
+
+    private void runBatches() {
+        List<SortJob> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(batchQueue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Leaves the other batchers their share of what is waiting
+            batchQueue.drainTo(batch, Math.min(MAX_BATCH - 1, batchQueue.size() / batcherCount));
+            for (SortJob job : batch) {
+                try {
+                    sortBySize(job.values);
+                    job.done.complete(null);
+                } catch (RuntimeException e) {
+                    job.done.completeExceptionally(e);
+                }
+            }
+            batches.incrementAndGet();
+            batchedRequests.addAndGet(batch.size());
+            batch.clear();
+        }
+    }
+
+    private void completed(long startNanos, int elementCount) {
+        latencies.record(System.nanoTime() - startNanos);
+        requests.incrementAndGet();
+        elements.addAndGet(elementCount);
+    }
+
+    /**
+     * Describes the work done since the service started.
+     *
+     * @return A multi-line report of throughput, batching and latency percentiles.
+     */
+    public String report() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long batchCount = batches.get();
+        return String.format("Sort service: %d requests, %d elements in %.1f s (%.0f requests/s, %.2f million elements/s)\n"
+                        + "Batches: %d on %d threads, average %.1f requests per batch; errors: %d\n"
+                        + "Latency: %s",
+                requests.get(), elements.get(), seconds, requests.get() / seconds, elements.get() / seconds / 1e6,
+                batchCount, batcherCount, batchCount == 0 ? 0.0 : (double) batchedRequests.get() / batchCount, errors.get(),
+                latencies.summary());
+    }
+}
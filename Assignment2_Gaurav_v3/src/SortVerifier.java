@@ -0,0 +1,133 @@
+/**
+ * The SortVerifier class checks sort output in a single pass over the array: the pass
+ * confirms that the array is in non-decreasing order and, at the same time, computes a
+ * fingerprint of the multiset of its values. A sort is correct exactly when its output is
+ * ordered and has the same fingerprint as its input, so a lost, duplicated or altered
+ * element is caught even when the plain sum of calculateChecksum would not change.
+ *
+ * The fingerprint is order-independent: two sums, wrapping at 32 bits, of values mixed
+ * with the MurmurHash3 finaliser under two different seeds, packed into one long. Keeping
+ * the arithmetic in int lanes lets the pass run on the Vector API kernel of VectorScan
+ * when it is available, with the scalar kernel giving bit-identical results otherwise.
+ *
+ * A verifier instance can also verify sampled: with a sample interval of n, only the
+ * first call and every n-th call after it do the pass, so verification in long benchmark
+ * sweeps costs a fraction of the sorting. A verifier counts the calls it checked, skipped
+ * and failed, and is not thread-safe.
+ */
+public final class SortVerifier {
+
+    private final int sampleInterval;
+    private final long[] fingerprintHolder = new long[1];
+
+    private long calls;
+    private long checked;
+    private long failures;
+    private long lastFingerprint;
+
+    /**
+     * Creates a verifier that checks every sampleInterval-th call, starting with the first.
+     *
+     * @param sampleInterval 1 to check every call, or a larger interval to sample.
+     */
+    public SortVerifier(int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("Sample interval must be at least 1: " + sampleInterval);
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Computes the multiset fingerprint of an array, normally of the input before sorting.
+     *
+     * @param inputArray The array to fingerprint.
+     * @return The fingerprint, which does not depend on the order of the elements.
+     */
+    public static long fingerprint(int[] inputArray) {
+        long[] fingerprint = new long[1];
+        VectorScan.active().verifySorted(inputArray, 0, inputArray.length, fingerprint);
+        return fingerprint[0];
+    }
+
+    /**
+     * Finds the first place where an array is out of order.
+     *
+     * @param inputArray The array to check.
+     * @return The first index i with inputArray[i] > inputArray[i + 1], or -1 if the array is sorted.
+     */
+    public static int findFirstDescent(int[] inputArray) {
+        return VectorScan.active().verifySorted(inputArray, 0, inputArray.length, new long[1]);
+    }
+
+    /**
+     * Checks that an array is sorted and holds the same values as the input it was sorted
+     * from, in one pass.
+     *
+     * @param sortedArray         The output of a sort.
+     * @param expectedFingerprint The fingerprint of the input, from fingerprint(int[]).
+     * @return True if the array is sorted and its fingerprint matches.
+     */
+    public static boolean isSortedPermutation(int[] sortedArray, long expectedFingerprint) {
+        long[] fingerprint = new long[1];
+        int firstDescent = VectorScan.active().verifySorted(sortedArray, 0, sortedArray.length, fingerprint);
+        return firstDescent < 0 && fingerprint[0] == expectedFingerprint;
+    }
+
+    /**
+     * Verifies sort output if this call falls on the sample, otherwise returns at once.
+     * Unlike isSortedPermutation it allocates nothing.
+     *
+     * @param sortedArray         The output of a sort.
+     * @param expectedFingerprint The fingerprint of the input, from fingerprint(int[]).
+     * @return False only if the call was checked and the output is wrong.
+     */
+    public boolean verify(int[] sortedArray, long expectedFingerprint) {
+        if (calls++ % sampleInterval != 0) {
+            return true;
+        }
+        checked++;
+        int firstDescent = VectorScan.active().verifySorted(sortedArray, 0, sortedArray.length, fingerprintHolder);
+        lastFingerprint = fingerprintHolder[0];
+        if (firstDescent < 0 && lastFingerprint == expectedFingerprint) {
+            return true;
+        }
+        failures++;
+        return false;
+    }
+
+    /**
+     * Returns the number of calls to verify that did the verification pass.
+     *
+     * @return The checked call count.
+     */
+    public long getChecked() {
+        return checked;
+    }
+
+    /**
+     * Returns the number of calls to verify that were skipped by sampling.
+     *
+     * @return The skipped call count.
+     */
+    public long getSkipped() {
+        return calls - checked;
+    }
+
+    /**
+     * Returns the number of checked calls whose output was wrong.
+     *
+     * @return The failure count.
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Returns the fingerprint computed by the most recent checked call.
+     *
+     * @return The fingerprint of the last array verified, or 0 if none was checked yet.
+     */
+    public long getLastFingerprint() {
+        return lastFingerprint;
+    }
+}
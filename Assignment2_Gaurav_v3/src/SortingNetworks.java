@@ -0,0 +1,176 @@
+/**
+ * The SortingNetworks class sorts very small ranges, of at most MAX_NETWORK_SIZE elements,
+ * with sorting networks: a fixed sequence of compare-exchange steps that does not depend
+ * on the data. Each step writes the minimum and maximum of two elements back with
+ * Math.min and Math.max, which compile to conditional moves or min/max instructions, so
+ * unlike InsertionSort there is no branch for the processor to mispredict.
+ *
+ * The networks are Batcher's odd-even merge sorts, built once when the class loads. For
+ * each size the network of the next power of two is cut down by dropping the comparators
+ * that reach past the end, as if the range were padded with infinitely large keys; 16
+ * elements take 63 comparators and 32 take 191. When the Vector API kernel of VectorScan
+ * is active, ranges of more than half a vector are instead sorted in vector registers by
+ * a bitonic network (see VectorScanSimd).
+ *
+ * The scalar network does two loads and two stores per comparator, and on random keys
+ * HotSpot runs it slower than InsertionSort, whose shifts stay in registers and whose
+ * branches are mostly predicted. The vector network beats both from just over half a
+ * vector up to two vectors (9 to 32 elements with AVX-512). sortLeaf therefore uses the
+ * network only where the vector kernel runs it and InsertionSort elsewhere, and LEAF_SIZE
+ * tells the recursive sorts (IntroQuickSort, QuickSort, MergeSort and the radix sorts)
+ * how small their partitions, halves and buckets should get before they call it.
+ */
+public final class SortingNetworks {
+
+    // Largest range the networks sort
+    public static final int MAX_NETWORK_SIZE = 32;
+
+    // Smallest and largest leaf the vector network sorts faster than InsertionSort
+    private static final int MIN_VECTOR_LEAF = VectorScan.active().vectorLength() / 2 + 1;
+    private static final int MAX_VECTOR_LEAF = Math.min(MAX_NETWORK_SIZE, 2 * VectorScan.active().vectorLength());
+
+    // Size below which the recursive sorts hand a range to sortLeaf
+    public static final int LEAF_SIZE = VectorScan.isVectorized() ? MAX_VECTOR_LEAF : 16;
+
+    // NETWORKS[n] holds the comparators for n elements as pairs of indices, first < second
+    private static final int[][] NETWORKS = buildNetworks();
+
+    private SortingNetworks() {
+    }
+
+    /**
+     * This function sorts the inclusive range [low, high] of an array with a sorting network,
+     * using the SIMD kernel where it is faster.
+     *
+     * @param array The array that holds the range to sort.
+     * @param low   The first index of the range.
+     * @param high  The last index of the range; the range may hold at most MAX_NETWORK_SIZE elements.
+     * @return The number of comparators in the network, each of which compares two keys once.
+     */
+    public static long sortRange(int[] array, int low, int high) {
+        int size = high - low + 1;
+        if (size < 2) return 0;
+        VectorScan.active().sortNetwork(array, low, high + 1);
+        return countWork(size);
+    }
+
+    /**
+     * This function sorts a leaf of a recursive sort: the inclusive range [low, high] with
+     * the vector network if the SIMD kernel is active and handles its size, otherwise with
+     * InsertionSort.
+     *
+     * @param array The array that holds the range to sort.
+     * @param low   The first index of the range.
+     * @param high  The last index of the range.
+     * @return The number of comparisons made.
+     */
+    public static long sortLeaf(int[] array, int low, int high) {
+        int size = high - low + 1;
+        if (size >= MIN_VECTOR_LEAF && size <= MAX_VECTOR_LEAF) {
+            return sortRange(array, low, high);
+        }
+        return SortingPerformance.performInsertionSort(array, low, high);
+    }
+
+    /**
+     * This function sorts the inclusive range [low, high] with the scalar network, whether
+     * or not the SIMD kernel is available.
+     *
+     * @param array The array that holds the range to sort.
+     * @param low   The first index of the range.
+     * @param high  The last index of the range; the range may hold at most MAX_NETWORK_SIZE elements.
+     * @return The number of comparators in the network.
+     */
+    public static long sortRangeScalar(int[] array, int low, int high) {
+        int size = high - low + 1;
+        if (size < 2) return 0;
+        applyNetwork(array, low, high + 1);
+        return countWork(size);
+    }
+
+    /**
+     * Returns the number of compare-exchange steps in the network for a size.
+     *
+     * @param size The number of elements, from 0 to MAX_NETWORK_SIZE.
+     * @return The number of comparators.
+     */
+    public static int comparatorCount(int size) {
+        return NETWORKS[size].length / 2;
+    }
+
+    private static long countWork(int size) {
+        int comparators = comparatorCount(size);
+        SortMetrics.countWork(comparators, 2L * comparators);
+        return comparators;
+    }
+
+    /**
+     * Runs the scalar network over [from, to); the scalar kernel of VectorScan and the SIMD
+     * kernel for sizes it does not handle both end up here.
+     */
+    static void applyNetwork(int[] array, int from, int to) {
+        int size = to - from;
+        if (size > MAX_NETWORK_SIZE) {
+            throw new IllegalArgumentException("Sorting networks handle at most " + MAX_NETWORK_SIZE + " elements: " + size);
+        }
+        int[] network = NETWORKS[size];
+        for (int step = 0; step < network.length; step += 2) {
+            int first = from + network[step];
+            int second = from + network[step + 1];
+            int a = array[first];
+            int b = array[second];
+            array[first] = Math.min(a, b);
+            array[second] = Math.max(a, b);
+        }
+    }
+
+    private static int[][] buildNetworks() {
+        int[][] networks = new int[MAX_NETWORK_SIZE + 1][];
+        for (int size = 0; size <= MAX_NETWORK_SIZE; size++) {
+            int[] full = buildOddEvenMergeNetwork(size < 2 ? 1 : Integer.highestOneBit(size - 1) << 1);
+
+            // A comparator whose second index is past the end never moves anything
+            int kept = 0;
+            for (int step = 0; step < full.length; step += 2) {
+                if (full[step + 1] < size) kept++;
+            }
+            int[] network = new int[2 * kept];
+            int next = 0;
+            for (int step = 0; step < full.length; step += 2) {
+                if (full[step + 1] < size) {
+                    network[next++] = full[step];
+                    network[next++] = full[step + 1];
+                }
+            }
+            networks[size] = network;
+        }
+        return networks;
+    }
+
+    /**
+     * Lists the comparators of Batcher's odd-even merge sort for a power of two, in an
+     * order in which they can be applied one after another.
+     */
+    private static int[] buildOddEvenMergeNetwork(int size) {
+        int[] pairs = new int[2 * size * size];
+        int count = 0;
+        for (int blockSize = 1; blockSize < size; blockSize <<= 1) {
+            for (int distance = blockSize; distance >= 1; distance >>= 1) {
+                for (int start = distance % blockSize; start + distance < size; start += 2 * distance) {
+                    for (int offset = 0; offset < distance && start + offset + distance < size; offset++) {
+                        int first = start + offset;
+                        int second = first + distance;
+                        // Only compare elements that lie in the same pair of merged blocks
+                        if (first / (2 * blockSize) == second / (2 * blockSize)) {
+                            pairs[count++] = first;
+                            pairs[count++] = second;
+                        }
+                    }
+                }
+            }
+        }
+        int[] network = new int[count];
+        System.arraycopy(pairs, 0, network, 0, count);
+        return network;
+    }
+}
@@ -4,7 +4,7 @@ import java.util.Random;
 /**
  * The SortingPerformance class demonstrates the use of different sorting algorithms
  * to sort an array of integers, measure the time taken, count the number of comparisons
- * made, and compute a checksum for verification. It also compares the efficiency of linear
+ * made, and verify the sorted output. It also compares the efficiency of linear
  * search versus binary search after sorting the array.
  *
  * This class includes sorting algorithms such as QuickSort, SelectionSort, InsertionSort,
@@ -14,8 +14,8 @@ import java.util.Random;
  * is more efficient.
  *
  * The class measures the time and comparisons for each search and sorting method, stores the
- * results, and displays them. Additionally, this class calculates a checksum for each sorted
- * array to ensure its integrity after sorting.
+ * results, and displays them. Additionally, this class verifies that each sorted array is
+ * in order and holds the same values as the input, using SortVerifier.
  *
  * Author: Your Name
  * Student ID: Your ID
@@ -28,6 +28,21 @@ public class SortingPerformance {
     // Constant representing the large size of the dataset for testing search methods
     private static final int LARGE_DATA_SIZE = 100000;
 
+    // Partitions above this size choose the introsort pivot with Tukey's ninther
+    static final int NINTHER_THRESHOLD = 128;
+
+    // Number of runs per algorithm that executeAllSortAlgorithms verifies, spread evenly over all runs
+    private static final int VERIFIED_RUNS = 16;
+
+    // Length of one untimed warmup block of executeAllSortAlgorithms
+    private static final long WARMUP_BLOCK_NANOS = 500_000_000L;
+
+    // Upper bound on warmup blocks, in case the allocation per round never settles
+    private static final int MAX_WARMUP_BLOCKS = 20;
+
+    // Number of digit values, and so of counters, in each pass of the decimal RadixSort
+    static final int RADIX_BASE = 10;
+
     public static void main(String[] args) {
         // The maximum number of operations for sorting
         final int MAX_OPERATIONS = 1000000;
@@ -51,26 +66,30 @@ public class SortingPerformance {
     /**
      * This method displays the results of the sorting algorithms by printing out the
      * algorithm's name, the time it took to execute, the number of comparisons it made,
-     * the average time per comparison, and the checksum of the sorted array.
+     * the average time per comparison, the fingerprint of the sorted array, the bytes
+     * allocated per sort, and whether every verified run produced correctly sorted output.
      *
      * @param results   A 2D array that contains the results of each sorting algorithm,
-     *                  including time, comparisons, and checksum.
+     *                  including time, comparisons, fingerprint, bytes allocated per sort,
+     *                  and failed verifications.
      * @param arraySize The size of the array that was sorted during testing.
      * @param runs      The number of times each sorting algorithm was executed.
      */
     public static void displaySortResults(long[][] results, int arraySize, int runs) {
-        String[] sortingAlgorithms = {"QuickSort", "SelectionSort", "InsertionSort", "MergeSort", "BubbleSort", "RadixSort"};
+        SortAlgorithm[] sortingAlgorithms = SortAlgorithm.values();
         System.out.printf("Sorting Results (Array Size: %d, Number of Runs: %d)\n", arraySize, runs);
-        System.out.println("==============================================================");
-        System.out.printf("%-15s %-12s %-15s %-17s %-10s\n", "Algorithm", "Time (ms)", "Comparisons", "ms/Comparison", "Checksum");
-        System.out.println("--------------------------------------------------------------");
+        System.out.println("==============================================================================================");
+        System.out.printf("%-15s %-12s %-15s %-17s %-17s %-12s %-8s\n", "Algorithm", "Time (ms)", "Comparisons", "ms/Comparison", "Fingerprint", "Bytes/Sort", "Verified");
+        System.out.println("----------------------------------------------------------------------------------------------");
 
         for (int index = 0; index < sortingAlgorithms.length; index++) {
             double timeMs = results[index][0] / 1_000_000.0;
             long comparisons = results[index][1];
             double timePerComparison = comparisons != 0 ? timeMs / comparisons : 0.0;
-            long checksum = results[index][2];
-            System.out.printf("%-15s %-12.7f %-15d %-17.7f %-10d\n", sortingAlgorithms[index], timeMs, comparisons, timePerComparison, checksum);
+            long fingerprint = results[index][2];
+            long allocatedBytes = results[index][3];
+            String verified = results[index][4] == 0 ? "yes" : "FAILED " + results[index][4];
+            System.out.printf("%-15s %-12.7f %-15d %-17.7f %016x  %-12d %-8s\n", sortingAlgorithms[index].getDisplayName(), timeMs, comparisons, timePerComparison, fingerprint, allocatedBytes, verified);
         }
         System.out.println();
     }
@@ -78,82 +97,97 @@ public class SortingPerformance {
     /**
      * This method executes multiple sorting algorithms on an array, measures
      * the time it takes to execute each algorithm, counts the number of comparisons
-     * made during sorting, and calculates the checksum to verify the correctness of the sorting.
+     * made during sorting, and verifies the correctness of the sorting.
+     * Times are taken with System.nanoTime, so short sorts no longer round down to zero.
+     * Before the measured runs, the algorithms take turns sorting the same input untimed, in
+     * the order of the measured runs, block after block of WARMUP_BLOCK_NANOS until a block
+     * allocates no less per round than the one before. The runs then time compiled code, and
+     * the bytes per sort do not include what the Vector API allocates until the JIT has
+     * compiled its kernels, which on a machine with few cores can take seconds.
+     * For measurements with error bars, use SortBenchmark instead.
+     * The input is copied into one reusable working array and the sorts borrow their
+     * auxiliary arrays from a ScratchArena, so the bytes allocated per sort, read from the
+     * thread MX bean, show what each algorithm itself allocates on the calling thread.
+     * Instead of a separate checksum pass after every run, a sample of the runs is checked
+     * by SortVerifier, whose single pass confirms the output is sorted and holds the same
+     * multiset of values as the input.
      *
      * @param maxValue The maximum random value for elements in the array.
      * @param size     The size of the array to be sorted.
      * @param runs     The number of times each sorting algorithm will be executed.
-     * @return A 2D array containing the time, comparisons, and checksum for each sorting algorithm.
+     * @return A 2D array containing the time in nanoseconds, comparisons, output fingerprint,
+     *         bytes allocated per sort, and failed verifications for each sorting algorithm,
+     *         indexed by SortAlgorithm ordinal.
      */
     public static long[][] executeAllSortAlgorithms(int maxValue, int size, int runs) {
-        int[] primaryArray = new int[size];
-        long[][] sortingResults = new long[6][3];
-        int[] workingArray;
-        Random random = new Random(RANDOM_SEED);
+        return executeAllSortAlgorithms(InputDistribution.UNIFORM, maxValue, size, runs);
+    }
+
+    /**
+     * This method runs the same measurements as executeAllSortAlgorithms(int, int, int), but
+     * sorts input produced by the given generator instead of uniform random values, so the
+     * algorithms can be compared on data shaped like the data they will really sort.
+     *
+     * @param generator The generator of the input array, for example InputDistribution.NEARLY_SORTED.
+     * @param maxValue  The maximum random value for elements in the array.
+     * @param size      The size of the array to be sorted.
+     * @param runs      The number of times each sorting algorithm will be executed.
+     * @return A 2D array containing the time in nanoseconds, comparisons, output fingerprint,
+     *         bytes allocated per sort, and failed verifications for each sorting algorithm,
+     *         indexed by SortAlgorithm ordinal.
+     */
+    public static long[][] executeAllSortAlgorithms(InputGenerator generator, int maxValue, int size, int runs) {
+        SortAlgorithm[] algorithms = SortAlgorithm.values();
+        int[] primaryArray = generator.generate(size, maxValue, RANDOM_SEED);
+        long[][] sortingResults = new long[algorithms.length][5];
+        // One working array and one arena serve every run, so the loop itself allocates nothing
+        int[] workingArray = new int[size];
+        ScratchArena arena = new ScratchArena().reserve(size, 1);
+        long inputFingerprint = SortVerifier.fingerprint(primaryArray);
+        SortVerifier[] verifiers = new SortVerifier[algorithms.length];
+        for (int index = 0; index < algorithms.length; index++) {
+            verifiers[index] = new SortVerifier(Math.max(1, runs / VERIFIED_RUNS));
+        }
 
-        for (int i = 0; i < size; i++) {
-            primaryArray[i] = random.nextInt(maxValue);
+        long previousBytesPerRound = Long.MAX_VALUE;
+        for (int block = 0; block < MAX_WARMUP_BLOCKS; block++) {
+            long allocatedBefore = BenchmarkHarness.getThreadAllocatedBytes();
+            long blockEnd = System.nanoTime() + WARMUP_BLOCK_NANOS;
+            long rounds = 0;
+            do {
+                for (SortAlgorithm algorithm : algorithms) {
+                    System.arraycopy(primaryArray, 0, workingArray, 0, size);
+                    algorithm.sort(workingArray, arena);
+                }
+                rounds++;
+            } while (System.nanoTime() - blockEnd < 0);
+            long bytesPerRound = (BenchmarkHarness.getThreadAllocatedBytes() - allocatedBefore) / rounds;
+            if (bytesPerRound >= previousBytesPerRound) break;
+            previousBytesPerRound = bytesPerRound;
         }
 
         for (int runCount = 0; runCount < runs; runCount++) {
-            // QuickSort
-            workingArray = Arrays.copyOf(primaryArray, primaryArray.length);
-            long startTime = System.currentTimeMillis();
-            long comparisons = performQuickSort(workingArray);
-            long endTime = System.currentTimeMillis();
-            sortingResults[0][0] += (endTime - startTime);
-            sortingResults[0][1] += comparisons;
-            sortingResults[0][2] = calculateChecksum(workingArray);
-
-            // SelectionSort
-            workingArray = Arrays.copyOf(primaryArray, primaryArray.length);
-            startTime = System.currentTimeMillis();
-            comparisons = performSelectionSort(workingArray);
-            endTime = System.currentTimeMillis();
-            sortingResults[1][0] += (endTime - startTime);
-            sortingResults[1][1] += comparisons;
-            sortingResults[1][2] = calculateChecksum(workingArray);
-
-            // InsertionSort
-            workingArray = Arrays.copyOf(primaryArray, primaryArray.length);
-            startTime = System.currentTimeMillis();
-            comparisons = performInsertionSort(workingArray);
-            endTime = System.currentTimeMillis();
-            sortingResults[2][0] += (endTime - startTime);
-            sortingResults[2][1] += comparisons;
-            sortingResults[2][2] = calculateChecksum(workingArray);
-
-            // MergeSort
-            workingArray = Arrays.copyOf(primaryArray, primaryArray.length);
-            startTime = System.currentTimeMillis();
-            comparisons = executeMergeSort(workingArray);
-            endTime = System.currentTimeMillis();
-            sortingResults[3][0] += (endTime - startTime);
-            sortingResults[3][1] += comparisons;
-            sortingResults[3][2] = calculateChecksum(workingArray);
-
-            // BubbleSort
-            workingArray = Arrays.copyOf(primaryArray, primaryArray.length);
-            startTime = System.currentTimeMillis();
-            comparisons = performBubbleSort(workingArray);
-            endTime = System.currentTimeMillis();
-            sortingResults[4][0] += (endTime - startTime);
-            sortingResults[4][1] += comparisons;
-            sortingResults[4][2] = calculateChecksum(workingArray);
-
-            // RadixSort
-            workingArray = Arrays.copyOf(primaryArray, primaryArray.length);
-            startTime = System.currentTimeMillis();
-            comparisons = performRadixSort(workingArray);
-            endTime = System.currentTimeMillis();
-            sortingResults[5][0] += (endTime - startTime);
-            sortingResults[5][1] += comparisons;
-            sortingResults[5][2] = calculateChecksum(workingArray);
-        }
-
-        for (int index = 0; index < 6; index++) {
+            for (SortAlgorithm algorithm : algorithms) {
+                int index = algorithm.ordinal();
+                System.arraycopy(primaryArray, 0, workingArray, 0, size);
+                long allocatedBefore = BenchmarkHarness.getThreadAllocatedBytes();
+                long startTime = System.nanoTime();
+                long comparisons = algorithm.sort(workingArray, arena);
+                long endTime = System.nanoTime();
+                long allocatedAfter = BenchmarkHarness.getThreadAllocatedBytes();
+                sortingResults[index][0] += (endTime - startTime);
+                sortingResults[index][1] += comparisons;
+                sortingResults[index][3] += allocatedAfter - allocatedBefore;
+                verifiers[index].verify(workingArray, inputFingerprint);
+            }
+        }
+
+        for (int index = 0; index < algorithms.length; index++) {
             sortingResults[index][0] /= runs;
             sortingResults[index][1] /= runs;
+            sortingResults[index][3] /= runs;
+            sortingResults[index][2] = verifiers[index].getLastFingerprint();
+            sortingResults[index][4] = verifiers[index].getFailures();
         }
 
         return sortingResults;
@@ -173,6 +207,9 @@ public class SortingPerformance {
     }
 
     private static long quickSortHelper(int[] array, int low, int high, long comparisonCount) {
+        if (high - low < SortingNetworks.LEAF_SIZE) {
+            return comparisonCount + SortingNetworks.sortLeaf(array, low, high);
+        }
         if (low < high) {
             int pivotIndex = partitionArrayForQuickSort(array, low, high);
             comparisonCount += (high - low);
@@ -192,9 +229,193 @@ public class SortingPerformance {
             }
         }
         swapElementsInArray(array, start, leftPointer);
+        SortMetrics.countWork(end - start, 2L * (leftPointer - start + 1));
         return leftPointer;
     }
 
+    /**
+     * This function is the production variant of QuickSort, built as an introsort. It picks
+     * the pivot with a median of three (or Tukey's ninther on large partitions), partitions
+     * three ways so runs of equal keys are settled in a single pass, recurses only into the
+     * smaller side and loops on the larger one so the stack stays O(log n), switches to
+     * HeapSort if the partitioning depth exceeds 2 log2(n), and finishes small partitions
+     * with SortingNetworks.sortLeaf. Sorted, reverse-sorted and duplicate-heavy inputs therefore stay
+     * O(n log n) instead of turning quadratic.
+     *
+     * @param inputArray The array that needs to be organized.
+     * @return The total count of element comparisons made during the sorting process.
+     */
+    public static long performIntroQuickSort(int[] inputArray) {
+        if (inputArray.length < 2) return 0;
+        SortMetrics.countAuxiliaryBytes(2 * Integer.BYTES);
+        return introSortHelper(inputArray, 0, inputArray.length - 1, introSortDepthLimit(inputArray.length), new int[2]);
+    }
+
+    /**
+     * This function applies the same introsort with the two-int bounds array borrowed from the arena.
+     *
+     * @param inputArray The array that needs to be organized.
+     * @param arena      The arena that lends the bounds array.
+     * @return The total count of element comparisons made during the sorting process.
+     */
+    public static long performIntroQuickSort(int[] inputArray, ScratchArena arena) {
+        if (inputArray.length < 2) return 0;
+        SortMetrics.countAuxiliaryBytes(2 * Integer.BYTES);
+        int[] bounds = arena.acquire(2);
+        try {
+            return introSortHelper(inputArray, 0, inputArray.length - 1, introSortDepthLimit(inputArray.length), bounds);
+        } finally {
+            arena.release(bounds);
+        }
+    }
+
+    static int introSortDepthLimit(int size) {
+        return 2 * (31 - Integer.numberOfLeadingZeros(Math.max(1, size)));
+    }
+
+    static long introSortHelper(int[] array, int low, int high, int depthLimit, int[] bounds) {
+        long comparisonCount = 0;
+        while (high - low + 1 > SortingNetworks.LEAF_SIZE) {
+            if (depthLimit == 0) {
+                return comparisonCount + heapSortRange(array, low, high);
+            }
+            depthLimit--;
+
+            comparisonCount += partitionThreeWay(array, low, high, bounds);
+            int lessEnd = bounds[0];
+            int greaterStart = bounds[1];
+            if (lessEnd - low < high - greaterStart) {
+                comparisonCount += introSortHelper(array, low, lessEnd - 1, depthLimit, bounds);
+                low = greaterStart + 1;
+            } else {
+                comparisonCount += introSortHelper(array, greaterStart + 1, high, depthLimit, bounds);
+                high = lessEnd - 1;
+            }
+        }
+        return comparisonCount + SortingNetworks.sortLeaf(array, low, high);
+    }
+
+    /**
+     * Chooses a pivot for [low, high] with a median of three, or Tukey's ninther on large
+     * ranges, and partitions the range three ways around it. Afterwards [low, bounds[0])
+     * holds the smaller keys, [bounds[0], bounds[1]] the keys equal to the pivot and
+     * (bounds[1], high] the larger keys.
+     *
+     * @param array  The array that holds the range.
+     * @param low    The first index of the range.
+     * @param high   The last index of the range, at least low + 2.
+     * @param bounds Receives the first and last index of the keys equal to the pivot.
+     * @return The number of comparisons made choosing the pivot and partitioning.
+     */
+    static long partitionThreeWay(int[] array, int low, int high, int[] bounds) {
+        long comparisonCount;
+        int size = high - low + 1;
+        int mid = low + (size >>> 1);
+        int pivotIndex;
+        if (size > NINTHER_THRESHOLD) {
+            int step = size / 8;
+            int first = medianOfThree(array, low, low + step, low + 2 * step);
+            int second = medianOfThree(array, mid - step, mid, mid + step);
+            int third = medianOfThree(array, high - 2 * step, high - step, high);
+            pivotIndex = medianOfThree(array, first, second, third);
+            comparisonCount = 12;
+        } else {
+            pivotIndex = medianOfThree(array, low, mid, high);
+            comparisonCount = 3;
+        }
+        SortMetrics.countComparisons(comparisonCount);
+        return comparisonCount + partitionAroundValue(array, low, high, array[pivotIndex], bounds);
+    }
+
+    /**
+     * Partitions [low, high] three ways around a pivot value that occurs in the range,
+     * leaving the same layout in bounds as partitionThreeWay.
+     *
+     * @param array      The array that holds the range.
+     * @param low        The first index of the range.
+     * @param high       The last index of the range.
+     * @param pivotValue The value to partition around; it must occur in the range.
+     * @param bounds     Receives the first and last index of the keys equal to the pivot.
+     * @return The number of comparisons made partitioning.
+     */
+    static long partitionAroundValue(int[] array, int low, int high, int pivotValue, int[] bounds) {
+        long comparisonCount = 0;
+
+        // [low, lessEnd) < pivot, [lessEnd, current) == pivot, (greaterStart, high] > pivot
+        int lessEnd = low;
+        int greaterStart = high;
+        int current = low;
+        while (current <= greaterStart) {
+            int value = array[current];
+            comparisonCount++;
+            if (value < pivotValue) {
+                swapElementsInArray(array, lessEnd++, current++);
+            } else {
+                comparisonCount++;
+                if (value > pivotValue) {
+                    swapElementsInArray(array, current, greaterStart--);
+                } else {
+                    current++;
+                }
+            }
+        }
+        bounds[0] = lessEnd;
+        bounds[1] = greaterStart;
+
+        // Every key that went left or right was swapped once
+        SortMetrics.countWork(comparisonCount, 2L * (lessEnd - low + high - greaterStart));
+        return comparisonCount;
+    }
+
+    private static int medianOfThree(int[] array, int first, int second, int third) {
+        int a = array[first];
+        int b = array[second];
+        int c = array[third];
+        boolean aBelowB = a < b;
+        boolean bBelowC = b < c;
+        boolean aBelowC = a < c;
+        if (aBelowB == bBelowC) return second;
+        return aBelowB == aBelowC ? third : first;
+    }
+
+    private static long heapSortRange(int[] array, int low, int high) {
+        long comparisonCount = 0;
+        long[] moveCount = new long[1]; // Filled by siftDown, so the thread's counters are looked up once
+        int size = high - low + 1;
+        for (int parent = size / 2 - 1; parent >= 0; parent--) {
+            comparisonCount += siftDown(array, low, parent, size, moveCount);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swapElementsInArray(array, low, low + end);
+            comparisonCount += siftDown(array, low, 0, end, moveCount);
+        }
+        SortMetrics.countWork(comparisonCount, 2L * (size - 1) + moveCount[0]);
+        return comparisonCount;
+    }
+
+    private static long siftDown(int[] array, int offset, int parent, int size, long[] moveCount) {
+        long comparisonCount = 0;
+        long moves = 1;
+        int value = array[offset + parent];
+        int child;
+        while ((child = 2 * parent + 1) < size) {
+            if (child + 1 < size) {
+                comparisonCount++;
+                if (array[offset + child + 1] > array[offset + child]) {
+                    child++;
+                }
+            }
+            comparisonCount++;
+            if (array[offset + child] <= value) break;
+            array[offset + parent] = array[offset + child];
+            parent = child;
+            moves++;
+        }
+        array[offset + parent] = value;
+        moveCount[0] += moves;
+        return comparisonCount;
+    }
+
     /**
      * This function carries out the SelectionSort technique, which systematically arranges
      * an array by repeatedly finding the smallest element from the unsorted section
@@ -215,6 +436,7 @@ public class SortingPerformance {
             }
             swapElementsInArray(arr, index, smallestIndex);
         }
+        SortMetrics.countWork(comparisonCounter, 2L * Math.max(0, arr.length - 1));
         return comparisonCounter;
     }
 
@@ -227,18 +449,37 @@ public class SortingPerformance {
      * @return The total number of comparisons counted during the sorting process.
      */
     public static long performInsertionSort(int[] arr) {
+        return performInsertionSort(arr, 0, arr.length - 1);
+    }
+
+    /**
+     * This function applies InsertionSort to the inclusive range [low, high] of an array,
+     * leaving the rest of the array untouched. The other sorts use it to finish small
+     * partitions and buckets.
+     *
+     * @param arr  The array that holds the range to sort.
+     * @param low  The first index of the range.
+     * @param high The last index of the range.
+     * @return The total number of comparisons counted during the sorting process.
+     */
+    public static long performInsertionSort(int[] arr, int low, int high) {
         long comparisonCounter = 0;
-        for (int index = 1; index < arr.length; index++) {
+        long moveCounter = 0;
+        for (int index = low + 1; index <= high; index++) {
             int currentElement = arr[index];
             int position = index;
-            while (position > 0 && arr[position - 1] > currentElement) {
-                comparisonCounter++;
+            while (position > low && arr[position - 1] > currentElement) {
                 arr[position] = arr[position - 1];
                 position--;
             }
-            comparisonCounter++;
+
+            // One comparison per shift, plus the one that stopped the scan unless it ran off the start
+            int shifts = index - position;
+            comparisonCounter += position > low ? shifts + 1 : shifts;
+            moveCounter += shifts;
             arr[position] = currentElement;
         }
+        SortMetrics.countWork(comparisonCounter, moveCounter + Math.max(0, high - low));
         return comparisonCounter;
     }
 
@@ -250,11 +491,45 @@ public class SortingPerformance {
      * @return The total count of comparisons made while sorting the array.
      */
     public static long executeMergeSort(int[] inputArr) {
-        int[] auxiliaryArr = new int[inputArr.length];
+        return executeMergeSort(inputArr, new int[inputArr.length]);
+    }
+
+    /**
+     * This function applies the same MergeSort, but merges through a caller-supplied
+     * auxiliary array instead of allocating one, so repeated sorts allocate nothing.
+     *
+     * @param inputArr     The array to be sorted.
+     * @param auxiliaryArr A buffer at least as long as inputArr; its contents are overwritten.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long executeMergeSort(int[] inputArr, int[] auxiliaryArr) {
+        if (auxiliaryArr.length < inputArr.length) {
+            throw new IllegalArgumentException("Auxiliary array is shorter than the input");
+        }
+        SortMetrics.countAuxiliaryBytes((long) inputArr.length * Integer.BYTES);
         return mergeSortHelper(inputArr, auxiliaryArr, 0, inputArr.length - 1, 0);
     }
 
-    private static long mergeSortHelper(int[] array, int[] tempArr, int start, int end, long comparisonCounter) {
+    /**
+     * This function applies the same MergeSort with an auxiliary array borrowed from the arena.
+     *
+     * @param inputArr The array to be sorted.
+     * @param arena    The arena that lends the auxiliary array.
+     * @return The total count of comparisons made while sorting the array.
+     */
+    public static long executeMergeSort(int[] inputArr, ScratchArena arena) {
+        int[] auxiliaryArr = arena.acquire(inputArr.length);
+        try {
+            return executeMergeSort(inputArr, auxiliaryArr);
+        } finally {
+            arena.release(auxiliaryArr);
+        }
+    }
+
+    static long mergeSortHelper(int[] array, int[] tempArr, int start, int end, long comparisonCounter) {
+        if (end - start < SortingNetworks.LEAF_SIZE) {
+            return comparisonCounter + SortingNetworks.sortLeaf(array, start, end);
+        }
         if (start < end) {
             int mid = (start + end) / 2;
             comparisonCounter = mergeSortHelper(array, tempArr, start, mid, comparisonCounter);
@@ -264,7 +539,7 @@ public class SortingPerformance {
         return comparisonCounter;
     }
 
-    private static long mergeSortedSections(int[] arr, int[] auxArr, int low, int mid, int high) {
+    static long mergeSortedSections(int[] arr, int[] auxArr, int low, int mid, int high) {
         long comparisonCounter = 0;
         for (int i = low; i <= high; i++) {
             auxArr[i] = arr[i];
@@ -286,6 +561,9 @@ public class SortingPerformance {
             leftIndex++;
             currentIndex++;
         }
+
+        // The copy into auxArr, then every write back up to where the right run stayed in place
+        SortMetrics.countWork(comparisonCounter, (high - low + 1) + (currentIndex - low));
         return comparisonCounter;
     }
 
@@ -299,6 +577,7 @@ public class SortingPerformance {
      */
     public static long performBubbleSort(int[] inputArr) {
         long comparisonCount = 0;
+        long swapCount = 0;
         for (int lastIndex = inputArr.length - 1; lastIndex > 0; lastIndex--) {
             boolean wasSwapped = false;
             for (int currentIndex = 0; currentIndex < lastIndex; currentIndex++) {
@@ -306,10 +585,12 @@ public class SortingPerformance {
                 if (inputArr[currentIndex] > inputArr[currentIndex + 1]) {
                     swapElementsInArray(inputArr, currentIndex, currentIndex + 1);
                     wasSwapped = true;
+                    swapCount++;
                 }
             }
             if (!wasSwapped) break;
         }
+        SortMetrics.countWork(comparisonCount, 2 * swapCount);
         return comparisonCount;
     }
 
@@ -323,31 +604,61 @@ public class SortingPerformance {
      * @return The total number of comparisons made during the sorting process.
      */
     public static long performRadixSort(int[] inputArray) {
+        return performRadixSort(inputArray, new int[inputArray.length], new int[RADIX_BASE]);
+    }
+
+    /**
+     * This function applies the same RadixSort, but every counting pass writes into the
+     * caller-supplied output and count arrays instead of allocating new ones.
+     *
+     * @param inputArray  The array containing numbers that need to be sorted.
+     * @param outputArray A buffer at least as long as inputArray; its contents are overwritten.
+     * @param countArray  A buffer of at least RADIX_BASE ints; its contents are overwritten.
+     * @return The total number of comparisons made during the sorting process.
+     */
+    public static long performRadixSort(int[] inputArray, int[] outputArray, int[] countArray) {
+        if (outputArray.length < inputArray.length || countArray.length < RADIX_BASE) {
+            throw new IllegalArgumentException("Scratch arrays are too short for the input");
+        }
         long comparisonCount = 0;
-        if (inputArray.length == 0) return comparisonCount;
+        if (inputArray.length <= SortingNetworks.LEAF_SIZE) {
+            return SortingNetworks.sortLeaf(inputArray, 0, inputArray.length - 1);
+        }
+        SortMetrics.countAuxiliaryBytes((long) (inputArray.length + RADIX_BASE) * Integer.BYTES);
         int maxValue = findMaximumValue(inputArray);
         int exponent = 1;
         while (maxValue / exponent > 0) {
-            comparisonCount += applyCountingSort(inputArray, exponent);
+            comparisonCount += applyCountingSort(inputArray, exponent, outputArray, countArray);
             exponent *= 10;
         }
         return comparisonCount;
     }
 
-    private static int findMaximumValue(int[] inputArray) {
-        int maximum = inputArray[0];
-        for (int index = 1; index < inputArray.length; index++) {
-            if (inputArray[index] > maximum) {
-                maximum = inputArray[index];
-            }
+    /**
+     * This function applies the same RadixSort with scratch arrays borrowed from the arena.
+     *
+     * @param inputArray The array containing numbers that need to be sorted.
+     * @param arena      The arena that lends the output and count arrays.
+     * @return The total number of comparisons made during the sorting process.
+     */
+    public static long performRadixSort(int[] inputArray, ScratchArena arena) {
+        int[] outputArray = arena.acquire(inputArray.length);
+        int[] countArray = arena.acquire(RADIX_BASE);
+        try {
+            return performRadixSort(inputArray, outputArray, countArray);
+        } finally {
+            arena.release(countArray);
+            arena.release(outputArray);
         }
-        return maximum;
     }
 
-    private static long applyCountingSort(int[] inputArray, int exponent) {
+    private static int findMaximumValue(int[] inputArray) {
+        return VectorScan.max(inputArray);
+    }
+
+    private static long applyCountingSort(int[] inputArray, int exponent, int[] outputArray, int[] countArray) {
         long comparisonCount = 0;
-        int[] outputArray = new int[inputArray.length];
-        int[] countArray = new int[10];
+        Arrays.fill(countArray, 0, RADIX_BASE, 0);
 
         for (int index = 0; index < inputArray.length; index++) {
             int digit = (inputArray[index] / exponent) % 10;
@@ -355,7 +666,7 @@ public class SortingPerformance {
             comparisonCount++;
         }
 
-        for (int index = 1; index < 10; index++) {
+        for (int index = 1; index < RADIX_BASE; index++) {
             countArray[index] += countArray[index - 1];
         }
 
@@ -366,9 +677,8 @@ public class SortingPerformance {
             comparisonCount++;
         }
 
-        for (int index = 0; index < inputArray.length; index++) {
-            inputArray[index] = outputArray[index];
-        }
+        System.arraycopy(outputArray, 0, inputArray, 0, inputArray.length);
+        SortMetrics.countMoves(2L * inputArray.length);
 
         return comparisonCount;
     }
@@ -380,7 +690,7 @@ public class SortingPerformance {
      * more effective.
      *
      * @param arraySize The size of the array to be used for testing the search methods.
-     * @return An array containing the execution times for linear search, sorting, and binary search.
+     * @return An array containing the execution times in nanoseconds for linear search, sorting, and binary search.
      */
     public static long[] compareSearchEfficiency(int arraySize) {
         int[] dataArray = new int[arraySize];
@@ -393,9 +703,9 @@ public class SortingPerformance {
 
         long initialChecksum = calculateChecksum(dataArray);
 
-        long sortStart = System.currentTimeMillis();
-        performQuickSort(dataArray);
-        long sortEnd = System.currentTimeMillis();
+        long sortStart = System.nanoTime();
+        performIntroQuickSort(dataArray);
+        long sortEnd = System.nanoTime();
         searchTimings[1] = sortEnd - sortStart;
 
         long sortedChecksum = calculateChecksum(dataArray);
@@ -408,14 +718,14 @@ public class SortingPerformance {
         long totalBinarySearchTime = 0;
 
         for (int iteration = 0; iteration < searchIterations; iteration++) {
-            long linearStart = System.currentTimeMillis();
+            long linearStart = System.nanoTime();
             performLinearSearch(dataArray, -1);
-            long linearEnd = System.currentTimeMillis();
+            long linearEnd = System.nanoTime();
             totalLinearSearchTime += (linearEnd - linearStart);
 
-            long binaryStart = System.currentTimeMillis();
+            long binaryStart = System.nanoTime();
             performBinarySearch(dataArray, 0, dataArray.length - 1, -1);
-            long binaryEnd = System.currentTimeMillis();
+            long binaryEnd = System.nanoTime();
             totalBinarySearchTime += (binaryEnd - binaryStart);
         }
 
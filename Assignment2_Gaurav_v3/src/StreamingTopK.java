@@ -0,0 +1,221 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * The StreamingTopK class keeps the k smallest ints of a stream that may be far too long
+ * to hold in memory, using O(k) space. The values kept are stored in a max-heap in a plain
+ * int array, so its root is the largest of them: a new value is compared with the root
+ * once and, if it is smaller, replaces the root and is sifted down. A stream of n values
+ * therefore costs at most about n + n log2(k) comparisons and allocates nothing per value.
+ *
+ * Once the whole stream has been offered, kthSmallest gives the k-th smallest value,
+ * which answers a percentile query when the stream length is known in advance. A tracker
+ * is not thread-safe.
+ *
+ * The comparisons and heap writes are added to SortMetrics once per addAll call, or once
+ * per value for offer, and each addAll emits a SortEvent during a Flight Recorder
+ * recording.
+ */
+public final class StreamingTopK {
+
+    // Ints mapped from a file at a time by addAll(Path, ByteOrder)
+    private static final long FILE_WINDOW_INTS = 1 << 24;
+
+    // Max-heap of the smallest values seen so far; heap[0] is the largest of them
+    private final int[] heap;
+
+    private int size;
+    private long elementsSeen;
+    private long comparisonCount;
+    private long moveCount;
+
+    /**
+     * Creates a tracker that keeps the k smallest values.
+     *
+     * @param k The number of values to keep, at least 1.
+     */
+    public StreamingTopK(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1: " + k);
+        }
+        this.heap = new int[k];
+    }
+
+    /**
+     * Returns the k smallest values of a stream in sorted order.
+     *
+     * @param values The stream to consume.
+     * @param k      The number of values wanted.
+     * @return The smallest min(k, stream length) values, in non-decreasing order.
+     */
+    public static int[] smallest(IntStream values, int k) {
+        return new StreamingTopK(k).addAll(values).toSortedArray();
+    }
+
+    /**
+     * Offers one value to the tracker.
+     *
+     * @param value The next value of the stream.
+     */
+    public void offer(int value) {
+        long comparisonsBefore = comparisonCount;
+        long movesBefore = moveCount;
+        add(value);
+        SortMetrics.countWork(comparisonCount - comparisonsBefore, moveCount - movesBefore);
+    }
+
+    private void add(int value) {
+        elementsSeen++;
+        if (size < heap.length) {
+            siftUp(size++, value);
+            return;
+        }
+        comparisonCount++;
+        if (value < heap[0]) {
+            siftDown(value);
+        }
+    }
+
+    /**
+     * Offers every value of a stream, in encounter order.
+     *
+     * @param values The stream to consume; it is consumed sequentially.
+     * @return This tracker, for chaining.
+     */
+    public StreamingTopK addAll(IntStream values) {
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        long seenBefore = elementsSeen;
+        long comparisonsBefore = comparisonCount;
+        long movesBefore = moveCount;
+        values.sequential().forEach(this::add);
+        report(event, seenBefore, comparisonsBefore, movesBefore);
+        return this;
+    }
+
+    /**
+     * Offers every int of a binary file, mapping it window by window so files larger than
+     * the heap can be scanned.
+     *
+     * @param file      A file of 4-byte ints; a trailing partial int is ignored.
+     * @param byteOrder The byte order of the file.
+     * @return This tracker, for chaining.
+     * @throws IOException If the file cannot be read.
+     */
+    public StreamingTopK addAll(Path file, ByteOrder byteOrder) throws IOException {
+        SortMetrics.SortEvent event = SortMetrics.begin();
+        long seenBefore = elementsSeen;
+        long comparisonsBefore = comparisonCount;
+        long movesBefore = moveCount;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long totalBytes = channel.size() - channel.size() % Integer.BYTES;
+            long window = FILE_WINDOW_INTS * Integer.BYTES;
+            for (long position = 0; position < totalBytes; position += window) {
+                IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(window, totalBytes - position))
+                        .order(byteOrder).asIntBuffer();
+                while (ints.hasRemaining()) {
+                    add(ints.get());
+                }
+            }
+        }
+        report(event, seenBefore, comparisonsBefore, movesBefore);
+        return this;
+    }
+
+    private void report(SortMetrics.SortEvent event, long seenBefore, long comparisonsBefore, long movesBefore) {
+        SortMetrics.countWork(comparisonCount - comparisonsBefore, moveCount - movesBefore);
+        SortMetrics.countAuxiliaryBytes((long) heap.length * Integer.BYTES);
+        SortMetrics.end(event, "StreamingTopK", (int) Math.min(Integer.MAX_VALUE, elementsSeen - seenBefore));
+    }
+
+    /**
+     * Returns the largest of the values kept, which is the k-th smallest value of the
+     * stream once at least k values have been offered.
+     *
+     * @return The root of the heap.
+     * @throws NoSuchElementException If no value has been offered yet.
+     */
+    public int kthSmallest() {
+        if (size == 0) {
+            throw new NoSuchElementException("No values have been offered");
+        }
+        return heap[0];
+    }
+
+    /**
+     * Returns the values kept, sorted.
+     *
+     * @return A new array with the smallest values seen, in non-decreasing order.
+     */
+    public int[] toSortedArray() {
+        int[] sorted = Arrays.copyOf(heap, size);
+        SortingPerformance.performIntroQuickSort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns the number of values kept, which is min(k, values offered).
+     *
+     * @return The heap size.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of values offered so far.
+     *
+     * @return The stream length consumed.
+     */
+    public long getElementsSeen() {
+        return elementsSeen;
+    }
+
+    /**
+     * Returns the number of comparisons made so far, counted like the sorts count them.
+     *
+     * @return The comparison count.
+     */
+    public long getComparisonCount() {
+        return comparisonCount;
+    }
+
+    private void siftUp(int child, int value) {
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            comparisonCount++;
+            if (heap[parent] >= value) break;
+            heap[child] = heap[parent];
+            moveCount++;
+            child = parent;
+        }
+        heap[child] = value;
+        moveCount++;
+    }
+
+    private void siftDown(int value) {
+        int parent = 0;
+        int child;
+        while ((child = 2 * parent + 1) < size) {
+            if (child + 1 < size) {
+                comparisonCount++;
+                if (heap[child + 1] > heap[child]) {
+                    child++;
+                }
+            }
+            comparisonCount++;
+            if (heap[child] <= value) break;
+            heap[parent] = heap[child];
+            moveCount++;
+            parent = child;
+        }
+        heap[parent] = value;
+        moveCount++;
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * The VectorScan class provides the linear scans used by the searches and sorts, namely
+ * find-first-equal, maximum and index of the minimum, in a form that compares many ints
+ * per instruction when the Java Vector API is available.
+ *
+ * The same kernels also verify sorted output: one pass checks that a range is in
+ * non-decreasing order and computes its multiset fingerprint (see SortVerifier). They
+ * also run the sorting networks of SortingNetworks, which the SIMD kernel evaluates in
+ * vector registers.
+ *
+ * The Vector API is still an incubator module, so it is only present when the JVM is
+ * started with {@code --add-modules jdk.incubator.vector}. At class initialisation this
+ * class checks for the module and, if it is there, loads the SIMD kernel in
+ * VectorScanSimd; otherwise every call runs the plain scalar loops below, which behave
+ * exactly the same. Only VectorScanSimd refers to the incubator classes, so nothing else
+ * fails to load when the module is missing.
+ */
+public final class VectorScan {
+
+    /**
+     * The operations a scan kernel implements. All ranges are half-open: [from, to).
+     */
+    public interface IntScanKernel {
+        /**
+         * @return The first index in the range holding the value, or -1 if there is none.
+         */
+        int findFirstEqual(int[] array, int from, int to, int value);
+
+        /**
+         * @return The largest value in the range, which must not be empty.
+         */
+        int max(int[] array, int from, int to);
+
+        /**
+         * @return The first index of the smallest value in the range, which must not be empty.
+         */
+        int argMin(int[] array, int from, int to);
+
+        /**
+         * Checks the range for order and fingerprints its contents in the same pass.
+         *
+         * @param fingerprint Receives the multiset fingerprint of the range in element 0.
+         * @return The first index i with array[i] > array[i + 1], or -1 if the range is non-decreasing.
+         */
+        int verifySorted(int[] array, int from, int to, long[] fingerprint);
+
+        /**
+         * Sorts the range, of at most SortingNetworks.MAX_NETWORK_SIZE elements, with a
+         * sorting network.
+         */
+        void sortNetwork(int[] array, int from, int to);
+
+        /**
+         * @return The number of ints the kernel processes per step; 1 for the scalar kernel.
+         */
+        int vectorLength();
+    }
+
+    // Seeds of the two 32-bit hashes whose sums make up the multiset fingerprint
+    static final int FINGERPRINT_SEED_A = 0x9E3779B9;
+    static final int FINGERPRINT_SEED_B = 0x7F4A7C15;
+
+    // Multipliers of the MurmurHash3 finaliser
+    static final int MIX_MULTIPLIER_1 = 0x85EBCA6B;
+    static final int MIX_MULTIPLIER_2 = 0xC2B2AE35;
+
+    // The straightforward one-int-at-a-time kernel
+    private static final IntScanKernel SCALAR = new ScalarKernel();
+
+    // The kernel used by the static methods: the SIMD one if it could be loaded
+    private static final IntScanKernel ACTIVE = loadKernel();
+
+    private VectorScan() {
+    }
+
+    private static IntScanKernel loadKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            return (IntScanKernel) Class.forName("VectorScanSimd").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+
+    /**
+     * Reports whether the SIMD kernel is in use.
+     *
+     * @return True if the Vector API kernel was loaded, false if scans run scalar.
+     */
+    public static boolean isVectorized() {
+        return ACTIVE != SCALAR;
+    }
+
+    /**
+     * Returns the scalar kernel, so benchmarks can compare it with the active one.
+     *
+     * @return The scalar kernel.
+     */
+    public static IntScanKernel scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Returns the kernel the static methods use.
+     *
+     * @return The SIMD kernel if available, otherwise the scalar kernel.
+     */
+    public static IntScanKernel active() {
+        return ACTIVE;
+    }
+
+    /**
+     * Finds the first occurrence of a value, with the same contract as performLinearSearch.
+     *
+     * @param inputArray  The array that will be searched.
+     * @param targetValue The value being searched for.
+     * @return The index of the target if found, or -1 if not found.
+     */
+    public static int findFirstEqual(int[] inputArray, int targetValue) {
+        return ACTIVE.findFirstEqual(inputArray, 0, inputArray.length, targetValue);
+    }
+
+    /**
+     * Finds the largest value of a non-empty array.
+     *
+     * @param inputArray The array to scan.
+     * @return The maximum value.
+     */
+    public static int max(int[] inputArray) {
+        return ACTIVE.max(inputArray, 0, inputArray.length);
+    }
+
+    /**
+     * Finds the index of the smallest value in [from, to), preferring the first on ties,
+     * which is exactly the index the inner loop of performSelectionSort settles on.
+     *
+     * @param inputArray The array to scan.
+     * @param from       The first index of the range.
+     * @param to         One past the last index of the range; the range must not be empty.
+     * @return The index of the minimum.
+     */
+    public static int argMin(int[] inputArray, int from, int to) {
+        return ACTIVE.argMin(inputArray, from, to);
+    }
+
+    /**
+     * Hashes one value for the multiset fingerprint: the MurmurHash3 finaliser applied to
+     * the value xor a seed. The finaliser is a bijection, so distinct values never collide.
+     *
+     * @param value The value to hash.
+     * @param seed  FINGERPRINT_SEED_A or FINGERPRINT_SEED_B.
+     * @return The mixed value.
+     */
+    static int mix(int value, int seed) {
+        int hash = value ^ seed;
+        hash = (hash ^ (hash >>> 16)) * MIX_MULTIPLIER_1;
+        hash = (hash ^ (hash >>> 13)) * MIX_MULTIPLIER_2;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Packs the two wrapping hash sums into the 64-bit fingerprint.
+     */
+    static long combineFingerprint(int sumA, int sumB) {
+        return ((long) sumA << 32) | (sumB & 0xFFFFFFFFL);
+    }
+
+    private static final class ScalarKernel implements IntScanKernel {
+        @Override
+        public int findFirstEqual(int[] array, int from, int to, int value) {
+            for (int index = from; index < to; index++) {
+                if (array[index] == value) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int max(int[] array, int from, int to) {
+            int maximum = array[from];
+            for (int index = from + 1; index < to; index++) {
+                if (array[index] > maximum) {
+                    maximum = array[index];
+                }
+            }
+            return maximum;
+        }
+
+        @Override
+        public int argMin(int[] array, int from, int to) {
+            int smallestIndex = from;
+            for (int index = from + 1; index < to; index++) {
+                if (array[index] < array[smallestIndex]) {
+                    smallestIndex = index;
+                }
+            }
+            return smallestIndex;
+        }
+
+        @Override
+        public int verifySorted(int[] array, int from, int to, long[] fingerprint) {
+            int firstDescent = -1;
+            int sumA = 0;
+            int sumB = 0;
+            for (int index = from; index < to; index++) {
+                int value = array[index];
+                if (firstDescent < 0 && index + 1 < to && value > array[index + 1]) {
+                    firstDescent = index;
+                }
+                sumA += mix(value, FINGERPRINT_SEED_A);
+                sumB += mix(value, FINGERPRINT_SEED_B);
+            }
+            fingerprint[0] = combineFingerprint(sumA, sumB);
+            return firstDescent;
+        }
+
+        @Override
+        public void sortNetwork(int[] array, int from, int to) {
+            SortingNetworks.applyNetwork(array, from, to);
+        }
+
+        @Override
+        public int vectorLength() {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorScanSimd class is the Vector API kernel behind VectorScan. It processes as
+ * many ints per step as the preferred vector shape of the processor holds (8 with AVX2,
+ * 16 with AVX-512) and finishes the remainder of each range with a scalar loop.
+ *
+ * Sorting networks are evaluated as bitonic sorts across the lanes: every stage pairs
+ * each lane with a partner lane by a fixed shuffle and keeps either the minimum or the
+ * maximum of the two, so a whole stage is one shuffle, one min, one max and one blend.
+ * A range of up to one vector is padded with Integer.MAX_VALUE and sorted in a single
+ * register; up to two vectors are sorted separately and then merged. Ranges of at most
+ * half a vector gain nothing from the wide network and use the scalar one. A range whose
+ * vectors would reach past the end of the array is sorted in a per-thread buffer instead,
+ * because a masked access that is not fully inside its array leaves the JIT's intrinsic
+ * and boxes the vectors of every such call.
+ *
+ * This class is only loaded by VectorScan after it has checked that the
+ * jdk.incubator.vector module is present; compiling it needs
+ * {@code --add-modules jdk.incubator.vector}.
+ */
+final class VectorScanSimd implements VectorScan.IntScanKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    // Number of int lanes in one vector
+    private static final int LANES = SPECIES.length();
+
+    // For every stage of the bitonic sort of one vector: the partner of each lane, and the
+    // lanes that keep the larger of the pair. The stages from FIRST_MERGE_STAGE on merge a
+    // bitonic vector into ascending order.
+    private static final VectorShuffle<Integer>[] STAGE_PARTNERS;
+    private static final VectorMask<Integer>[] STAGE_KEEPS_MAX;
+    private static final int FIRST_MERGE_STAGE;
+
+    // Fills the lanes past the end of a range; the padding sorts last and is never stored
+    private static final IntVector PADDING = IntVector.broadcast(SPECIES, Integer.MAX_VALUE);
+
+    // Reverses the lanes, turning two ascending vectors into one bitonic sequence
+    private static final VectorShuffle<Integer> REVERSE_LANES = VectorShuffle.fromOp(SPECIES, lane -> LANES - 1 - lane);
+
+    // Two vectors of room for sorting a range that ends too close to the end of its array
+    private static final ThreadLocal<int[]> TAIL_BUFFER = ThreadLocal.withInitial(() -> new int[2 * LANES]);
+
+    static {
+        int stages = 0;
+        for (int blockSize = 2; blockSize <= LANES; blockSize <<= 1) {
+            stages += Integer.numberOfTrailingZeros(blockSize);
+        }
+        @SuppressWarnings("unchecked")
+        VectorShuffle<Integer>[] partners = (VectorShuffle<Integer>[]) new VectorShuffle<?>[stages];
+        @SuppressWarnings("unchecked")
+        VectorMask<Integer>[] keepsMax = (VectorMask<Integer>[]) new VectorMask<?>[stages];
+        int stage = 0;
+        for (int blockSize = 2; blockSize <= LANES; blockSize <<= 1) {
+            for (int distance = blockSize >> 1; distance >= 1; distance >>= 1) {
+                boolean[] takesMax = new boolean[LANES];
+                for (int lane = 0; lane < LANES; lane++) {
+                    boolean ascending = (lane & blockSize) == 0;
+                    boolean lowerOfPair = (lane & distance) == 0;
+                    takesMax[lane] = lowerOfPair != ascending;
+                }
+                int pairDistance = distance;
+                partners[stage] = VectorShuffle.fromOp(SPECIES, lane -> lane ^ pairDistance);
+                keepsMax[stage] = VectorMask.fromArray(SPECIES, takesMax, 0);
+                stage++;
+            }
+        }
+        STAGE_PARTNERS = partners;
+        STAGE_KEEPS_MAX = keepsMax;
+        FIRST_MERGE_STAGE = stages - Integer.numberOfTrailingZeros(LANES);
+    }
+
+    @Override
+    public int findFirstEqual(int[] array, int from, int to, int value) {
+        int index = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; index < upperBound; index += SPECIES.length()) {
+            VectorMask<Integer> matches = IntVector.fromArray(SPECIES, array, index).eq(value);
+            if (matches.anyTrue()) {
+                return index + matches.firstTrue();
+            }
+        }
+        for (; index < to; index++) {
+            if (array[index] == value) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int max(int[] array, int from, int to) {
+        int index = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        int maximum = array[from];
+        if (upperBound > from) {
+            IntVector maxima = IntVector.fromArray(SPECIES, array, from);
+            for (index += SPECIES.length(); index < upperBound; index += SPECIES.length()) {
+                maxima = maxima.max(IntVector.fromArray(SPECIES, array, index));
+            }
+            maximum = maxima.reduceLanes(VectorOperators.MAX);
+        }
+        for (; index < to; index++) {
+            maximum = Math.max(maximum, array[index]);
+        }
+        return maximum;
+    }
+
+    @Override
+    public int argMin(int[] array, int from, int to) {
+        // Find the minimum with lane-wise min, then the first position that holds it
+        int index = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        int minimum = array[from];
+        if (upperBound > from) {
+            IntVector minima = IntVector.fromArray(SPECIES, array, from);
+            for (index += SPECIES.length(); index < upperBound; index += SPECIES.length()) {
+                minima = minima.min(IntVector.fromArray(SPECIES, array, index));
+            }
+            minimum = minima.reduceLanes(VectorOperators.MIN);
+        }
+        for (; index < to; index++) {
+            minimum = Math.min(minimum, array[index]);
+        }
+        return findFirstEqual(array, from, to, minimum);
+    }
+
+    @Override
+    public int verifySorted(int[] array, int from, int to, long[] fingerprint) {
+        // Each step compares a vector with the same vector shifted by one element
+        int firstDescent = -1;
+        int index = from;
+        int upperBound = from + SPECIES.loopBound(Math.max(0, to - from - 1));
+        IntVector sumsA = IntVector.zero(SPECIES);
+        IntVector sumsB = IntVector.zero(SPECIES);
+        for (; index < upperBound; index += SPECIES.length()) {
+            IntVector values = IntVector.fromArray(SPECIES, array, index);
+            if (firstDescent < 0) {
+                VectorMask<Integer> descents = values.compare(VectorOperators.GT, IntVector.fromArray(SPECIES, array, index + 1));
+                if (descents.anyTrue()) {
+                    firstDescent = index + descents.firstTrue();
+                }
+            }
+            sumsA = sumsA.add(mix(values, VectorScan.FINGERPRINT_SEED_A));
+            sumsB = sumsB.add(mix(values, VectorScan.FINGERPRINT_SEED_B));
+        }
+        int sumA = sumsA.reduceLanes(VectorOperators.ADD);
+        int sumB = sumsB.reduceLanes(VectorOperators.ADD);
+        for (; index < to; index++) {
+            int value = array[index];
+            if (firstDescent < 0 && index + 1 < to && value > array[index + 1]) {
+                firstDescent = index;
+            }
+            sumA += VectorScan.mix(value, VectorScan.FINGERPRINT_SEED_A);
+            sumB += VectorScan.mix(value, VectorScan.FINGERPRINT_SEED_B);
+        }
+        fingerprint[0] = VectorScan.combineFingerprint(sumA, sumB);
+        return firstDescent;
+    }
+
+    @Override
+    public void sortNetwork(int[] array, int from, int to) {
+        // Written out in one method: a helper taking or returning vectors that the JIT
+        // fails to inline boxes every vector and runs hundreds of times slower
+        int size = to - from;
+        if (size <= LANES / 2 || size > 2 * LANES) {
+            SortingNetworks.applyNetwork(array, from, to);
+            return;
+        }
+        if (from + (size <= LANES ? LANES : 2 * LANES) > array.length) {
+            int[] buffer = TAIL_BUFFER.get();
+            System.arraycopy(array, from, buffer, 0, size);
+            sortNetwork(buffer, 0, size);
+            System.arraycopy(buffer, 0, array, from, size);
+            return;
+        }
+        if (size <= LANES) {
+            VectorMask<Integer> present = SPECIES.indexInRange(0, size);
+            IntVector values = PADDING.blend(IntVector.fromArray(SPECIES, array, from, present), present);
+            for (int stage = 0; stage < STAGE_PARTNERS.length; stage++) {
+                IntVector partners = values.rearrange(STAGE_PARTNERS[stage]);
+                values = values.min(partners).blend(values.max(partners), STAGE_KEEPS_MAX[stage]);
+            }
+            values.intoArray(array, from, present);
+            return;
+        }
+
+        // Sort both vectors, reverse the upper one so the pair is bitonic, then merge
+        VectorMask<Integer> present = SPECIES.indexInRange(0, size - LANES);
+        IntVector lower = IntVector.fromArray(SPECIES, array, from);
+        IntVector upper = PADDING.blend(IntVector.fromArray(SPECIES, array, from + LANES, present), present);
+        for (int stage = 0; stage < STAGE_PARTNERS.length; stage++) {
+            IntVector lowerPartners = lower.rearrange(STAGE_PARTNERS[stage]);
+            IntVector upperPartners = upper.rearrange(STAGE_PARTNERS[stage]);
+            lower = lower.min(lowerPartners).blend(lower.max(lowerPartners), STAGE_KEEPS_MAX[stage]);
+            upper = upper.min(upperPartners).blend(upper.max(upperPartners), STAGE_KEEPS_MAX[stage]);
+        }
+        upper = upper.rearrange(REVERSE_LANES);
+        IntVector smaller = lower.min(upper);
+        IntVector larger = lower.max(upper);
+        for (int stage = FIRST_MERGE_STAGE; stage < STAGE_PARTNERS.length; stage++) {
+            IntVector smallerPartners = smaller.rearrange(STAGE_PARTNERS[stage]);
+            IntVector largerPartners = larger.rearrange(STAGE_PARTNERS[stage]);
+            smaller = smaller.min(smallerPartners).blend(smaller.max(smallerPartners), STAGE_KEEPS_MAX[stage]);
+            larger = larger.min(largerPartners).blend(larger.max(largerPartners), STAGE_KEEPS_MAX[stage]);
+        }
+        smaller.intoArray(array, from);
+        larger.intoArray(array, from + LANES, present);
+    }
+
+    @Override
+    public int vectorLength() {
+        return LANES;
+    }
+
+    /**
+     * The lane-wise form of VectorScan.mix; int lanes wrap exactly like the scalar code.
+     */
+    private static IntVector mix(IntVector values, int seed) {
+        IntVector hash = values.lanewise(VectorOperators.XOR, seed);
+        hash = hash.lanewise(VectorOperators.XOR, hash.lanewise(VectorOperators.LSHR, 16)).mul(VectorScan.MIX_MULTIPLIER_1);
+        hash = hash.lanewise(VectorOperators.XOR, hash.lanewise(VectorOperators.LSHR, 13)).mul(VectorScan.MIX_MULTIPLIER_2);
+        return hash.lanewise(VectorOperators.XOR, hash.lanewise(VectorOperators.LSHR, 16));
+    }
+}